@@ -3,9 +3,7 @@ package interpreter;
 import lexer.Token;
 import parser.FunctionDefinitionNode;
 
-import java.util.HashMap;
 import java.util.LinkedList;
-import java.util.function.Function;
 
 /**
  * This class models a built-in AWK function
@@ -13,13 +11,27 @@ import java.util.function.Function;
  * @author Jake Camadine
  */
 public class BuiltInFunctionDefinitionNode extends FunctionDefinitionNode {
+    /**
+     * the body of a built-in function. The arguments arrive in the order they were passed, so a
+     * call that leaves out optional parameters passes a shorter array, and the arguments of a
+     * variadic function follow its named parameters.
+     */
+    @FunctionalInterface
+    public interface Body {
+        /**
+         * @param arguments : the values of the call's arguments
+         * @return the result of the call, or null if the function has no result
+         */
+        InterpreterDataType execute(InterpreterDataType[] arguments);
+    }
+
     private boolean isVariadic;
 
-    private Function<HashMap<String, InterpreterDataType>, String> execute;
+    private Body execute;
 
     private LinkedList<LinkedList<Token>> altSignatures;
 
-    public BuiltInFunctionDefinitionNode(String functionName, LinkedList<Token> parameters, boolean isVariadic, Function<HashMap<String, InterpreterDataType>, String> execute) {
+    public BuiltInFunctionDefinitionNode(String functionName, LinkedList<Token> parameters, boolean isVariadic, Body execute) {
         super(functionName, parameters);
         this.execute = execute;
         this.isVariadic = isVariadic;
@@ -29,11 +41,11 @@ public class BuiltInFunctionDefinitionNode extends FunctionDefinitionNode {
     /**
      * runs the function assigned to execute
      *
-     * @param parameterMap a map of interpreter data types corresponding to this functions parameters
-     * @return
+     * @param arguments : the values of the call's arguments, in order
+     * @return the result of the call, or null if the function has no result
      */
-    public String execute(HashMap<String, InterpreterDataType> parameterMap) {
-        return execute.apply(parameterMap);
+    public InterpreterDataType execute(InterpreterDataType[] arguments) {
+        return execute.execute(arguments);
     }
 
     /**
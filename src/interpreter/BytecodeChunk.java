@@ -0,0 +1,134 @@
+package interpreter;
+
+import parser.FunctionDefinitionNode;
+
+import java.util.regex.Pattern;
+
+/**
+ * This class holds compiled instructions for the VirtualMachine along with their constant pools.
+ * A program has one chunk for its BEGIN blocks, one for its other blocks, one for its END blocks,
+ * and one for each user function.
+ *
+ * @author Jake Camadine
+ */
+public class BytecodeChunk {
+    /**
+     * This class models a user function. Calls refer to it before its body is compiled,
+     * which lets functions call themselves and each other.
+     */
+    public static class FunctionCall {
+        private FunctionDefinitionNode function;
+        private FramePool framePool;
+        private BytecodeChunk body;
+
+        public FunctionCall(FunctionDefinitionNode function, FramePool framePool) {
+            this.function = function;
+            this.framePool = framePool;
+        }
+
+        public FunctionDefinitionNode getFunction() {
+            return function;
+        }
+
+        public FramePool getFramePool() {
+            return framePool;
+        }
+
+        public BytecodeChunk getBody() {
+            return body;
+        }
+
+        public void setBody(BytecodeChunk body) {
+            this.body = body;
+        }
+    }
+
+    private String name;
+    private int[] code;
+    private String[] strings;
+    private double[] numbers;
+    private Object[] constants;
+
+    private int maxValueDepth;
+    private int maxNumberDepth;
+    private int maxForInDepth;
+
+    /**
+     * @param name : a name for the chunk, such as BEGIN or the name of a function
+     * @param code : the instructions and their operands
+     * @param strings : the string constants
+     * @param numbers : the numeric constants
+     * @param constants : the patterns and call sites
+     * @param maxValueDepth : the most values the chunk has on the stack at once
+     * @param maxNumberDepth : the most numbers the chunk has on the stack at once
+     * @param maxForInDepth : the deepest nesting of for-in loops in the chunk
+     */
+    public BytecodeChunk(String name, int[] code, String[] strings, double[] numbers, Object[] constants,
+                         int maxValueDepth, int maxNumberDepth, int maxForInDepth) {
+        this.name = name;
+        this.code = code;
+        this.strings = strings;
+        this.numbers = numbers;
+        this.constants = constants;
+        this.maxValueDepth = maxValueDepth;
+        this.maxNumberDepth = maxNumberDepth;
+        this.maxForInDepth = maxForInDepth;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int[] getCode() {
+        return code;
+    }
+
+    public String[] getStrings() {
+        return strings;
+    }
+
+    public double[] getNumbers() {
+        return numbers;
+    }
+
+    public Object[] getConstants() {
+        return constants;
+    }
+
+    public int getMaxValueDepth() {
+        return maxValueDepth;
+    }
+
+    public int getMaxNumberDepth() {
+        return maxNumberDepth;
+    }
+
+    public int getMaxForInDepth() {
+        return maxForInDepth;
+    }
+
+    /**
+     * @return a listing of the instructions, one per line
+     */
+    @Override
+    public String toString() {
+        var listing = new StringBuilder(name).append(":\n");
+        var i = 0;
+        while(i < code.length) {
+            listing.append(String.format("%5d  %s", i, Opcode.getName(code[i])));
+            var operandCount = Opcode.getOperandCount(code[i]);
+            for(int j = 1; j <= operandCount; j++) {
+                listing.append(' ').append(code[i + j]);
+            }
+            if(code[i] == Opcode.PUSH_STRING || code[i] == Opcode.FAIL) {
+                listing.append("  \"").append(strings[code[i + 1]]).append('"');
+            }
+            else if(code[i] == Opcode.PUSH_NUMBER) {
+                listing.append("  ").append(numbers[code[i + 1]]);
+            }
+            listing.append('\n');
+            i += operandCount + 1;
+        }
+        return listing.toString();
+    }
+}
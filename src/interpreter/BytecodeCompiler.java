@@ -0,0 +1,977 @@
+package interpreter;
+
+import parser.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * This class compiles the symbol tree of an AWK program into BytecodeChunks for the VirtualMachine.
+ * Conditions leave 1 or 0 on the number stack and are consumed by conditional jumps, and loops
+ * become jumps between labels that are patched once a chunk is complete.
+ *
+ * @author Jake Camadine
+ */
+public class BytecodeCompiler {
+    private Interpreter interpreter;
+    private NumericTypeInference types;
+    private IdentityHashMap<FunctionDefinitionNode, BytecodeChunk.FunctionCall> functionCalls;
+
+    private int[] code;
+    private int codeLength;
+    private ArrayList<String> strings;
+    private HashMap<String, Integer> stringIndexes;
+    private ArrayList<Double> numbers;
+    private HashMap<Double, Integer> numberIndexes;
+    private ArrayList<Object> constants;
+    private ArrayList<Integer> labelPositions;
+    private ArrayList<int[]> jumpPatches;
+
+    private int valueDepth;
+    private int maxValueDepth;
+    private int numberDepth;
+    private int maxNumberDepth;
+    private int forInDepth;
+    private int maxForInDepth;
+
+    private boolean inFunction;
+    private int breakLabel;
+    private int continueLabel;
+    private int statementEndLabel;
+
+    /**
+     * compiles the program's user functions, so that the blocks compiled later can call them
+     *
+     * @param interpreter : the interpreter whose functions and frame pools the program uses
+     * @param program : the program being compiled, with its variables already resolved
+     */
+    public BytecodeCompiler(Interpreter interpreter, ProgramNode program) {
+        this.interpreter = interpreter;
+        types = new NumericTypeInference(program);
+        functionCalls = new IdentityHashMap<>();
+        for(FunctionDefinitionNode function : program.getFunctionNodes()) {
+            functionCalls.put(function, new BytecodeChunk.FunctionCall(function, interpreter.getFramePool(function)));
+        }
+        for(FunctionDefinitionNode function : program.getFunctionNodes()) {
+            startChunk(true);
+            for(StatementNode statement : function.getStatements()) {
+                compileStatement(statement);
+            }
+            functionCalls.get(function).setBody(finishChunk(function.getFunctionName()));
+        }
+    }
+
+    /**
+     * compiles BEGIN, END, or general blocks into one chunk. The statements of a block run
+     * whether or not one of them breaks out of it, as in the tree-walking interpreter.
+     *
+     * @param name : the name of the chunk
+     * @param blocks : the blocks to compile
+     * @return the compiled chunk
+     */
+    public BytecodeChunk compileBlocks(String name, List<BlockNode> blocks) {
+        startChunk(false);
+        for(BlockNode block : blocks) {
+            var skip = newLabel();
+            if(block.getCondition().isPresent()) {
+                compileBranch(block.getCondition().get(), false, skip);
+            }
+            for(StatementNode statement : block.getStatements()) {
+                statementEndLabel = newLabel();
+                compileStatement(statement);
+                placeLabel(statementEndLabel);
+            }
+            placeLabel(skip);
+        }
+        return finishChunk(name);
+    }
+
+    private void startChunk(boolean isFunction) {
+        code = new int[64];
+        codeLength = 0;
+        strings = new ArrayList<>();
+        stringIndexes = new HashMap<>();
+        numbers = new ArrayList<>();
+        numberIndexes = new HashMap<>();
+        constants = new ArrayList<>();
+        labelPositions = new ArrayList<>();
+        jumpPatches = new ArrayList<>();
+        valueDepth = 0;
+        maxValueDepth = 0;
+        numberDepth = 0;
+        maxNumberDepth = 0;
+        forInDepth = 0;
+        maxForInDepth = 0;
+        inFunction = isFunction;
+        breakLabel = -1;
+        continueLabel = -1;
+        statementEndLabel = -1;
+    }
+
+    private BytecodeChunk finishChunk(String name) {
+        for(int[] patch : jumpPatches) {
+            code[patch[0]] = labelPositions.get(patch[1]);
+        }
+        var numberArray = new double[numbers.size()];
+        for(int i = 0; i < numberArray.length; i++) {
+            numberArray[i] = numbers.get(i);
+        }
+        return new BytecodeChunk(name, Arrays.copyOf(code, codeLength), strings.toArray(new String[0]), numberArray,
+                constants.toArray(), maxValueDepth, maxNumberDepth, maxForInDepth);
+    }
+
+    private void emitWord(int word) {
+        if(codeLength == code.length) {
+            code = Arrays.copyOf(code, code.length * 2);
+        }
+        code[codeLength++] = word;
+    }
+
+    /**
+     * emits an instruction and tracks how it changes the depth of each stack
+     *
+     * @param opcode : the instruction
+     * @param operands : the instruction's operands
+     */
+    private void emit(int opcode, int... operands) {
+        emitWord(opcode);
+        for(int operand : operands) {
+            emitWord(operand);
+        }
+        switch(opcode) {
+            case Opcode.PUSH_STRING:
+            case Opcode.PUSH_TRUE:
+            case Opcode.PUSH_FALSE:
+            case Opcode.LOAD_GLOBAL:
+            case Opcode.LOAD_LOCAL:
+            case Opcode.LOAD_NUMBER_OF_FIELDS:
+            case Opcode.LOAD_CONSTANT_FIELD:
+                changeDepth(1, 0);
+                break;
+            case Opcode.LOAD_GLOBAL_NUMBER:
+            case Opcode.LOAD_LOCAL_NUMBER:
+                changeDepth(0, 1);
+                break;
+            case Opcode.POP:
+            case Opcode.ASSIGN:
+            case Opcode.CONCATENATE:
+            case Opcode.RETURN:
+            case Opcode.DELETE_GLOBAL_ELEMENT:
+            case Opcode.DELETE_LOCAL_ELEMENT:
+                changeDepth(-1, 0);
+                break;
+            case Opcode.APPEND:
+                changeDepth(-operands[0], 0);
+                break;
+            case Opcode.TO_VALUE:
+            case Opcode.TO_BOOLEAN_VALUE:
+                changeDepth(1, -1);
+                break;
+            case Opcode.PUSH_NUMBER:
+                changeDepth(0, 1);
+                break;
+            case Opcode.TO_NUMBER:
+            case Opcode.MATCH:
+            case Opcode.NOT_MATCH:
+            case Opcode.TEST:
+                changeDepth(-1, 1);
+                break;
+            case Opcode.ADD:
+            case Opcode.SUBTRACT:
+            case Opcode.MULTIPLY:
+            case Opcode.DIVIDE:
+            case Opcode.MODULO:
+            case Opcode.POWER:
+            case Opcode.ASSIGN_NUMBER:
+            case Opcode.NUMBER_EQUAL:
+            case Opcode.NUMBER_NOT_EQUAL:
+            case Opcode.NUMBER_LESS:
+            case Opcode.NUMBER_LESS_OR_EQUAL:
+            case Opcode.NUMBER_GREATER:
+            case Opcode.NUMBER_GREATER_OR_EQUAL:
+            case Opcode.JUMP_IF_FALSE:
+            case Opcode.JUMP_IF_TRUE:
+                changeDepth(0, -1);
+                break;
+            case Opcode.EQUAL:
+            case Opcode.NOT_EQUAL:
+            case Opcode.LESS:
+            case Opcode.LESS_OR_EQUAL:
+            case Opcode.GREATER:
+            case Opcode.GREATER_OR_EQUAL:
+            case Opcode.IN:
+                changeDepth(-2, 1);
+                break;
+            case Opcode.FOR_IN_START:
+                changeDepth(-2, 0);
+                break;
+            case Opcode.CALL_BUILTIN:
+            case Opcode.CALL_FUNCTION:
+                changeDepth(1 - operands[1], 0);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void changeDepth(int values, int numbers) {
+        valueDepth += values;
+        numberDepth += numbers;
+        maxValueDepth = Math.max(maxValueDepth, valueDepth);
+        maxNumberDepth = Math.max(maxNumberDepth, numberDepth);
+    }
+
+    private int newLabel() {
+        labelPositions.add(-1);
+        return labelPositions.size() - 1;
+    }
+
+    private void placeLabel(int label) {
+        labelPositions.set(label, codeLength);
+    }
+
+    private void emitJump(int opcode, int label) {
+        emit(opcode, 0);
+        jumpPatches.add(new int[] {codeLength - 1, label});
+    }
+
+    private int addString(String value) {
+        var index = stringIndexes.get(value);
+        if(index == null) {
+            index = strings.size();
+            strings.add(value);
+            stringIndexes.put(value, index);
+        }
+        return index;
+    }
+
+    private int addNumber(double value) {
+        var index = numberIndexes.get(value);
+        if(index == null) {
+            index = numbers.size();
+            numbers.add(value);
+            numberIndexes.put(value, index);
+        }
+        return index;
+    }
+
+    private int addConstant(Object value) {
+        constants.add(value);
+        return constants.size() - 1;
+    }
+
+    /**
+     * emits an error that is raised when it runs, so that errors in code that never runs stay
+     * silent, as they are in the tree-walking interpreter. An empty value follows it, so the
+     * stacks keep the shape of a value expression.
+     *
+     * @param message : the message of the error
+     */
+    private void emitFailure(String message) {
+        emit(Opcode.FAIL, addString(message));
+        emit(Opcode.PUSH_FALSE);
+    }
+
+    private void compileStatement(StatementNode statement) {
+        if(statement instanceof BreakNode) {
+            compileLeave(breakLabel);
+        }
+        else if(statement instanceof ContinueNode) {
+            compileLeave(continueLabel);
+        }
+        else if(statement instanceof DeleteNode) {
+            compileDelete((DeleteNode) statement);
+        }
+        else if(statement instanceof DoWhileNode) {
+            var body = newLabel();
+            var condition = newLabel();
+            var end = newLabel();
+            placeLabel(body);
+            compileLoopBody(((DoWhileNode) statement).getLoopBlock(), end, condition);
+            placeLabel(condition);
+            compileBranch(((DoWhileNode) statement).getCondition(), true, body);
+            placeLabel(end);
+        }
+        else if(statement instanceof ForNode) {
+            compileForLoop((ForNode) statement);
+        }
+        else if(statement instanceof ForInNode) {
+            compileForInLoop((ForInNode) statement);
+        }
+        else if(statement instanceof IfNode) {
+            compileIfStatements((IfNode) statement);
+        }
+        else if(statement instanceof ReturnNode) {
+            compileReturn((ReturnNode) statement);
+        }
+        else if(statement instanceof WhileNode) {
+            var condition = newLabel();
+            var end = newLabel();
+            placeLabel(condition);
+            compileBranch(((WhileNode) statement).getCondition(), false, end);
+            compileLoopBody(((WhileNode) statement).getLoopBlock(), end, condition);
+            emitJump(Opcode.JUMP, condition);
+            placeLabel(end);
+        }
+        else if(!(statement instanceof AssignmentNode) && !(statement instanceof FunctionCallNode)) {
+            emit(Opcode.FAIL, addString(null));
+        }
+        else {
+            compileValue(toPreIncrement(statement));
+            emit(Opcode.POP);
+        }
+    }
+
+    /**
+     * @param statement : an expression whose value is discarded
+     * @return the expression with a post-increment or post-decrement replaced by the pre form,
+     * which does not copy the old value
+     */
+    private static Node toPreIncrement(Node statement) {
+        if(!(statement instanceof AssignmentNode) || !(((AssignmentNode) statement).getAssignment() instanceof OperationNode)) {
+            return statement;
+        }
+        var operation = (OperationNode) ((AssignmentNode) statement).getAssignment();
+        switch(operation.getOperationType()) {
+            case POSTINCREMENT:
+                return new OperationNode(operation.getLeft(), OperationNode.OperationType.PREINCREMENT);
+            case POSTDECREMENT:
+                return new OperationNode(operation.getLeft(), OperationNode.OperationType.PREDECREMENT);
+            default:
+                return statement;
+        }
+    }
+
+    private void compileLoopBody(BlockNode block, int breakTarget, int continueTarget) {
+        var outerBreak = breakLabel;
+        var outerContinue = continueLabel;
+        breakLabel = breakTarget;
+        continueLabel = continueTarget;
+        for(StatementNode statement : block.getStatements()) {
+            compileStatement(statement);
+        }
+        breakLabel = outerBreak;
+        continueLabel = outerContinue;
+    }
+
+    /**
+     * compiles a break or continue. Outside of a loop, one ends the enclosing function, or the
+     * enclosing statement of a block, as it does in the tree-walking interpreter.
+     *
+     * @param loopTarget : the label the statement jumps to inside a loop, or -1 outside of one
+     */
+    private void compileLeave(int loopTarget) {
+        if(loopTarget >= 0) {
+            emitJump(Opcode.JUMP, loopTarget);
+        }
+        else if(inFunction) {
+            emit(Opcode.RETURN_EMPTY);
+        }
+        else {
+            leaveStatement();
+        }
+    }
+
+    /**
+     * jumps to the end of the enclosing statement of a block, ending any for-in loops on the way
+     */
+    private void leaveStatement() {
+        for(int i = 0; i < forInDepth; i++) {
+            emit(Opcode.FOR_IN_END);
+        }
+        emitJump(Opcode.JUMP, statementEndLabel);
+    }
+
+    private void compileReturn(ReturnNode statement) {
+        if(inFunction) {
+            if(statement.getParameter().isPresent()) {
+                compileValue(statement.getParameter().get());
+                emit(Opcode.RETURN);
+            }
+            else {
+                emit(Opcode.RETURN_EMPTY);
+            }
+            return;
+        }
+        if(statement.getParameter().isPresent()) {
+            compileValue(statement.getParameter().get());
+            emit(Opcode.POP);
+        }
+        leaveStatement();
+    }
+
+    private void compileForLoop(ForNode statement) {
+        if(statement.getInitializer().isPresent()) {
+            if(!(statement.getInitializer().get() instanceof StatementNode)) {
+                emit(Opcode.FAIL, addString("invalid statement"));
+                return;
+            }
+            compileStatement((StatementNode) statement.getInitializer().get());
+        }
+        var condition = newLabel();
+        var postIteration = newLabel();
+        var end = newLabel();
+        placeLabel(condition);
+        if(statement.getConditional().isPresent()) {
+            compileBranch(statement.getConditional().get(), false, end);
+        }
+        compileLoopBody(statement.getLoopBlock(), end, postIteration);
+        placeLabel(postIteration);
+        if(statement.getPostIterationOperation().isPresent()) {
+            compileValue(toPreIncrement(statement.getPostIterationOperation().get()));
+            emit(Opcode.POP);
+        }
+        emitJump(Opcode.JUMP, condition);
+        placeLabel(end);
+    }
+
+    private void compileForInLoop(ForInNode statement) {
+        var next = newLabel();
+        var exit = newLabel();
+        var done = newLabel();
+        compileValue(statement.getInStatement().getRight().get());
+        compileValue(statement.getInStatement().getLeft());
+        emit(Opcode.FOR_IN_START);
+        forInDepth++;
+        maxForInDepth = Math.max(maxForInDepth, forInDepth);
+        placeLabel(next);
+        emitJump(Opcode.FOR_IN_NEXT, done);
+        compileLoopBody(statement.getLoopBlock(), exit, next);
+        emitJump(Opcode.JUMP, next);
+        placeLabel(exit);
+        emit(Opcode.FOR_IN_END);
+        placeLabel(done);
+        forInDepth--;
+    }
+
+    private void compileIfStatements(IfNode statement) {
+        var end = newLabel();
+        while(true) {
+            var next = newLabel();
+            if(statement.getCondition().isPresent()) {
+                compileBranch(statement.getCondition().get(), false, next);
+            }
+            for(StatementNode blockStatement : statement.getBlockStatements().getStatements()) {
+                compileStatement(blockStatement);
+            }
+            emitJump(Opcode.JUMP, end);
+            placeLabel(next);
+            if(!statement.hasNext()) {
+                break;
+            }
+            statement = (IfNode) statement.getNext().get();
+        }
+        placeLabel(end);
+    }
+
+    private void compileDelete(DeleteNode statement) {
+        if(!(statement.getReference() instanceof VariableReferenceNode)) {
+            emit(Opcode.FAIL, addString("reference expected but instead found: " + statement.getReference().toString()));
+            return;
+        }
+        var reference = (VariableReferenceNode) statement.getReference();
+        if(reference.getIndexExpression().isPresent()) {
+            compileValue(reference.getIndexExpression().get());
+            emit(reference.isLocal() ? Opcode.DELETE_LOCAL_ELEMENT : Opcode.DELETE_GLOBAL_ELEMENT, reference.getSlot());
+        }
+        else {
+            emit(reference.isLocal() ? Opcode.DELETE_LOCAL : Opcode.DELETE_GLOBAL, reference.getSlot());
+        }
+    }
+
+    /**
+     * compiles an expression that leaves its value on the value stack
+     *
+     * @param node : the expression
+     */
+    private void compileValue(Node node) {
+        if(node instanceof AssignmentNode) {
+            compileAssignment((AssignmentNode) node);
+        }
+        else if(node instanceof ConstantNode && ((ConstantNode) node).isNumber()) {
+            compileNumber(node);
+            emit(Opcode.TO_VALUE);
+        }
+        else if(node instanceof ConstantNode) {
+            emit(Opcode.PUSH_STRING, addString(node.toString()));
+        }
+        else if(node instanceof FunctionCallNode) {
+            compileFunctionCall((FunctionCallNode) node);
+        }
+        else if(node instanceof PatternNode) {
+            emitFailure("illegal pattern placement");
+        }
+        else if(node instanceof TernaryNode) {
+            var falseCase = newLabel();
+            var end = newLabel();
+            compileBranch(((TernaryNode) node).getBooleanExpression(), false, falseCase);
+            var depth = valueDepth;
+            compileValue(((TernaryNode) node).getTrueCase());
+            emitJump(Opcode.JUMP, end);
+            valueDepth = depth;
+            placeLabel(falseCase);
+            compileValue(((TernaryNode) node).getFalseCase());
+            placeLabel(end);
+        }
+        else if(node instanceof VariableReferenceNode) {
+            compileVariableReference((VariableReferenceNode) node);
+        }
+        else {
+            compileOperation((OperationNode) node);
+        }
+    }
+
+    private void compileAssignment(AssignmentNode node) {
+        if(!(node.getTarget() instanceof VariableReferenceNode) && !(node.getTarget() instanceof OperationNode)) {
+            emitFailure("invalid assignment target");
+            return;
+        }
+        if(node.getTarget() instanceof OperationNode && ((OperationNode) node.getTarget()).getOperationType() != OperationNode.OperationType.FIELDREF) {
+            emitFailure("invalid assignment target");
+            return;
+        }
+        if(node.getAssignment() instanceof OperationNode && isIncrementOrDecrement((OperationNode) node.getAssignment())) {
+            compileIncrementAndDecrement((OperationNode) node.getAssignment());
+            return;
+        }
+        if(interpreter.isAppendToTarget(node)) {
+            var fallback = newLabel();
+            var end = newLabel();
+            compileValue(node.getTarget());
+            emitJump(Opcode.JUMP_IF_ARRAY, fallback);
+            var depth = valueDepth;
+            var parts = new LinkedList<Node>();
+            var concatenation = (OperationNode) node.getAssignment();
+            while(concatenation.getLeft() instanceof OperationNode) {
+                parts.addFirst(concatenation.getRight().get());
+                concatenation = (OperationNode) concatenation.getLeft();
+            }
+            parts.addFirst(concatenation.getRight().get());
+            for(Node part : parts) {
+                compileValue(part);
+            }
+            emit(Opcode.APPEND, parts.size());
+            emitJump(Opcode.JUMP, end);
+            valueDepth = depth;
+            placeLabel(fallback);
+            emit(Opcode.POP);
+            compileValue(node.getAssignment());
+            compileValue(node.getTarget());
+            emit(Opcode.ASSIGN);
+            placeLabel(end);
+            return;
+        }
+        if(isScalarVariable(node.getTarget()) && isArithmetic(node.getAssignment())) {
+            compileNumber(node.getAssignment());
+            compileValue(node.getTarget());
+            emit(Opcode.ASSIGN_NUMBER);
+            return;
+        }
+        compileValue(node.getAssignment());
+        compileValue(node.getTarget());
+        emit(Opcode.ASSIGN);
+    }
+
+    /**
+     * @param node : an expression
+     * @return true if node is a scalar variable whose slot can be read and written directly as a
+     * number, which rules out NF since reading it finishes splitting the record
+     */
+    private static boolean isScalarVariable(Node node) {
+        if(!(node instanceof VariableReferenceNode) || ((VariableReferenceNode) node).getIndexExpression().isPresent()) {
+            return false;
+        }
+        var reference = (VariableReferenceNode) node;
+        return reference.isLocal() || !reference.getVariableName().equals("NF");
+    }
+
+    private static boolean isArithmetic(Node node) {
+        if(!(node instanceof OperationNode)) {
+            return false;
+        }
+        switch(((OperationNode) node).getOperationType()) {
+            case UPLUS:
+            case UNEG:
+            case EXP:
+            case ADD:
+            case SUBTRACT:
+            case MULTIPLY:
+            case DIVIDE:
+            case MODULO:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * compiles a call. Calls to next and exit become instructions that end the current record or
+     * the program, and leave an empty value behind like any other call.
+     */
+    private void compileFunctionCall(FunctionCallNode node) {
+        if(node.getFunctionName().equals("next") && node.getParameters().isEmpty()) {
+            emit(Opcode.NEXT);
+            emit(Opcode.PUSH_STRING, addString(""));
+            return;
+        }
+        if(node.getFunctionName().equals("exit") && node.getParameters().size() <= 1) {
+            if(!node.getParameters().isEmpty()) {
+                compileValue(node.getParameters().getFirst());
+                emit(Opcode.POP);
+            }
+            emit(Opcode.EXIT);
+            emit(Opcode.PUSH_STRING, addString(""));
+            return;
+        }
+        var function = node.getFunction();
+        for(Node argument : node.getParameters()) {
+            compileValue(argument);
+        }
+        if(function instanceof BuiltInFunctionDefinitionNode) {
+            emit(Opcode.CALL_BUILTIN, addConstant(function), node.getParameters().size());
+        }
+        else {
+            emit(Opcode.CALL_FUNCTION, addConstant(functionCalls.get(function)), node.getParameters().size());
+        }
+    }
+
+    private void compileVariableReference(VariableReferenceNode node) {
+        if(node.getSlot() < 0) {
+            emitFailure("unresolved reference to " + node.getVariableName());
+        }
+        else if(node.getIndexExpression().isPresent()) {
+            compileValue(node.getIndexExpression().get());
+            emit(node.isLocal() ? Opcode.LOAD_LOCAL_ELEMENT : Opcode.LOAD_GLOBAL_ELEMENT, node.getSlot(), addString(node.getVariableName()));
+        }
+        else if(node.isLocal()) {
+            emit(Opcode.LOAD_LOCAL, node.getSlot());
+        }
+        else if(node.getSlot() == interpreter.getNumberOfFieldsSlot()) {
+            emit(Opcode.LOAD_NUMBER_OF_FIELDS, node.getSlot());
+        }
+        else {
+            emit(Opcode.LOAD_GLOBAL, node.getSlot());
+        }
+    }
+
+    private void compileOperation(OperationNode node) {
+        switch(node.getOperationType()) {
+            case EQUALTO:
+            case NOTEQUALTO:
+            case LESSTHAN:
+            case LESSOREQUAL:
+            case GREATERTHAN:
+            case GREATEROREQUAL:
+            case AND:
+            case OR:
+            case NOT:
+            case MATCH:
+            case NOTMATCH:
+            case IN:
+                compileCondition(node);
+                emit(Opcode.TO_BOOLEAN_VALUE);
+                break;
+            case FIELDREF:
+                if(node.getLeft() instanceof ConstantNode) {
+                    var index = new InterpreterDataType(node.getLeft().toString());
+                    if(index.isNumeric()) {
+                        emit(Opcode.LOAD_CONSTANT_FIELD, (int) index.getNumber());
+                        break;
+                    }
+                }
+                compileValue(node.getLeft());
+                emit(Opcode.LOAD_FIELD);
+                break;
+            case PREINCREMENT:
+            case POSTINCREMENT:
+            case PREDECREMENT:
+            case POSTDECREMENT:
+                compileIncrementAndDecrement(node);
+                break;
+            case UPLUS:
+            case UNEG:
+            case EXP:
+            case ADD:
+            case SUBTRACT:
+            case MULTIPLY:
+            case DIVIDE:
+            case MODULO:
+                compileNumber(node);
+                emit(Opcode.TO_VALUE);
+                break;
+            default:
+                compileValue(node.getLeft());
+                if(node.getRight().isEmpty()) {
+                    emit(Opcode.COPY);
+                    break;
+                }
+                compileValue(node.getRight().get());
+                emit(Opcode.CONCATENATE);
+                break;
+        }
+    }
+
+    private void compileIncrementAndDecrement(OperationNode node) {
+        compileValue(node.getLeft());
+        switch(node.getOperationType()) {
+            case PREDECREMENT:
+                emit(Opcode.PRE_DECREMENT);
+                break;
+            case PREINCREMENT:
+                emit(Opcode.PRE_INCREMENT);
+                break;
+            case POSTDECREMENT:
+                emit(Opcode.POST_DECREMENT);
+                break;
+            default:
+                emit(Opcode.POST_INCREMENT);
+                break;
+        }
+    }
+
+    /**
+     * compiles an expression that leaves its numeric value on the number stack
+     *
+     * @param node : the expression
+     */
+    private void compileNumber(Node node) {
+        if(node instanceof ConstantNode) {
+            var number = NumberScanner.parse(node.toString());
+            if(Double.isNaN(number)) {
+                emit(Opcode.PUSH_STRING, addString(node.toString()));
+                emit(Opcode.TO_NUMBER);
+            }
+            else {
+                emit(Opcode.PUSH_NUMBER, addNumber(number));
+            }
+            return;
+        }
+        if(types.isNumeric(node) && isScalarVariable(node)) {
+            var reference = (VariableReferenceNode) node;
+            emit(reference.isLocal() ? Opcode.LOAD_LOCAL_NUMBER : Opcode.LOAD_GLOBAL_NUMBER, reference.getSlot());
+            return;
+        }
+        if(!(node instanceof OperationNode)) {
+            compileValue(node);
+            emit(Opcode.TO_NUMBER);
+            return;
+        }
+        var operation = (OperationNode) node;
+        switch(operation.getOperationType()) {
+            case EQUALTO:
+            case NOTEQUALTO:
+            case LESSTHAN:
+            case LESSOREQUAL:
+            case GREATERTHAN:
+            case GREATEROREQUAL:
+            case AND:
+            case OR:
+            case NOT:
+            case MATCH:
+            case NOTMATCH:
+            case IN:
+                compileCondition(node);
+                return;
+            case UNEG:
+                compileNumber(operation.getLeft());
+                emit(Opcode.NEGATE);
+                return;
+            case UPLUS:
+                compileNumber(operation.getLeft());
+                return;
+            case EXP:
+            case ADD:
+            case SUBTRACT:
+            case MULTIPLY:
+            case DIVIDE:
+            case MODULO:
+                break;
+            default:
+                compileValue(node);
+                emit(Opcode.TO_NUMBER);
+                return;
+        }
+        compileNumber(operation.getLeft());
+        compileNumber(operation.getRight().get());
+        switch(operation.getOperationType()) {
+            case EXP:
+                emit(Opcode.POWER);
+                break;
+            case ADD:
+                emit(Opcode.ADD);
+                break;
+            case SUBTRACT:
+                emit(Opcode.SUBTRACT);
+                break;
+            case MULTIPLY:
+                emit(Opcode.MULTIPLY);
+                break;
+            case DIVIDE:
+                emit(Opcode.DIVIDE);
+                break;
+            default:
+                emit(Opcode.MODULO);
+                break;
+        }
+    }
+
+    /**
+     * compiles a condition into jumps, so that && and || only evaluate their right side when
+     * the left side does not already decide the result
+     *
+     * @param node : the condition
+     * @param jumpIf : the truth value for which control jumps to the label
+     * @param label : the target of the jump
+     */
+    private void compileBranch(Node node, boolean jumpIf, int label) {
+        if(node instanceof OperationNode) {
+            var operation = (OperationNode) node;
+            switch(operation.getOperationType()) {
+                case AND:
+                case OR: {
+                    var isAnd = operation.getOperationType() == OperationNode.OperationType.AND;
+                    if(isAnd != jumpIf) {
+                        //either side alone decides the result the jump is taken for
+                        compileBranch(operation.getLeft(), jumpIf, label);
+                        compileBranch(operation.getRight().get(), jumpIf, label);
+                    }
+                    else {
+                        var skip = newLabel();
+                        compileBranch(operation.getLeft(), !jumpIf, skip);
+                        compileBranch(operation.getRight().get(), jumpIf, label);
+                        placeLabel(skip);
+                    }
+                    return;
+                }
+                case NOT:
+                    compileBranch(operation.getLeft(), !jumpIf, label);
+                    return;
+                default:
+                    break;
+            }
+        }
+        compileCondition(node);
+        emitJump(jumpIf ? Opcode.JUMP_IF_TRUE : Opcode.JUMP_IF_FALSE, label);
+    }
+
+    /**
+     * compiles an expression that leaves its truth value on the number stack as 1 or 0
+     *
+     * @param node : the expression
+     */
+    private void compileCondition(Node node) {
+        if(!(node instanceof OperationNode)) {
+            compileValue(node);
+            emit(Opcode.TEST);
+            return;
+        }
+        var operation = (OperationNode) node;
+        switch(operation.getOperationType()) {
+            case EQUALTO:
+                compileComparison(operation, Opcode.EQUAL, Opcode.NUMBER_EQUAL);
+                break;
+            case NOTEQUALTO:
+                compileComparison(operation, Opcode.NOT_EQUAL, Opcode.NUMBER_NOT_EQUAL);
+                break;
+            case LESSTHAN:
+                compileComparison(operation, Opcode.LESS, Opcode.NUMBER_LESS);
+                break;
+            case LESSOREQUAL:
+                compileComparison(operation, Opcode.LESS_OR_EQUAL, Opcode.NUMBER_LESS_OR_EQUAL);
+                break;
+            case GREATERTHAN:
+                compileComparison(operation, Opcode.GREATER, Opcode.NUMBER_GREATER);
+                break;
+            case GREATEROREQUAL:
+                compileComparison(operation, Opcode.GREATER_OR_EQUAL, Opcode.NUMBER_GREATER_OR_EQUAL);
+                break;
+            case AND:
+            case OR: {
+                var isFalse = newLabel();
+                var end = newLabel();
+                compileBranch(operation, false, isFalse);
+                var depth = numberDepth;
+                emit(Opcode.PUSH_NUMBER, addNumber(1));
+                emitJump(Opcode.JUMP, end);
+                numberDepth = depth;
+                placeLabel(isFalse);
+                emit(Opcode.PUSH_NUMBER, addNumber(0));
+                placeLabel(end);
+                break;
+            }
+            case NOT:
+                compileCondition(operation.getLeft());
+                emit(Opcode.NOT);
+                break;
+            case MATCH:
+            case NOTMATCH:
+                compileMatch(operation);
+                break;
+            case IN:
+                compileValue(operation.getLeft());
+                compileValue(operation.getRight().get());
+                emit(Opcode.IN, addString(operation.getRight().get().toString()));
+                break;
+            default:
+                compileValue(node);
+                emit(Opcode.TEST);
+                break;
+        }
+    }
+
+    /**
+     * compiles a comparison, which compares primitive numbers when both sides certainly are numbers
+     *
+     * @param node : the comparison
+     * @param opcode : the instruction that compares two values
+     * @param numberOpcode : the instruction that compares two numbers
+     */
+    private void compileComparison(OperationNode node, int opcode, int numberOpcode) {
+        if(types.isNumeric(node.getLeft()) && types.isNumeric(node.getRight().get())) {
+            compileNumber(node.getLeft());
+            compileNumber(node.getRight().get());
+            emit(numberOpcode);
+            return;
+        }
+        compileValue(node.getLeft());
+        compileValue(node.getRight().get());
+        emit(opcode);
+    }
+
+    private void compileMatch(OperationNode node) {
+        if(!(node.getRight().get() instanceof PatternNode)) {
+            emitFailure("pattern expected but instead found: " + node.getRight().get());
+            emit(Opcode.TEST);
+            return;
+        }
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(((PatternNode) node.getRight().get()).getRegexPattern());
+        }
+        catch(PatternSyntaxException e) {
+            emitFailure(e.getMessage());
+            emit(Opcode.TEST);
+            return;
+        }
+        compileValue(node.getLeft());
+        emit(node.getOperationType() == OperationNode.OperationType.MATCH ? Opcode.MATCH : Opcode.NOT_MATCH, addConstant(pattern));
+    }
+
+    private static boolean isIncrementOrDecrement(OperationNode node) {
+        switch(node.getOperationType()) {
+            case PREINCREMENT:
+            case POSTINCREMENT:
+            case PREDECREMENT:
+            case POSTDECREMENT:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package interpreter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * This class writes a minimal JVM class file with a constant pool, fields, and methods. Classes are
+ * written in the version 49 format, which the JVM verifies by inferring types, so methods do not
+ * need stack map frames.
+ *
+ * @author Jake Camadine
+ */
+public class ClassFileWriter {
+    public static final int ACC_PUBLIC = 0x0001;
+    public static final int ACC_PRIVATE = 0x0002;
+    public static final int ACC_FINAL = 0x0010;
+    public static final int ACC_SUPER = 0x0020;
+
+    private static final int VERSION = 49;
+    private static final int MAX_POOL_SIZE = 65535;
+
+    /**
+     * This class assembles the instructions of a method
+     */
+    public static class Code {
+        private byte[] bytes = new byte[256];
+        private int length;
+
+        public void u1(int value) {
+            if(length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        public void u2(int value) {
+            u1(value >> 8);
+            u1(value);
+        }
+
+        /**
+         * overwrites two bytes that were already written, such as the offset of a branch
+         *
+         * @param position : the position of the first byte
+         * @param value : the new value
+         */
+        public void patch(int position, int value) {
+            bytes[position] = (byte) (value >> 8);
+            bytes[position + 1] = (byte) value;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+
+    private ByteArrayOutputStream poolBytes;
+    private DataOutputStream pool;
+    private int poolSize;
+    private HashMap<String, Integer> poolIndexes;
+
+    private int thisClass;
+    private int superClass;
+    private int[] interfaces;
+    private ArrayList<byte[]> fields;
+    private ArrayList<byte[]> methods;
+
+    /**
+     * @param name : the internal name of the class, such as interpreter/Example
+     * @param superName : the internal name of the superclass
+     * @param interfaceNames : the internal names of the implemented interfaces
+     */
+    public ClassFileWriter(String name, String superName, String... interfaceNames) {
+        poolBytes = new ByteArrayOutputStream();
+        pool = new DataOutputStream(poolBytes);
+        poolSize = 1;
+        poolIndexes = new HashMap<>();
+        fields = new ArrayList<>();
+        methods = new ArrayList<>();
+        thisClass = classReference(name);
+        superClass = classReference(superName);
+        interfaces = new int[interfaceNames.length];
+        for(int i = 0; i < interfaceNames.length; i++) {
+            interfaces[i] = classReference(interfaceNames[i]);
+        }
+    }
+
+    /**
+     * adds an entry to the constant pool unless an equal entry is already there
+     *
+     * @param key : a description of the entry that is unique to its contents
+     * @param tag : the kind of entry
+     * @param size : the number of pool slots the entry takes
+     * @param contents : writes the entry's contents after its tag
+     * @return the index of the entry
+     */
+    private int poolEntry(String key, int tag, int size, PoolContents contents) {
+        var index = poolIndexes.get(key);
+        if(index != null) {
+            return index;
+        }
+        if(poolSize + size > MAX_POOL_SIZE) {
+            throw new UnsupportedOperationException("too many constants for a class file");
+        }
+        try {
+            pool.writeByte(tag);
+            contents.write(pool);
+        }
+        catch(IOException e) {
+            throw new RuntimeException(e);
+        }
+        index = poolSize;
+        poolSize += size;
+        poolIndexes.put(key, index);
+        return index;
+    }
+
+    private interface PoolContents {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    public int utf8(String value) {
+        return poolEntry("U" + value, 1, 1, (out) -> out.writeUTF(value));
+    }
+
+    public int integer(int value) {
+        return poolEntry("I" + value, 3, 1, (out) -> out.writeInt(value));
+    }
+
+    public int doubleConstant(double value) {
+        return poolEntry("D" + Double.doubleToRawLongBits(value), 6, 2, (out) -> out.writeDouble(value));
+    }
+
+    public int classReference(String name) {
+        var nameIndex = utf8(name);
+        return poolEntry("C" + name, 7, 1, (out) -> out.writeShort(nameIndex));
+    }
+
+    public int string(String value) {
+        var valueIndex = utf8(value);
+        return poolEntry("S" + value, 8, 1, (out) -> out.writeShort(valueIndex));
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        var nameIndex = utf8(name);
+        var descriptorIndex = utf8(descriptor);
+        return poolEntry("N" + name + ":" + descriptor, 12, 1, (out) -> {
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+        });
+    }
+
+    private int memberReference(int tag, String owner, String name, String descriptor) {
+        var ownerIndex = classReference(owner);
+        var nameAndTypeIndex = nameAndType(name, descriptor);
+        return poolEntry(tag + owner + "." + name + ":" + descriptor, tag, 1, (out) -> {
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndTypeIndex);
+        });
+    }
+
+    public int fieldReference(String owner, String name, String descriptor) {
+        return memberReference(9, owner, name, descriptor);
+    }
+
+    public int methodReference(String owner, String name, String descriptor) {
+        return memberReference(10, owner, name, descriptor);
+    }
+
+    public int interfaceMethodReference(String owner, String name, String descriptor) {
+        return memberReference(11, owner, name, descriptor);
+    }
+
+    /**
+     * @param access : the field's access flags
+     * @param name : the field's name
+     * @param descriptor : the field's type descriptor
+     */
+    public void addField(int access, String name, String descriptor) {
+        var out = new ByteArrayOutputStream();
+        var data = new DataOutputStream(out);
+        try {
+            data.writeShort(access);
+            data.writeShort(utf8(name));
+            data.writeShort(utf8(descriptor));
+            data.writeShort(0);
+        }
+        catch(IOException e) {
+            throw new RuntimeException(e);
+        }
+        fields.add(out.toByteArray());
+    }
+
+    /**
+     * @param access : the method's access flags
+     * @param name : the method's name
+     * @param descriptor : the method's type descriptor
+     * @param maxStack : the most stack slots the method's code uses at once
+     * @param maxLocals : the number of local variable slots, including the parameters
+     * @param code : the method's instructions
+     */
+    public void addMethod(int access, String name, String descriptor, int maxStack, int maxLocals, Code code) {
+        var out = new ByteArrayOutputStream();
+        var data = new DataOutputStream(out);
+        try {
+            data.writeShort(access);
+            data.writeShort(utf8(name));
+            data.writeShort(utf8(descriptor));
+            data.writeShort(1);
+            data.writeShort(utf8("Code"));
+            data.writeInt(12 + code.length());
+            data.writeShort(maxStack);
+            data.writeShort(maxLocals);
+            data.writeInt(code.length());
+            data.write(code.toByteArray());
+            data.writeShort(0);
+            data.writeShort(0);
+        }
+        catch(IOException e) {
+            throw new RuntimeException(e);
+        }
+        methods.add(out.toByteArray());
+    }
+
+    /**
+     * @return the bytes of the class file
+     */
+    public byte[] toByteArray() {
+        var out = new ByteArrayOutputStream();
+        var data = new DataOutputStream(out);
+        try {
+            data.writeInt(0xCAFEBABE);
+            data.writeShort(0);
+            data.writeShort(VERSION);
+            data.writeShort(poolSize);
+            data.write(poolBytes.toByteArray());
+            data.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            data.writeShort(thisClass);
+            data.writeShort(superClass);
+            data.writeShort(interfaces.length);
+            for(int index : interfaces) {
+                data.writeShort(index);
+            }
+            data.writeShort(fields.size());
+            for(byte[] field : fields) {
+                data.write(field);
+            }
+            data.writeShort(methods.size());
+            for(byte[] method : methods) {
+                data.write(method);
+            }
+            data.writeShort(0);
+        }
+        catch(IOException e) {
+            throw new RuntimeException(e);
+        }
+        return out.toByteArray();
+    }
+}
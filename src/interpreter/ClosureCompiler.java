@@ -0,0 +1,953 @@
+package interpreter;
+
+import parser.*;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * This class compiles the symbol tree of an AWK program into executors. Each executor is bound
+ * to its operands, operator, and resolved slots when it is compiled, so running it needs none of
+ * the type checks and lookups that walking the tree repeats for every statement.
+ *
+ * @author Jake Camadine
+ */
+public class ClosureCompiler {
+    /**
+     * evaluates an expression to a value
+     */
+    public interface ValueExecutor {
+        InterpreterDataType execute(InterpreterDataType[] frame);
+    }
+
+    /**
+     * evaluates an arithmetic expression to a primitive
+     */
+    public interface NumberExecutor {
+        double execute(InterpreterDataType[] frame);
+    }
+
+    /**
+     * evaluates an expression to a truth value
+     */
+    public interface ConditionExecutor {
+        boolean execute(InterpreterDataType[] frame);
+    }
+
+    /**
+     * runs a statement and reports how control leaves it
+     */
+    public interface StatementExecutor {
+        ReturnType execute(InterpreterDataType[] frame);
+    }
+
+    /**
+     * This class holds the compiled body of a user function. Calls are bound to the holder
+     * before the body is compiled, which lets functions call themselves and each other. The
+     * body is compiled when the function is first called, so functions that never run are
+     * never compiled.
+     */
+    private static class CompiledFunction {
+        private FunctionDefinitionNode function;
+        private StatementExecutor[] body;
+
+        private CompiledFunction(FunctionDefinitionNode function) {
+            this.function = function;
+        }
+    }
+
+    private Interpreter interpreter;
+    private NumericTypeInference types;
+    private InterpreterDataType[] globalVariables;
+    private IdentityHashMap<FunctionDefinitionNode, CompiledFunction> compiledFunctions;
+
+    /**
+     * @param interpreter : the interpreter whose globals, fields, and functions the executors use
+     * @param program : the program being compiled, with its variables already resolved
+     */
+    public ClosureCompiler(Interpreter interpreter, ProgramNode program) {
+        this.interpreter = interpreter;
+        types = new NumericTypeInference(program);
+        globalVariables = interpreter.getGlobalVariables();
+        compiledFunctions = new IdentityHashMap<>();
+        for(FunctionDefinitionNode function : program.getFunctionNodes()) {
+            compiledFunctions.put(function, new CompiledFunction(function));
+        }
+    }
+
+    /**
+     * compiles BEGIN, END, or general blocks. The statements of a block run whether or not
+     * one of them breaks out of it, as in the tree-walking interpreter, but next and exit end the block.
+     *
+     * @param blocks : the blocks to compile
+     * @return an executor for each block, in order, which returns ReturnType.NEXT or
+     * ReturnType.EXIT if the block ran one of them
+     */
+    public StatementExecutor[] compileBlocks(List<BlockNode> blocks) {
+        var executors = new StatementExecutor[blocks.size()];
+        var i = 0;
+        for(BlockNode block : blocks) {
+            executors[i++] = compileBlock(block);
+        }
+        return executors;
+    }
+
+    /**
+     * compiles a single block, with its condition
+     *
+     * @param block : a BEGIN, END, or general block
+     * @return an executor that returns ReturnType.NEXT or ReturnType.EXIT if the block ran one of them
+     */
+    public StatementExecutor compileBlock(BlockNode block) {
+        var condition = block.getCondition().isPresent() ? compileCondition(block.getCondition().get()) : null;
+        var statements = compileStatements(block.getStatements());
+        return (frame) -> {
+            try {
+                if(condition == null || condition.execute(frame)) {
+                    for(StatementExecutor statement : statements) {
+                        var retVal = statement.execute(frame);
+                        if(retVal.isNextOrExit()) {
+                            return retVal;
+                        }
+                    }
+                }
+            }
+            catch(FlowControlException e) {
+                return e.getFlowControl();
+            }
+            return ReturnType.NONE;
+        };
+    }
+
+    /**
+     * compiles the body of a user function, for a caller that binds the arguments itself
+     *
+     * @param function : a user function of the program
+     * @return an executor that runs the body in a frame holding the arguments, and returns
+     * the ReturnType of the statement that left it
+     */
+    public StatementExecutor compileFunction(FunctionDefinitionNode function) {
+        var body = getBody(compiledFunctions.get(function));
+        return (frame) -> executeStatements(body, frame);
+    }
+
+    /**
+     * @param compiledFunction : the holder of a user function
+     * @return the function's compiled body, which is compiled on the first request
+     */
+    private StatementExecutor[] getBody(CompiledFunction compiledFunction) {
+        if(compiledFunction.body == null) {
+            compiledFunction.body = compileStatements(compiledFunction.function.getStatements());
+        }
+        return compiledFunction.body;
+    }
+
+    /**
+     * runs a list of statements until one of them changes the flow of control
+     *
+     * @param statements : the compiled statements
+     * @param frame : the frame of the enclosing function, if there is one
+     * @return the ReturnType of the statement that changed the flow of control, or NONE
+     */
+    private static ReturnType executeStatements(StatementExecutor[] statements, InterpreterDataType[] frame) {
+        for(StatementExecutor statement : statements) {
+            var retVal = statement.execute(frame);
+            if(retVal.getFlowControlType() != ReturnType.FlowControlStatement.NONE) {
+                return retVal;
+            }
+        }
+        return ReturnType.NONE;
+    }
+
+    private StatementExecutor[] compileStatements(LinkedList<StatementNode> statements) {
+        var executors = new StatementExecutor[statements.size()];
+        var i = 0;
+        for(StatementNode statement : statements) {
+            executors[i++] = compileStatement(statement);
+        }
+        return executors;
+    }
+
+    /**
+     * @param message : the message of the error
+     * @return an executor that reports the error when it runs, so that errors in code that never
+     * runs stay silent, as they are in the tree-walking interpreter
+     */
+    private static ValueExecutor failure(String message) {
+        return (frame) -> {
+            throw new RuntimeException(message);
+        };
+    }
+
+    private StatementExecutor compileStatement(StatementNode statement) {
+        if(statement instanceof BreakNode) {
+            return (frame) -> ReturnType.BREAK;
+        }
+        if(statement instanceof ContinueNode) {
+            return (frame) -> ReturnType.CONTINUE;
+        }
+        if(statement instanceof DeleteNode) {
+            return compileDelete((DeleteNode) statement);
+        }
+        if(statement instanceof DoWhileNode) {
+            var body = compileStatements(((DoWhileNode) statement).getLoopBlock().getStatements());
+            var condition = compileCondition(((DoWhileNode) statement).getCondition());
+            return (frame) -> {
+                do {
+                    var retVal = executeStatements(body, frame);
+                    if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.BREAK) {
+                        break;
+                    }
+                    else if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.RETURN || retVal.isNextOrExit()) {
+                        return retVal;
+                    }
+                } while(condition.execute(frame));
+                return ReturnType.NONE;
+            };
+        }
+        if(statement instanceof ForNode) {
+            return compileForLoop((ForNode) statement);
+        }
+        if(statement instanceof ForInNode) {
+            return compileForInLoop((ForInNode) statement);
+        }
+        if(statement instanceof IfNode) {
+            return compileIfStatements((IfNode) statement);
+        }
+        if(statement instanceof ReturnNode) {
+            if(((ReturnNode) statement).getParameter().isEmpty()) {
+                return (frame) -> ReturnType.RETURN;
+            }
+            var value = compileValue(((ReturnNode) statement).getParameter().get());
+            return (frame) -> new ReturnType(ReturnType.FlowControlStatement.RETURN, value.execute(frame));
+        }
+        if(statement instanceof WhileNode) {
+            var condition = compileCondition(((WhileNode) statement).getCondition());
+            var body = compileStatements(((WhileNode) statement).getLoopBlock().getStatements());
+            return (frame) -> {
+                while(condition.execute(frame)) {
+                    var retVal = executeStatements(body, frame);
+                    if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.BREAK) {
+                        break;
+                    }
+                    else if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.RETURN || retVal.isNextOrExit()) {
+                        return retVal;
+                    }
+                }
+                return ReturnType.NONE;
+            };
+        }
+        if(statement instanceof FunctionCallNode && interpreter.isNextOrExit((FunctionCallNode) statement)) {
+            if(((FunctionCallNode) statement).getFunctionName().equals("next")) {
+                return (frame) -> ReturnType.NEXT;
+            }
+            if(((FunctionCallNode) statement).getParameters().isEmpty()) {
+                return (frame) -> ReturnType.EXIT;
+            }
+            var status = compileValue(((FunctionCallNode) statement).getParameters().getFirst());
+            return (frame) -> {
+                status.execute(frame);
+                return ReturnType.EXIT;
+            };
+        }
+        if(!(statement instanceof AssignmentNode) && !(statement instanceof FunctionCallNode)) {
+            return (frame) -> {
+                throw new RuntimeException();
+            };
+        }
+        var expression = compileValue(toPreIncrement(statement));
+        return (frame) -> {
+            expression.execute(frame);
+            return ReturnType.NONE;
+        };
+    }
+
+    /**
+     * @param statement : an expression whose value is discarded
+     * @return the expression with a post-increment or post-decrement replaced by the pre form,
+     * which does not copy the old value
+     */
+    private static Node toPreIncrement(Node statement) {
+        if(!(statement instanceof AssignmentNode) || !(((AssignmentNode) statement).getAssignment() instanceof OperationNode)) {
+            return statement;
+        }
+        var operation = (OperationNode) ((AssignmentNode) statement).getAssignment();
+        switch(operation.getOperationType()) {
+            case POSTINCREMENT:
+                return new OperationNode(operation.getLeft(), OperationNode.OperationType.PREINCREMENT);
+            case POSTDECREMENT:
+                return new OperationNode(operation.getLeft(), OperationNode.OperationType.PREDECREMENT);
+            default:
+                return statement;
+        }
+    }
+
+    private StatementExecutor compileForLoop(ForNode statement) {
+        StatementExecutor initializer = null;
+        if(statement.getInitializer().isPresent()) {
+            if(!(statement.getInitializer().get() instanceof StatementNode)) {
+                var error = failure("invalid statement");
+                return (frame) -> {
+                    error.execute(frame);
+                    return ReturnType.NONE;
+                };
+            }
+            initializer = compileStatement((StatementNode) statement.getInitializer().get());
+        }
+        var start = initializer;
+        var condition = statement.getConditional().isPresent() ? compileCondition(statement.getConditional().get()) : null;
+        var postIteration = statement.getPostIterationOperation().isPresent() ? compileValue(toPreIncrement(statement.getPostIterationOperation().get())) : null;
+        var body = compileStatements(statement.getLoopBlock().getStatements());
+        return (frame) -> {
+            if(start != null) {
+                start.execute(frame);
+            }
+            while(condition == null || condition.execute(frame)) {
+                var retVal = executeStatements(body, frame);
+                if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.BREAK) {
+                    break;
+                }
+                else if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.RETURN || retVal.isNextOrExit()) {
+                    return retVal;
+                }
+                if(postIteration != null) {
+                    postIteration.execute(frame);
+                }
+            }
+            return ReturnType.NONE;
+        };
+    }
+
+    private StatementExecutor compileForInLoop(ForInNode statement) {
+        var array = compileValue(statement.getInStatement().getRight().get());
+        var variable = compileValue(statement.getInStatement().getLeft());
+        var body = compileStatements(statement.getLoopBlock().getStatements());
+        return (frame) -> {
+            var reference = array.execute(frame);
+            if(!(reference instanceof InterpreterArrayDataType)) {
+                throw new RuntimeException("attempt to use scalar reference as array");
+            }
+            var loopVariable = variable.execute(frame);
+            if(loopVariable instanceof InterpreterArrayDataType) {
+                throw new RuntimeException("attempt to use array as the variable of a for-in loop");
+            }
+            //the keys are copied first, so the body may delete or add elements
+            for(String key : ((InterpreterArrayDataType) reference).getArrayData().keySet().toArray(new String[0])) {
+                loopVariable.setData(key);
+                var retVal = executeStatements(body, frame);
+                if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.BREAK) {
+                    break;
+                }
+                else if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.RETURN || retVal.isNextOrExit()) {
+                    return retVal;
+                }
+            }
+            return ReturnType.NONE;
+        };
+    }
+
+    /**
+     * flattens a chain of if, else if, and else statements into parallel arrays,
+     * where an else has no condition
+     */
+    private StatementExecutor compileIfStatements(IfNode statement) {
+        var conditions = new ArrayList<ConditionExecutor>();
+        var blocks = new ArrayList<StatementExecutor[]>();
+        while(true) {
+            conditions.add(statement.getCondition().isPresent() ? compileCondition(statement.getCondition().get()) : null);
+            blocks.add(compileStatements(statement.getBlockStatements().getStatements()));
+            if(!statement.hasNext()) {
+                break;
+            }
+            statement = (IfNode) statement.getNext().get();
+        }
+        var conditionArray = conditions.toArray(new ConditionExecutor[0]);
+        var blockArray = blocks.toArray(new StatementExecutor[0][]);
+        return (frame) -> {
+            for(int i = 0; i < conditionArray.length; i++) {
+                if(conditionArray[i] == null || conditionArray[i].execute(frame)) {
+                    return executeStatements(blockArray[i], frame);
+                }
+            }
+            return ReturnType.NONE;
+        };
+    }
+
+    private StatementExecutor compileDelete(DeleteNode statement) {
+        if(!(statement.getReference() instanceof VariableReferenceNode)) {
+            var error = failure("reference expected but instead found: " + statement.getReference().toString());
+            return (frame) -> {
+                error.execute(frame);
+                return ReturnType.NONE;
+            };
+        }
+        var reference = (VariableReferenceNode) statement.getReference();
+        var slot = reference.getSlot();
+        var isLocal = reference.isLocal();
+        var index = reference.getIndexExpression().isPresent() ? compileValue(reference.getIndexExpression().get()) : null;
+        return (frame) -> {
+            var variables = isLocal ? frame : globalVariables;
+            if(variables[slot] == null) {
+                return ReturnType.NONE;
+            }
+            if(!(variables[slot] instanceof InterpreterArrayDataType)) {
+                throw new RuntimeException("attempt to use scalar reference as an array");
+            }
+            if(index != null) {
+                ((InterpreterArrayDataType) variables[slot]).getArrayData().remove(index.execute(frame).getData());
+            }
+            else {
+                variables[slot] = null;
+            }
+            return ReturnType.NONE;
+        };
+    }
+
+    /**
+     * compiles an expression that produces a value
+     *
+     * @param node : the expression
+     * @return an executor for the expression
+     */
+    private ValueExecutor compileValue(Node node) {
+        if(node instanceof AssignmentNode) {
+            return compileAssignment((AssignmentNode) node);
+        }
+        if(node instanceof LiteralNode) {
+            var value = ((LiteralNode) node).getValue();
+            return (frame) -> value;
+        }
+        if(node instanceof ConstantNode) {
+            var value = new LiteralNode((ConstantNode) node).getValue();
+            return (frame) -> value;
+        }
+        if(node instanceof FunctionCallNode) {
+            return compileFunctionCall((FunctionCallNode) node);
+        }
+        if(node instanceof PatternNode) {
+            return failure("illegal pattern placement");
+        }
+        if(node instanceof TernaryNode) {
+            var condition = compileCondition(((TernaryNode) node).getBooleanExpression());
+            var trueCase = compileValue(((TernaryNode) node).getTrueCase());
+            var falseCase = compileValue(((TernaryNode) node).getFalseCase());
+            return (frame) -> condition.execute(frame) ? trueCase.execute(frame) : falseCase.execute(frame);
+        }
+        if(node instanceof VariableReferenceNode) {
+            return compileVariableReference((VariableReferenceNode) node);
+        }
+        return compileOperation((OperationNode) node);
+    }
+
+    /**
+     * compiles an expression whose value may be modified, such as the operand of an increment.
+     * Constants and the results of conditions share one immutable value between evaluations,
+     * so they are given a copy.
+     *
+     * @param node : the expression
+     * @return an executor for the expression
+     */
+    private ValueExecutor compileTarget(Node node) {
+        var value = compileValue(node);
+        if(node instanceof VariableReferenceNode || node instanceof OperationNode && ((OperationNode) node).getOperationType() == OperationNode.OperationType.FIELDREF) {
+            return value;
+        }
+        return (frame) -> {
+            var result = value.execute(frame);
+            return result instanceof ImmutableInterpreterDataType ? new InterpreterDataType(result) : result;
+        };
+    }
+
+    private ValueExecutor compileAssignment(AssignmentNode node) {
+        if(!(node.getTarget() instanceof VariableReferenceNode) && !(node.getTarget() instanceof OperationNode)) {
+            return failure("invalid assignment target");
+        }
+        if(node.getTarget() instanceof OperationNode && ((OperationNode) node.getTarget()).getOperationType() != OperationNode.OperationType.FIELDREF) {
+            return failure("invalid assignment target");
+        }
+        if(node.getAssignment() instanceof OperationNode && isIncrementOrDecrement((OperationNode) node.getAssignment())) {
+            return compileIncrementAndDecrement((OperationNode) node.getAssignment());
+        }
+        var target = compileTarget(node.getTarget());
+        if(isScalarVariable(node.getTarget()) && node.getAssignment() instanceof OperationNode
+                && (isMathOperation((OperationNode) node.getAssignment()) || isUnaryMathOperation((OperationNode) node.getAssignment()))) {
+            var number = compileNumber(node.getAssignment());
+            return (frame) -> {
+                var right = number.execute(frame);
+                var left = target.execute(frame);
+                left.setNumber(right);
+                return left;
+            };
+        }
+        var assignment = compileValue(node.getAssignment());
+        if(interpreter.isAppendToTarget(node)) {
+            var appended = new LinkedList<ValueExecutor>();
+            var concatenation = (OperationNode) node.getAssignment();
+            while(concatenation.getLeft() instanceof OperationNode) {
+                appended.addFirst(compileValue(concatenation.getRight().get()));
+                concatenation = (OperationNode) concatenation.getLeft();
+            }
+            appended.addFirst(compileValue(concatenation.getRight().get()));
+            var parts = appended.toArray(new ValueExecutor[0]);
+            return (frame) -> {
+                var left = target.execute(frame);
+                if(left instanceof InterpreterArrayDataType) {
+                    var right = assignment.execute(frame);
+                    left = target.execute(frame);
+                    left.assign(right);
+                    return left;
+                }
+                if(parts.length == 1) {
+                    left.append(parts[0].execute(frame).getData());
+                    return left;
+                }
+                //every part is read before the target changes, since a part may read the target
+                var text = new StringBuilder();
+                for(ValueExecutor part : parts) {
+                    text.append(part.execute(frame).getData());
+                }
+                left.append(text.toString());
+                return left;
+            };
+        }
+        return (frame) -> {
+            var right = assignment.execute(frame);
+            var left = target.execute(frame);
+            left.assign(right);
+            return left;
+        };
+    }
+
+    private ValueExecutor compileFunctionCall(FunctionCallNode node) {
+        var function = node.getFunction();
+        var arguments = new ValueExecutor[node.getParameters().size()];
+        for(int i = 0; i < arguments.length; i++) {
+            arguments[i] = compileValue(node.getParameters().get(i));
+        }
+        if(function instanceof BuiltInFunctionDefinitionNode) {
+            var builtIn = (BuiltInFunctionDefinitionNode) function;
+            return (frame) -> {
+                var values = new InterpreterDataType[arguments.length];
+                for(int i = 0; i < values.length; i++) {
+                    values[i] = arguments[i].execute(frame);
+                }
+                return interpreter.callBuiltIn(builtIn, values);
+            };
+        }
+        var compiledFunction = compiledFunctions.get(function);
+        var framePool = interpreter.getFramePool(function);
+        return (frame) -> {
+            var callee = framePool.acquire();
+            try {
+                for(int i = 0; i < arguments.length; i++) {
+                    var argument = arguments[i].execute(frame);
+                    if(!(argument instanceof InterpreterArrayDataType)) {
+                        var scalarArgument = new InterpreterDataType();
+                        scalarArgument.assign(argument);
+                        argument = scalarArgument;
+                    }
+                    callee[i] = argument;
+                }
+                var retVal = executeStatements(getBody(compiledFunction), callee);
+                if(retVal.isNextOrExit()) {
+                    throw FlowControlException.of(retVal);
+                }
+                return new InterpreterDataType(retVal.getReturnValue());
+            }
+            finally {
+                framePool.release(callee);
+            }
+        };
+    }
+
+    /**
+     * binds a reference to its slot. Undefined variables are created on first use, as a scalar
+     * or, when the reference is indexed, as an array.
+     */
+    private ValueExecutor compileVariableReference(VariableReferenceNode node) {
+        var slot = node.getSlot();
+        var name = node.getVariableName();
+        if(slot < 0) {
+            return failure("unresolved reference to " + name);
+        }
+        if(node.getIndexExpression().isPresent()) {
+            var index = compileValue(node.getIndexExpression().get());
+            if(node.isLocal()) {
+                return (frame) -> {
+                    var key = index.execute(frame).getData();
+                    if(frame[slot] == null) {
+                        frame[slot] = new InterpreterArrayDataType();
+                    }
+                    return interpreter.getArrayElement(frame[slot], key, name);
+                };
+            }
+            return (frame) -> {
+                var key = index.execute(frame).getData();
+                if(globalVariables[slot] == null) {
+                    globalVariables[slot] = new InterpreterArrayDataType();
+                }
+                return interpreter.getArrayElement(globalVariables[slot], key, name);
+            };
+        }
+        if(node.isLocal()) {
+            return (frame) -> {
+                if(frame[slot] == null) {
+                    frame[slot] = new InterpreterDataType();
+                }
+                return frame[slot];
+            };
+        }
+        if(slot == interpreter.getNumberOfFieldsSlot()) {
+            return (frame) -> {
+                interpreter.finishFields();
+                return globalVariables[slot];
+            };
+        }
+        return (frame) -> {
+            if(globalVariables[slot] == null) {
+                globalVariables[slot] = new InterpreterDataType();
+            }
+            return globalVariables[slot];
+        };
+    }
+
+    private ValueExecutor compileOperation(OperationNode node) {
+        switch(node.getOperationType()) {
+            case EQUALTO:
+            case NOTEQUALTO:
+            case LESSTHAN:
+            case LESSOREQUAL:
+            case GREATERTHAN:
+            case GREATEROREQUAL:
+            case AND:
+            case OR:
+            case NOT:
+            case MATCH:
+            case NOTMATCH:
+            case IN: {
+                var condition = compileCondition(node);
+                return (frame) -> ImmutableInterpreterDataType.valueOf(condition.execute(frame));
+            }
+            case FIELDREF:
+                return compileFieldReference(node);
+            case PREINCREMENT:
+            case POSTINCREMENT:
+            case PREDECREMENT:
+            case POSTDECREMENT:
+                return compileIncrementAndDecrement(node);
+            case UPLUS:
+            case UNEG:
+            case EXP:
+            case ADD:
+            case SUBTRACT:
+            case MULTIPLY:
+            case DIVIDE:
+            case MODULO: {
+                var number = compileNumber(node);
+                return (frame) -> new InterpreterDataType(number.execute(frame));
+            }
+            default: {
+                var left = compileValue(node.getLeft());
+                if(node.getRight().isEmpty()) {
+                    return (frame) -> new InterpreterDataType(left.execute(frame).getData());
+                }
+                var right = compileValue(node.getRight().get());
+                return (frame) -> new InterpreterDataType(left.execute(frame).getData() + right.execute(frame).getData());
+            }
+        }
+    }
+
+    private ValueExecutor compileFieldReference(OperationNode node) {
+        if(node.getLeft() instanceof ConstantNode) {
+            var index = new InterpreterDataType(node.getLeft().toString());
+            if(index.isNumeric()) {
+                var fieldNumber = (int) index.getNumber();
+                return (frame) -> interpreter.getField(fieldNumber);
+            }
+        }
+        var left = compileValue(node.getLeft());
+        return (frame) -> {
+            var index = left.execute(frame);
+            if(!index.isNumeric()) {
+                throw new RuntimeException("invalid field reference: $" + index.getData());
+            }
+            return interpreter.getField((int) index.getNumber());
+        };
+    }
+
+    private ValueExecutor compileIncrementAndDecrement(OperationNode node) {
+        var target = compileTarget(node.getLeft());
+        switch(node.getOperationType()) {
+            case PREDECREMENT:
+                return (frame) -> {
+                    var left = target.execute(frame);
+                    left.setNumber(interpreter.toNumber(left) - 1);
+                    return left;
+                };
+            case PREINCREMENT:
+                return (frame) -> {
+                    var left = target.execute(frame);
+                    left.setNumber(interpreter.toNumber(left) + 1);
+                    return left;
+                };
+            case POSTDECREMENT:
+                return (frame) -> {
+                    var left = target.execute(frame);
+                    var previous = interpreter.toNumber(left);
+                    left.setNumber(previous - 1);
+                    return new InterpreterDataType(previous);
+                };
+            default:
+                return (frame) -> {
+                    var left = target.execute(frame);
+                    var previous = interpreter.toNumber(left);
+                    left.setNumber(previous + 1);
+                    return new InterpreterDataType(previous);
+                };
+        }
+    }
+
+    /**
+     * compiles an expression that is used as a number. Arithmetic subtrees stay on primitives.
+     *
+     * @param node : the expression
+     * @return an executor for the numeric value of the expression
+     */
+    private NumberExecutor compileNumber(Node node) {
+        if(node instanceof ConstantNode) {
+            var constant = node.toString();
+            var number = NumberScanner.parse(constant);
+            if(Double.isNaN(number)) {
+                return (frame) -> interpreter.toNumber(constant);
+            }
+            return (frame) -> number;
+        }
+        if(types.isNumeric(node) && isScalarVariable(node)) {
+            var slot = ((VariableReferenceNode) node).getSlot();
+            if(((VariableReferenceNode) node).isLocal()) {
+                return (frame) -> frame[slot].getNumber();
+            }
+            return (frame) -> globalVariables[slot].getNumber();
+        }
+        if(!(node instanceof OperationNode)) {
+            var value = compileValue(node);
+            return (frame) -> interpreter.toNumber(value.execute(frame));
+        }
+        var operation = (OperationNode) node;
+        if(operation.getOperationType() == OperationNode.OperationType.UNEG) {
+            var operand = compileNumber(operation.getLeft());
+            return (frame) -> -operand.execute(frame);
+        }
+        if(operation.getOperationType() == OperationNode.OperationType.UPLUS) {
+            return compileNumber(operation.getLeft());
+        }
+        if(!isMathOperation(operation)) {
+            var value = compileValue(node);
+            return (frame) -> interpreter.toNumber(value.execute(frame));
+        }
+        var left = compileNumber(operation.getLeft());
+        var right = compileNumber(operation.getRight().get());
+        switch(operation.getOperationType()) {
+            case EXP:
+                return (frame) -> Math.pow(left.execute(frame), right.execute(frame));
+            case ADD:
+                return (frame) -> left.execute(frame) + right.execute(frame);
+            case SUBTRACT:
+                return (frame) -> left.execute(frame) - right.execute(frame);
+            case MULTIPLY:
+                return (frame) -> left.execute(frame) * right.execute(frame);
+            case DIVIDE:
+                return (frame) -> {
+                    var dividend = left.execute(frame);
+                    var divisor = right.execute(frame);
+                    if(divisor == 0) {
+                        throw new ArithmeticException("division by zero");
+                    }
+                    return dividend / divisor;
+                };
+            default:
+                return (frame) -> {
+                    var dividend = left.execute(frame);
+                    var divisor = right.execute(frame);
+                    if(divisor == 0) {
+                        throw new ArithmeticException("division by zero in %");
+                    }
+                    return dividend % divisor;
+                };
+        }
+    }
+
+    /**
+     * compiles an expression that is used as a condition
+     *
+     * @param node : the expression
+     * @return an executor for the truth value of the expression
+     */
+    private ConditionExecutor compileCondition(Node node) {
+        if(!(node instanceof OperationNode)) {
+            var value = compileValue(node);
+            return (frame) -> interpreter.isTrue(value.execute(frame));
+        }
+        var operation = (OperationNode) node;
+        switch(operation.getOperationType()) {
+            case EQUALTO:
+            case NOTEQUALTO:
+            case LESSTHAN:
+            case LESSOREQUAL:
+            case GREATERTHAN:
+            case GREATEROREQUAL:
+                return compileComparison(operation);
+            case AND: {
+                var left = compileCondition(operation.getLeft());
+                var right = compileCondition(operation.getRight().get());
+                return (frame) -> left.execute(frame) && right.execute(frame);
+            }
+            case OR: {
+                var left = compileCondition(operation.getLeft());
+                var right = compileCondition(operation.getRight().get());
+                return (frame) -> left.execute(frame) || right.execute(frame);
+            }
+            case NOT: {
+                var operand = compileCondition(operation.getLeft());
+                return (frame) -> !operand.execute(frame);
+            }
+            case MATCH:
+            case NOTMATCH: {
+                if(!(operation.getRight().get() instanceof PatternNode)) {
+                    var error = failure("pattern expected but instead found: " + operation.getRight().get());
+                    return (frame) -> isTrueFailure(error, frame);
+                }
+                Pattern pattern;
+                try {
+                    pattern = Pattern.compile(((PatternNode) operation.getRight().get()).getRegexPattern());
+                }
+                catch(PatternSyntaxException e) {
+                    return (frame) -> {
+                        throw e;
+                    };
+                }
+                var left = compileValue(operation.getLeft());
+                if(operation.getOperationType() == OperationNode.OperationType.MATCH) {
+                    return (frame) -> pattern.matcher(left.execute(frame).getData()).find();
+                }
+                return (frame) -> !pattern.matcher(left.execute(frame).getData()).find();
+            }
+            case IN: {
+                var key = compileValue(operation.getLeft());
+                var array = compileValue(operation.getRight().get());
+                var arrayName = operation.getRight().get().toString();
+                return (frame) -> {
+                    var left = key.execute(frame);
+                    var right = array.execute(frame);
+                    if(!(right instanceof InterpreterArrayDataType)) {
+                        throw new RuntimeException("illegal membership operation." + arrayName + "is not an array");
+                    }
+                    return ((InterpreterArrayDataType) right).getArrayData().containsKey(left.getData());
+                };
+            }
+            default: {
+                var value = compileValue(node);
+                return (frame) -> interpreter.isTrue(value.execute(frame));
+            }
+        }
+    }
+
+    private static boolean isTrueFailure(ValueExecutor error, InterpreterDataType[] frame) {
+        error.execute(frame);
+        return false;
+    }
+
+    /**
+     * compiles a comparison, which compares primitive numbers when both sides certainly are numbers
+     *
+     * @param node : the comparison
+     * @return an executor for the result of the comparison
+     */
+    private ConditionExecutor compileComparison(OperationNode node) {
+        if(types.isNumeric(node.getLeft()) && types.isNumeric(node.getRight().get())) {
+            return compileNumberComparison(node);
+        }
+        var left = compileValue(node.getLeft());
+        var right = compileValue(node.getRight().get());
+        switch(node.getOperationType()) {
+            case EQUALTO:
+                return (frame) -> interpreter.compare(left.execute(frame), right.execute(frame)) == 0;
+            case NOTEQUALTO:
+                return (frame) -> interpreter.compare(left.execute(frame), right.execute(frame)) != 0;
+            case LESSTHAN:
+                return (frame) -> interpreter.compare(left.execute(frame), right.execute(frame)) < 0;
+            case LESSOREQUAL:
+                return (frame) -> interpreter.compare(left.execute(frame), right.execute(frame)) <= 0;
+            case GREATERTHAN:
+                return (frame) -> interpreter.compare(left.execute(frame), right.execute(frame)) > 0;
+            default:
+                return (frame) -> interpreter.compare(left.execute(frame), right.execute(frame)) >= 0;
+        }
+    }
+
+    private ConditionExecutor compileNumberComparison(OperationNode node) {
+        var left = compileNumber(node.getLeft());
+        var right = compileNumber(node.getRight().get());
+        switch(node.getOperationType()) {
+            case EQUALTO:
+                return (frame) -> Interpreter.compareNumbers(left.execute(frame), right.execute(frame)) == 0;
+            case NOTEQUALTO:
+                return (frame) -> Interpreter.compareNumbers(left.execute(frame), right.execute(frame)) != 0;
+            case LESSTHAN:
+                return (frame) -> Interpreter.compareNumbers(left.execute(frame), right.execute(frame)) < 0;
+            case LESSOREQUAL:
+                return (frame) -> Interpreter.compareNumbers(left.execute(frame), right.execute(frame)) <= 0;
+            case GREATERTHAN:
+                return (frame) -> Interpreter.compareNumbers(left.execute(frame), right.execute(frame)) > 0;
+            default:
+                return (frame) -> Interpreter.compareNumbers(left.execute(frame), right.execute(frame)) >= 0;
+        }
+    }
+
+    /**
+     * @param node : an expression
+     * @return true if node is a scalar variable whose slot can be read and written directly as a
+     * number, which rules out NF since reading it finishes splitting the record
+     */
+    private static boolean isScalarVariable(Node node) {
+        if(!(node instanceof VariableReferenceNode) || ((VariableReferenceNode) node).getIndexExpression().isPresent()) {
+            return false;
+        }
+        var reference = (VariableReferenceNode) node;
+        return reference.isLocal() || !reference.getVariableName().equals("NF");
+    }
+
+    private static boolean isUnaryMathOperation(OperationNode node) {
+        return node.getOperationType() == OperationNode.OperationType.UNEG || node.getOperationType() == OperationNode.OperationType.UPLUS;
+    }
+
+    private static boolean isIncrementOrDecrement(OperationNode node) {
+        switch(node.getOperationType()) {
+            case PREINCREMENT:
+            case POSTINCREMENT:
+            case PREDECREMENT:
+            case POSTDECREMENT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isMathOperation(OperationNode node) {
+        switch(node.getOperationType()) {
+            case EXP:
+            case ADD:
+            case SUBTRACT:
+            case MULTIPLY:
+            case DIVIDE:
+            case MODULO:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
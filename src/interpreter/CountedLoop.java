@@ -0,0 +1,296 @@
+package interpreter;
+
+import parser.*;
+
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This class describes a loop that counts a variable toward a bound, such as
+ * for(i = 1; i <= NF; i++) or a while loop whose body ends with i++. Since nothing in the body
+ * changes the counter, the interpreter can keep it as a primitive, compare it against the bound
+ * as a number, and step it without reading the variable back. The variable still receives every
+ * value, and its String form is only produced when something reads it.
+ *
+ * @author Jake Camadine
+ */
+public class CountedLoop {
+    private static final Set<String> MUTATING_BUILTINS = Set.of("sub", "gsub", "getline", "split");
+
+    private VariableReferenceNode counter;
+    private OperationNode.OperationType comparison;
+    private Node bound;
+    private double step;
+    private LinkedList<StatementNode> body;
+
+    private CountedLoop(VariableReferenceNode counter, OperationNode.OperationType comparison, Node bound, double step, LinkedList<StatementNode> body) {
+        this.counter = counter;
+        this.comparison = comparison;
+        this.bound = bound;
+        this.step = step;
+        this.body = body;
+    }
+
+    /**
+     * @return the variable the loop counts with
+     */
+    public VariableReferenceNode getCounter() {
+        return counter;
+    }
+
+    /**
+     * @return the bound the counter is compared against before every iteration
+     */
+    public Node getBound() {
+        return bound;
+    }
+
+    /**
+     * @return the amount added to the counter after every iteration
+     */
+    public double getStep() {
+        return step;
+    }
+
+    /**
+     * @return the statements of an iteration, without the step of a while loop
+     */
+    public LinkedList<StatementNode> getBody() {
+        return body;
+    }
+
+    /**
+     * @param comparison : the result of comparing the counter with the bound
+     * @return true if the loop runs another iteration
+     */
+    public boolean continues(int comparison) {
+        switch(this.comparison) {
+            case LESSTHAN:
+                return comparison < 0;
+            case LESSOREQUAL:
+                return comparison <= 0;
+            case GREATERTHAN:
+                return comparison > 0;
+            case GREATEROREQUAL:
+                return comparison >= 0;
+            default:
+                return comparison != 0;
+        }
+    }
+
+    /**
+     * finds the counted loops of a program
+     *
+     * @param program : the program, with its variables already resolved
+     * @return the description of every for and while loop that counts
+     */
+    public static IdentityHashMap<StatementNode, CountedLoop> findAll(ProgramNode program) {
+        var functionNames = new HashSet<String>();
+        for(FunctionDefinitionNode function : program.getFunctionNodes()) {
+            functionNames.add(function.getFunctionName());
+        }
+        var loops = new IdentityHashMap<StatementNode, CountedLoop>();
+        NodeWalker.Visitor finder = (node) -> {
+            CountedLoop loop = null;
+            if(node instanceof ForNode) {
+                loop = match((ForNode) node, functionNames);
+            }
+            else if(node instanceof WhileNode) {
+                loop = match((WhileNode) node, functionNames);
+            }
+            if(loop != null) {
+                loops.put((StatementNode) node, loop);
+            }
+        };
+        for(List<BlockNode> blocks : List.of(program.getBeginNodes(), program.getBlockNodes(), program.getEndNodes())) {
+            for(BlockNode block : blocks) {
+                block.getStatements().forEach((statement) -> NodeWalker.walk(statement, finder));
+            }
+        }
+        for(FunctionDefinitionNode function : program.getFunctionNodes()) {
+            function.getStatements().forEach((statement) -> NodeWalker.walk(statement, finder));
+        }
+        return loops;
+    }
+
+    /**
+     * @return a counted loop for for(i = start; i op bound; step), or null if the loop does not count
+     */
+    private static CountedLoop match(ForNode loop, Set<String> functionNames) {
+        if(loop.getInitializer().isEmpty() || loop.getConditional().isEmpty() || loop.getPostIterationOperation().isEmpty()) {
+            return null;
+        }
+        if(!(loop.getInitializer().get() instanceof AssignmentNode)) {
+            return null;
+        }
+        var counter = asCounter(((AssignmentNode) loop.getInitializer().get()).getTarget());
+        if(counter == null) {
+            return null;
+        }
+        var step = getStep(loop.getPostIterationOperation().get(), counter);
+        var body = loop.getLoopBlock().getStatements();
+        return create(counter, loop.getConditional().get(), step, body, functionNames);
+    }
+
+    /**
+     * @return a counted loop for while(i op bound) { ... step }, or null if the loop does not count.
+     * The body may not continue, since that would skip the step.
+     */
+    private static CountedLoop match(WhileNode loop, Set<String> functionNames) {
+        var statements = loop.getLoopBlock().getStatements();
+        if(statements.isEmpty() || !(loop.getCondition() instanceof OperationNode)) {
+            return null;
+        }
+        var counter = asCounter(((OperationNode) loop.getCondition()).getLeft());
+        if(counter == null) {
+            return null;
+        }
+        var step = getStep(statements.getLast(), counter);
+        var body = new LinkedList<>(statements.subList(0, statements.size() - 1));
+        var continues = new boolean[1];
+        body.forEach((statement) -> NodeWalker.walk(statement, (node) -> continues[0] |= node instanceof ContinueNode));
+        if(continues[0]) {
+            return null;
+        }
+        return create(counter, loop.getCondition(), step, body, functionNames);
+    }
+
+    /**
+     * @param condition : the loop's condition, which must compare the counter with a bound
+     * @param step : the step, or NaN if the loop does not step the counter by a constant
+     * @param body : the statements of an iteration, which may not change the counter
+     */
+    private static CountedLoop create(VariableReferenceNode counter, Node condition, double step, LinkedList<StatementNode> body, Set<String> functionNames) {
+        if(Double.isNaN(step) || !(condition instanceof OperationNode)) {
+            return null;
+        }
+        var comparison = (OperationNode) condition;
+        switch(comparison.getOperationType()) {
+            case LESSTHAN:
+            case LESSOREQUAL:
+            case GREATERTHAN:
+            case GREATEROREQUAL:
+            case NOTEQUALTO:
+                break;
+            default:
+                return null;
+        }
+        if(!isSameVariable(comparison.getLeft(), counter) || changesCounter(comparison.getRight().get(), counter, functionNames)) {
+            return null;
+        }
+        for(StatementNode statement : body) {
+            if(changesCounter(statement, counter, functionNames)) {
+                return null;
+            }
+        }
+        return new CountedLoop(counter, comparison.getOperationType(), comparison.getRight().get(), step, body);
+    }
+
+    /**
+     * @param node : an expression
+     * @return node as a scalar variable that may count, or null if it is not one. Special
+     * variables are left alone, since the interpreter changes them itself.
+     */
+    private static VariableReferenceNode asCounter(Node node) {
+        if(!(node instanceof VariableReferenceNode)) {
+            return null;
+        }
+        var reference = (VariableReferenceNode) node;
+        if(reference.getIndexExpression().isPresent() || reference.getSlot() < 0) {
+            return null;
+        }
+        if(!reference.isLocal() && Interpreter.SPECIAL_VARIABLES.contains(reference.getVariableName())) {
+            return null;
+        }
+        return reference;
+    }
+
+    private static boolean isSameVariable(Node node, VariableReferenceNode counter) {
+        if(!(node instanceof VariableReferenceNode)) {
+            return false;
+        }
+        var reference = (VariableReferenceNode) node;
+        return reference.getIndexExpression().isEmpty() && reference.isLocal() == counter.isLocal() && reference.getSlot() == counter.getSlot();
+    }
+
+    /**
+     * @param node : the step of a loop
+     * @return the constant amount that i++, ++i, i--, --i, i += c, or i -= c adds to the counter,
+     * or NaN if node is not one of them
+     */
+    private static double getStep(Node node, VariableReferenceNode counter) {
+        if(!(node instanceof AssignmentNode) || !isSameVariable(((AssignmentNode) node).getTarget(), counter)) {
+            return Double.NaN;
+        }
+        if(!(((AssignmentNode) node).getAssignment() instanceof OperationNode)) {
+            return Double.NaN;
+        }
+        var operation = (OperationNode) ((AssignmentNode) node).getAssignment();
+        if(!isSameVariable(operation.getLeft(), counter)) {
+            return Double.NaN;
+        }
+        switch(operation.getOperationType()) {
+            case PREINCREMENT:
+            case POSTINCREMENT:
+                return 1;
+            case PREDECREMENT:
+            case POSTDECREMENT:
+                return -1;
+            case ADD:
+            case SUBTRACT: {
+                if(!(operation.getRight().get() instanceof ConstantNode)) {
+                    return Double.NaN;
+                }
+                var amount = NumberScanner.parse(operation.getRight().get().toString());
+                return operation.getOperationType() == OperationNode.OperationType.ADD ? amount : -amount;
+            }
+            default:
+                return Double.NaN;
+        }
+    }
+
+    /**
+     * @param node : a statement or expression that runs during the loop
+     * @return true if node may change the counter or the variable in its slot, including through
+     * a user function when the counter is global
+     */
+    private static boolean changesCounter(Node node, VariableReferenceNode counter, Set<String> functionNames) {
+        var changes = new boolean[1];
+        NodeWalker.walk(node, (child) -> {
+            switch(child.getNodeType()) {
+                case VARIABLE_REFERENCE:
+                    //an indexed reference would turn the counter into an array
+                    changes[0] |= ((VariableReferenceNode) child).getIndexExpression().isPresent()
+                            && ((VariableReferenceNode) child).isLocal() == counter.isLocal()
+                            && ((VariableReferenceNode) child).getSlot() == counter.getSlot();
+                    break;
+                case ASSIGNMENT:
+                    changes[0] |= isSameVariable(((AssignmentNode) child).getTarget(), counter);
+                    break;
+                case FUNCTION_CALL: {
+                    var call = (FunctionCallNode) child;
+                    var isUserFunction = functionNames.contains(call.getFunctionName());
+                    if(isUserFunction && !counter.isLocal()) {
+                        changes[0] = true;
+                    }
+                    if(isUserFunction || MUTATING_BUILTINS.contains(call.getFunctionName())) {
+                        changes[0] |= call.getParameters().stream().anyMatch((parameter) -> isSameVariable(parameter, counter));
+                    }
+                    break;
+                }
+                case DELETE:
+                    changes[0] |= isSameVariable(((DeleteNode) child).getReference(), counter);
+                    break;
+                case FOR_IN:
+                    changes[0] |= isSameVariable(((ForInNode) child).getInStatement().getLeft(), counter);
+                    break;
+                default:
+                    break;
+            }
+        });
+        return changes[0];
+    }
+}
@@ -0,0 +1,30 @@
+package interpreter;
+
+/**
+ * This enum lists the ways an Interpreter can execute a program
+ *
+ * @author Jake Camadine
+ */
+public enum ExecutionMode {
+    /**
+     * walks the symbol tree for every statement, the reference implementation
+     */
+    TREE_WALKING,
+    /**
+     * compiles the symbol tree into executors bound to their operands before running
+     */
+    CLOSURE_COMPILED,
+    /**
+     * compiles the symbol tree into compact instructions run by a VirtualMachine, whose own call stack lets
+     * functions recurse as deep as memory allows and runs tail calls in constant space
+     */
+    BYTECODE,
+    /**
+     * compiles the instructions of BYTECODE further into hidden JVM classes, which the JIT optimizes like Java code
+     */
+    JVM_BYTECODE,
+    /**
+     * walks the symbol tree, and compiles each block or user function as CLOSURE_COMPILED does once it has run often
+     */
+    TIERED
+}
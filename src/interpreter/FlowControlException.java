@@ -0,0 +1,37 @@
+package interpreter;
+
+/**
+ * This class carries next or exit out of a call to a function, where they cannot be returned
+ * as a ReturnType, to the block that is running. The two instances are shared and have no
+ * stack trace, so throwing one is cheap.
+ *
+ * @author Jake Camadine
+ */
+public class FlowControlException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public static final FlowControlException NEXT = new FlowControlException(ReturnType.NEXT);
+    public static final FlowControlException EXIT = new FlowControlException(ReturnType.EXIT);
+
+    private final ReturnType flowControl;
+
+    private FlowControlException(ReturnType flowControl) {
+        super(null, null, false, false);
+        this.flowControl = flowControl;
+    }
+
+    /**
+     * @param flowControl : ReturnType.NEXT or ReturnType.EXIT
+     * @return the shared exception for flowControl
+     */
+    public static FlowControlException of(ReturnType flowControl) {
+        return flowControl.getFlowControlType() == ReturnType.FlowControlStatement.NEXT ? NEXT : EXIT;
+    }
+
+    /**
+     * @return ReturnType.NEXT or ReturnType.EXIT
+     */
+    public ReturnType getFlowControl() {
+        return flowControl;
+    }
+}
@@ -0,0 +1,50 @@
+package interpreter;
+
+/**
+ * This class keeps the call frames of one user function for reuse, so that calling the
+ * function does not allocate a new frame unless a recursive call already holds every pooled one.
+ *
+ * @author Jake Camadine
+ */
+public class FramePool {
+    private static final int MAX_POOLED_FRAMES = 16;
+
+    private int frameSize;
+    private InterpreterDataType[][] frames;
+    private int pooledFrames;
+
+    /**
+     * @param frameSize : the number of slots in each frame, one per parameter of the function
+     */
+    public FramePool(int frameSize) {
+        this.frameSize = frameSize;
+        frames = new InterpreterDataType[MAX_POOLED_FRAMES][];
+    }
+
+    /**
+     * @return a frame with every slot empty
+     */
+    public InterpreterDataType[] acquire() {
+        if(pooledFrames == 0) {
+            return new InterpreterDataType[frameSize];
+        }
+        var frame = frames[--pooledFrames];
+        frames[pooledFrames] = null;
+        return frame;
+    }
+
+    /**
+     * empties a frame that is no longer in use and keeps it for the next call
+     *
+     * @param frame : a frame returned by acquire
+     */
+    public void release(InterpreterDataType[] frame) {
+        if(pooledFrames == MAX_POOLED_FRAMES) {
+            return;
+        }
+        for(int i = 0; i < frame.length; i++) {
+            frame[i] = null;
+        }
+        frames[pooledFrames++] = frame;
+    }
+}
@@ -0,0 +1,239 @@
+package interpreter;
+
+import parser.*;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+
+/**
+ * This class inlines calls to small user functions, such as function max(a, b) { return a > b ? a : b }.
+ * A function is inlined when its body is a single return of an expression that has no side effects
+ * and uses its parameters only as scalars, so arrays, which are passed by reference, never have to
+ * be inlined. A call is inlined when substituting its arguments for the parameters cannot change
+ * what the arguments evaluate to, or whether they are evaluated:
+ * <ul>
+ *     <li>constants and scalar variables may be read any number of times, since nothing in the
+ *     inlined expression can change them</li>
+ *     <li>a field reference adds empty fields when it is past the end of the record, so it is only
+ *     substituted for a parameter the expression always reads, and only when nothing else in the
+ *     call reads NF</li>
+ * </ul>
+ * Parameters without an argument are the function's local variables, which read as empty strings
+ * since the expression cannot assign them. The result keeps its type, as a call's return value
+ * does, and may be one of the caller's variables, so calls whose value a builtin modifies are
+ * left to the caller not to inline.
+ *
+ * @author Jake Camadine
+ */
+public class FunctionInliner {
+    private static final int SIZE_LIMIT = 24;
+
+    private HashMap<String, FunctionDefinitionNode> functions;
+    private IdentityHashMap<FunctionDefinitionNode, Node> bodies;
+
+    /**
+     * finds the functions of a program that can be inlined
+     *
+     * @param program : the parsed program
+     */
+    public FunctionInliner(ProgramNode program) {
+        functions = new HashMap<>();
+        bodies = new IdentityHashMap<>();
+        for(FunctionDefinitionNode function : program.getFunctionNodes()) {
+            functions.put(function.getFunctionName(), function);
+            var statements = function.getStatements();
+            if(statements.size() != 1 || !(statements.getFirst() instanceof ReturnNode)) {
+                continue;
+            }
+            var expression = ((ReturnNode) statements.getFirst()).getParameter();
+            if(expression.isPresent() && isInlinable(expression.get()) && size(expression.get()) <= SIZE_LIMIT) {
+                bodies.put(function, expression.get());
+            }
+        }
+    }
+
+    /**
+     * @param call : a call whose value is used, with its arguments already optimized
+     * @param caller : the function the call is in, or null if it is in a block
+     * @return the expression that replaces the call, or null if the call cannot be inlined
+     */
+    public Node inline(FunctionCallNode call, FunctionDefinitionNode caller) {
+        var function = functions.get(call.getFunctionName());
+        if(function == null || !bodies.containsKey(function)) {
+            return null;
+        }
+        var body = bodies.get(function);
+        var parameters = new HashSet<String>();
+        function.getParameters().forEach((parameter) -> parameters.add(parameter.getTokenValue()));
+        var arguments = call.getParameters();
+        if(arguments.size() > parameters.size()) {
+            //the linker reports the call
+            return null;
+        }
+        //the globals the function reads would be taken for the caller's locals of the same name
+        var globals = new HashSet<String>();
+        NodeWalker.walk(body, (node) -> {
+            if(node instanceof VariableReferenceNode && !parameters.contains(((VariableReferenceNode) node).getVariableName())) {
+                globals.add(((VariableReferenceNode) node).getVariableName());
+            }
+        });
+        if(caller != null && caller.getParameters().stream().anyMatch((parameter) -> globals.contains(parameter.getTokenValue()))) {
+            return null;
+        }
+        var substitutions = new HashMap<String, Node>();
+        var readsFields = false;
+        var readsNumberOfFields = globals.contains("NF");
+        for(int i = 0; i < function.getParameters().size(); i++) {
+            var name = function.getParameters().get(i).getTokenValue();
+            if(i >= arguments.size()) {
+                substitutions.put(name, new LiteralNode(new InterpreterDataType()));
+                continue;
+            }
+            var argument = arguments.get(i);
+            if(isFieldReference(argument)) {
+                if(!isAlwaysRead(body, name)) {
+                    return null;
+                }
+                readsFields = true;
+            }
+            else if(argument instanceof VariableReferenceNode && ((VariableReferenceNode) argument).getIndexExpression().isEmpty()) {
+                readsNumberOfFields |= ((VariableReferenceNode) argument).getVariableName().equals("NF");
+            }
+            else if(!(argument instanceof ConstantNode)) {
+                return null;
+            }
+            substitutions.put(name, argument);
+        }
+        if(readsFields && readsNumberOfFields) {
+            return null;
+        }
+        return substitute(body, substitutions);
+    }
+
+    /**
+     * @param node : an expression
+     * @return true if the expression has no side effects, reads its variables only as scalars,
+     * and calls nothing
+     */
+    private static boolean isInlinable(Node node) {
+        switch(node.getNodeType()) {
+            case CONSTANT:
+            case PATTERN:
+                return true;
+            case VARIABLE_REFERENCE:
+                return ((VariableReferenceNode) node).getIndexExpression().isEmpty();
+            case TERNARY: {
+                var ternary = (TernaryNode) node;
+                return isInlinable(ternary.getBooleanExpression()) && isInlinable(ternary.getTrueCase()) && isInlinable(ternary.getFalseCase());
+            }
+            case OPERATION:
+                break;
+            default:
+                return false;
+        }
+        var operation = (OperationNode) node;
+        switch(operation.getOperationType()) {
+            case FIELDREF:
+            case IN:
+            case PREINCREMENT:
+            case POSTINCREMENT:
+            case PREDECREMENT:
+            case POSTDECREMENT:
+                return false;
+            case MATCH:
+            case NOTMATCH:
+                return isInlinable(operation.getLeft()) && operation.getRight().get() instanceof PatternNode;
+            default:
+                return isInlinable(operation.getLeft()) && (operation.getRight().isEmpty() || isInlinable(operation.getRight().get()));
+        }
+    }
+
+    private static int size(Node node) {
+        var count = new int[1];
+        NodeWalker.walk(node, (child) -> count[0]++);
+        return count[0];
+    }
+
+    private static boolean isFieldReference(Node node) {
+        if(!(node instanceof OperationNode) || ((OperationNode) node).getOperationType() != OperationNode.OperationType.FIELDREF) {
+            return false;
+        }
+        var index = ((OperationNode) node).getLeft();
+        return index instanceof ConstantNode && NumberScanner.parse(index.toString()) >= 1;
+    }
+
+    /**
+     * @param node : an expression
+     * @param name : the name of a parameter
+     * @return true if evaluating the expression always reads the parameter, whichever way its
+     * conditions and logical operations go
+     */
+    private static boolean isAlwaysRead(Node node, String name) {
+        switch(node.getNodeType()) {
+            case VARIABLE_REFERENCE:
+                return ((VariableReferenceNode) node).getVariableName().equals(name);
+            case TERNARY:
+                return isAlwaysRead(((TernaryNode) node).getBooleanExpression(), name);
+            case OPERATION: {
+                var operation = (OperationNode) node;
+                switch(operation.getOperationType()) {
+                    case AND:
+                    case OR:
+                        return isAlwaysRead(operation.getLeft(), name);
+                    default:
+                        return isAlwaysRead(operation.getLeft(), name)
+                                || (operation.getRight().isPresent() && isAlwaysRead(operation.getRight().get(), name));
+                }
+            }
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @param node : an inlinable expression
+     * @param substitutions : the argument of each parameter
+     * @return a copy of the expression that reads the arguments in place of the parameters
+     */
+    private static Node substitute(Node node, HashMap<String, Node> substitutions) {
+        switch(node.getNodeType()) {
+            case CONSTANT:
+                return copy(node);
+            case VARIABLE_REFERENCE: {
+                var name = ((VariableReferenceNode) node).getVariableName();
+                return copy(substitutions.containsKey(name) ? substitutions.get(name) : node);
+            }
+            case TERNARY: {
+                var ternary = (TernaryNode) node;
+                return new TernaryNode(substitute(ternary.getBooleanExpression(), substitutions),
+                        substitute(ternary.getTrueCase(), substitutions), substitute(ternary.getFalseCase(), substitutions));
+            }
+            case OPERATION: {
+                var operation = (OperationNode) node;
+                return new OperationNode(substitute(operation.getLeft(), substitutions),
+                        operation.getRight().map((right) -> substitute(right, substitutions)), operation.getOperationType());
+            }
+            default:
+                //patterns are never changed, so they can be shared
+                return node;
+        }
+    }
+
+    /**
+     * @param node : a constant, a scalar variable, or a field reference with a constant index
+     * @return a new node that evaluates the same way
+     */
+    private static Node copy(Node node) {
+        if(node instanceof LiteralNode) {
+            return new LiteralNode(((LiteralNode) node).getValue());
+        }
+        if(node instanceof ConstantNode) {
+            return new LiteralNode((ConstantNode) node);
+        }
+        if(node instanceof VariableReferenceNode) {
+            return new VariableReferenceNode(((VariableReferenceNode) node).getVariableName());
+        }
+        return new OperationNode(copy(((OperationNode) node).getLeft()), OperationNode.OperationType.FIELDREF);
+    }
+}
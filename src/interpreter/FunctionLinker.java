@@ -0,0 +1,62 @@
+package interpreter;
+
+import parser.*;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * This class binds every function call of a program to the function it calls and to the
+ * signature its arguments fill, once, before the program runs. Calls to functions that do not
+ * exist and calls with more arguments than the function takes are reported then, instead of
+ * when the call is reached.
+ *
+ * @author Jake Camadine
+ */
+public class FunctionLinker {
+    private Interpreter interpreter;
+    private HashMap<String, FunctionDefinitionNode> functions;
+
+    /**
+     * @param interpreter : the interpreter that selects the signatures of calls
+     * @param functions : the builtins and user functions, by name
+     */
+    public FunctionLinker(Interpreter interpreter, HashMap<String, FunctionDefinitionNode> functions) {
+        this.interpreter = interpreter;
+        this.functions = functions;
+    }
+
+    /**
+     * binds every call in the program
+     *
+     * @param program : the program
+     */
+    public void link(ProgramNode program) {
+        for(List<BlockNode> blocks : List.of(program.getBeginNodes(), program.getBlockNodes(), program.getEndNodes())) {
+            for(BlockNode block : blocks) {
+                block.getCondition().ifPresent((condition) -> NodeWalker.walk(condition, this::link));
+                block.getStatements().forEach((statement) -> NodeWalker.walk(statement, this::link));
+            }
+        }
+        for(FunctionDefinitionNode function : program.getFunctionNodes()) {
+            function.getStatements().forEach((statement) -> NodeWalker.walk(statement, this::link));
+        }
+    }
+
+    private void link(Node node) {
+        if(!(node instanceof FunctionCallNode)) {
+            return;
+        }
+        var call = (FunctionCallNode) node;
+        var function = functions.get(call.getFunctionName());
+        if(function == null) {
+            throw new RuntimeException("function not defined: " + call.getFunctionName());
+        }
+        try {
+            call.bind(function, interpreter.selectSignature(function, call.getParameters().size()));
+        }
+        catch(RuntimeException e) {
+            throw new RuntimeException(e.getMessage() + ": " + call);
+        }
+    }
+}
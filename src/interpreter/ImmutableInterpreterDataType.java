@@ -0,0 +1,64 @@
+package interpreter;
+
+/**
+ * This class models a value that is shared between evaluations and so can never be modified,
+ * such as the results of comparisons and logical operations. Builtins that store a result in
+ * an argument, such as sub, leave these values unchanged, and assignments copy them.
+ *
+ * @author Jake Camadine
+ */
+public class ImmutableInterpreterDataType extends InterpreterDataType {
+    public static final ImmutableInterpreterDataType TRUE = new ImmutableInterpreterDataType(1);
+    public static final ImmutableInterpreterDataType FALSE = new ImmutableInterpreterDataType(0);
+
+    public ImmutableInterpreterDataType(String data) {
+        super(data);
+        isNumeric();
+    }
+    public ImmutableInterpreterDataType(double numericData) {
+        super(numericData);
+        getData();
+    }
+
+    /**
+     * @param value : the value to share, such as the result of a constant expression, whose type is kept
+     */
+    public ImmutableInterpreterDataType(InterpreterDataType value) {
+        super(value);
+        isNumeric();
+        getData();
+    }
+
+    /**
+     * @param condition : the result of a condition
+     * @return TRUE or FALSE based on condition
+     */
+    public static ImmutableInterpreterDataType valueOf(boolean condition) {
+        return condition ? TRUE : FALSE;
+    }
+
+    @Override
+    public void setData(String data) {
+        throw new UnsupportedOperationException("attempt to modify an immutable value");
+    }
+
+    @Override
+    public void setInput(String data) {
+        throw new UnsupportedOperationException("attempt to modify an immutable value");
+    }
+
+    @Override
+    public void setNumber(double numericData) {
+        throw new UnsupportedOperationException("attempt to modify an immutable value");
+    }
+
+    @Override
+    public void append(String text) {
+        throw new UnsupportedOperationException("attempt to modify an immutable value");
+    }
+
+    @Override
+    public void assign(InterpreterDataType other) {
+        throw new UnsupportedOperationException("attempt to modify an immutable value");
+    }
+}
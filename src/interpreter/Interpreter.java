@@ -7,7 +7,9 @@ import java.util.regex.Matcher;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.regex.Pattern;
@@ -18,49 +20,288 @@ import java.util.regex.Pattern;
  * @author Jake Camadine
  */
 public class Interpreter {
+    static final List<String> SPECIAL_VARIABLES = List.of("FILENAME", "FS", "FPAT", "NF", "NR", "FNR", "OFMT", "OFS", "ORS", "RSTART", "RLENGTH");
+
     /**
      * This class models the input file control loop in an AWK program
      */
      private class LineManager {
+        /**
+         * This class models a field of the current record. Assigning a field rebuilds the record,
+         * so the record always holds the current fields.
+         */
+        private class Field extends InterpreterDataType {
+            private final int index;
+
+            /**
+             * @param data : the text of the field
+             * @param index : the field number
+             */
+            public Field(String data, int index) {
+                super(data, true);
+                this.index = index;
+            }
+
+            @Override
+            public void setData(String data) {
+                super.setData(data);
+                rebuildRecord(index);
+            }
+
+            @Override
+            public void setInput(String data) {
+                super.setInput(data);
+                rebuildRecord(index);
+            }
+
+            @Override
+            public void setNumber(double numericData) {
+                super.setNumber(numericData);
+                rebuildRecord(index);
+            }
+
+            @Override
+            public void append(String text) {
+                super.append(text);
+                rebuildRecord(index);
+            }
+
+            @Override
+            public void assign(InterpreterDataType other) {
+                super.assign(other);
+                rebuildRecord(index);
+            }
+        }
+
         private List<String> inputText;
 
+        private InterpreterDataType record;
+        private ArrayList<InterpreterDataType> fields;
+        private boolean fieldsSplit;
+        private boolean rebuildingRecord;
+        private Pattern recordSeparatorPattern;
+        private Pattern recordFieldPattern;
+
+        private Matcher fieldMatcher;
+        private int previousMatchEnd;
+        private boolean matchingFields;
+
         public LineManager(List<String> inputText) {
             this.inputText =  inputText;
-            globalVariables.put("FNR", new InterpreterDataType("0"));
-            globalVariables.put("$0", new InterpreterDataType(""));
+            record = new SpecialInterpreterDataType("", this::resetFields);
+            fields = new ArrayList<>();
+            fieldsSplit = true;
         }
 
         /**
-         * takes the current line, splits it by the field separator, and assigns the array elements to the values of the n field references
+         * takes the current line and makes it the current record. The record is split into fields by FS,
+         * or matched into fields by FPAT when it is set, only once the fields are referenced.
          *
          * @return true if there is a line to split
          */
         public boolean splitAndAssign() {
             if(inputText.isEmpty()) { return false; }
             var currentLine = inputText.remove(0);
-            var fieldReferenceLiterals = currentLine.split(globalVariables.get("FS").getData());
 
-            globalVariables.put("$0", new InterpreterDataType(currentLine));
-            for(int i = 0; i < fieldReferenceLiterals.length; i++) {
-                globalVariables.put("$" + (i + 1), new InterpreterDataType(fieldReferenceLiterals[i]));
-            }
-            globalVariables.get("NF").setData(String.valueOf(fieldReferenceLiterals.length));
-            globalVariables.get("NR").setData(String.valueOf((Integer.parseInt(globalVariables.get("NR").getData()) + 1)));
-            globalVariables.get("FNR").setData(String.valueOf((Integer.parseInt(globalVariables.get("FNR").getData()) + 1)));
+            record.setInput(currentLine);
+            recordNumber.setNumber(recordNumber.getNumber() + 1);
+            fileRecordNumber.setNumber(fileRecordNumber.getNumber() + 1);
             return true;
         }
 
+        /**
+         * drops the fields of the previous record whenever the record changes, whether it was read
+         * or assigned. The record is split by the FS or FPAT in effect at that point, even if they
+         * are assigned before its fields are first referenced.
+         */
+        private void resetFields() {
+            if(rebuildingRecord) {
+                return;
+            }
+            fields.clear();
+            fieldsSplit = false;
+            matchingFields = false;
+            recordSeparatorPattern = fieldSeparatorPattern;
+            recordFieldPattern = fieldPattern;
+        }
+
+        /**
+         * joins the fields into the record with OFS after a field is assigned. A field past the last
+         * one extends the record, with empty fields in between, and NF.
+         *
+         * @param index : the number of the assigned field
+         */
+        private void rebuildRecord(int index) {
+            while(matchingFields) {
+                matchNextField();
+            }
+            if(index > numberOfFields.getNumber()) {
+                numberOfFields.setNumber(index);
+            }
+            int count = (int) numberOfFields.getNumber();
+            while(fields.size() < count) {
+                fields.add(new Field("", fields.size() + 1));
+            }
+            var text = new StringBuilder();
+            for(int i = 0; i < count; i++) {
+                if(i > 0) {
+                    text.append(outputFieldSeparator.getData());
+                }
+                text.append(fields.get(i).getData());
+            }
+            rebuildingRecord = true;
+            record.setInput(text.toString());
+            rebuildingRecord = false;
+        }
+
+        /**
+         * @return the current record
+         */
+        public InterpreterDataType getRecord() {
+            return record;
+        }
+
+        /**
+         * finds the nth field of the current record, splitting or matching only as far as needed.
+         * References past the last field create an empty field, without changing NF.
+         *
+         * @param index : the field number
+         * @return the field's InterpreterDataType
+         */
+        public InterpreterDataType getField(int index) {
+            if(index == 0) {
+                return record;
+            }
+            if(index < 0) {
+                throw new RuntimeException("attempt to access field " + index);
+            }
+            if(!fieldsSplit) {
+                startSplit();
+            }
+            while(matchingFields && fields.size() < index) {
+                matchNextField();
+            }
+            while(fields.size() < index) {
+                fields.add(new Field("", fields.size() + 1));
+            }
+            return fields.get(index - 1);
+        }
+
+        /**
+         * @return true if the fields of the current record have not all been produced yet
+         */
+        public boolean hasPendingFields() {
+            return !fieldsSplit || matchingFields;
+        }
+
+        /**
+         * produces every remaining field of the current record and updates NF
+         */
+        public void finishFields() {
+            if(!fieldsSplit) {
+                startSplit();
+            }
+            while(matchingFields) {
+                matchNextField();
+            }
+            numberOfFields.setNumber(fields.size());
+        }
+
+        /**
+         * splits the record by FS, or prepares the FPAT matcher. A new matcher is only
+         * created when FPAT has been assigned since the previous record.
+         */
+        private void startSplit() {
+            fieldsSplit = true;
+            if(recordFieldPattern == null) {
+                for(String field : recordSeparatorPattern.split(record.getData())) {
+                    fields.add(new Field(intern(field), fields.size() + 1));
+                }
+                numberOfFields.setNumber(fields.size());
+                return;
+            }
+            if(fieldMatcher == null || fieldMatcher.pattern() != recordFieldPattern) {
+                fieldMatcher = recordFieldPattern.matcher(record.getData());
+            }
+            else {
+                fieldMatcher.reset(record.getData());
+            }
+            previousMatchEnd = -1;
+            matchingFields = true;
+        }
+
+        /**
+         * finds the next FPAT match in the record. An empty match directly after the
+         * previous field is skipped, since it is not a field of its own. NF is set once the
+         * last field has been found.
+         *
+         * @return true if another field was found
+         */
+        private boolean matchNextField() {
+            while(fieldMatcher.find()) {
+                if(fieldMatcher.start() == fieldMatcher.end() && fieldMatcher.start() == previousMatchEnd) {
+                    continue;
+                }
+                previousMatchEnd = fieldMatcher.end();
+                fields.add(new Field(intern(fieldMatcher.group()), fields.size() + 1));
+                return true;
+            }
+            matchingFields = false;
+            numberOfFields.setNumber(fields.size());
+            return false;
+        }
     }
 
     private ProgramNode program;
     private LineManager lineManager;
 
-    private HashMap<String, InterpreterDataType> globalVariables;
+    private HashMap<String, Integer> globalSlots;
+    private InterpreterDataType[] globalVariables;
+    private int numberOfFieldsSlot;
+
+    private InterpreterDataType recordNumber;
+    private InterpreterDataType fileRecordNumber;
+    private InterpreterDataType numberOfFields;
+    private InterpreterDataType matchStart;
+    private InterpreterDataType outputFieldSeparator;
+    private InterpreterDataType matchLength;
+    private InterpreterDataType fieldSeparator;
+    private InterpreterDataType fieldPatternSource;
+    private Pattern fieldSeparatorPattern;
+    private Pattern fieldPattern;
     private HashMap<String, FunctionDefinitionNode> functions;
+    private IdentityHashMap<FunctionDefinitionNode, FramePool> framePools;
+    private IdentityHashMap<PatternNode, Pattern> matchPatterns;
+
+    private StringInterner interner;
+
+    private ExecutionMode executionMode;
+    private ClosureCompiler.StatementExecutor[] compiledBeginBlocks;
+    private ClosureCompiler.StatementExecutor[] compiledBlocks;
+    private ClosureCompiler.StatementExecutor[] compiledEndBlocks;
+    private VirtualMachine virtualMachine;
+    private JvmRuntime jvmRuntime;
+    private TieredCompiler tieredCompiler;
+    private IdentityHashMap<BlockNode, PredicateCompiler.BlockPredicate> blockPredicates;
+    private IdentityHashMap<StatementNode, CountedLoop> countedLoops;
 
     public Interpreter(ProgramNode programNode, Path inputFile) throws IOException {
+        this(programNode, inputFile, ExecutionMode.TREE_WALKING);
+    }
+
+    /**
+     * @param programNode : the root of the symbol tree
+     * @param inputFile : the file whose lines are the records, or null if there is no input
+     * @param executionMode : how the program is executed
+     */
+    public Interpreter(ProgramNode programNode, Path inputFile, ExecutionMode executionMode) throws IOException {
         program = programNode;
-        globalVariables = new HashMap<>();
+        this.executionMode = executionMode;
+        matchPatterns = new IdentityHashMap<>();
+        new ProgramOptimizer(this).optimize(programNode);
+        globalSlots = new VariableResolver(programNode, SPECIAL_VARIABLES).resolve();
+        globalVariables = new InterpreterDataType[globalSlots.size()];
+        numberOfFieldsSlot = globalSlots.get("NF");
         functions = new HashMap<>();
         if(inputFile == null){
             lineManager = new LineManager(new LinkedList<>());
@@ -70,150 +311,146 @@ public class Interpreter {
         }
         var paramList = new LinkedList<Token>();
         paramList.add(new Token(0, 0, Token.TokenType.WORD, "expressions"));
-        functions.put("print", new BuiltInFunctionDefinitionNode("print", paramList, true, (params) -> {
+        functions.put("print", new BuiltInFunctionDefinitionNode("print", paramList, true, (arguments) -> {
             StringBuilder expression =  new StringBuilder();
-            if(params.isEmpty()) {
-                expression.append(globalVariables.get("$0").getData());
+            if(arguments.length == 0) {
+                expression.append(lineManager.getRecord().getData());
             }
             else {
-                for (int i = 0; i < ((InterpreterArrayDataType) params.get("expressions")).getArrayData().size(); i++) {
-                    expression.append(((InterpreterArrayDataType) params.get("expressions")).getArrayData().get(String.valueOf(i)).getData());
+                for(InterpreterDataType argument : arguments) {
+                    expression.append(argument.getData());
                 }
             }
             System.out.println(expression);
             return null;
         }));
         paramList.addFirst(new Token(0, 0, Token.TokenType.WORD, "formatSpecifier"));
-        functions.put("printf", new BuiltInFunctionDefinitionNode("printf", paramList, true, (params) -> {
-            String[] expression =  new String[((InterpreterArrayDataType)params.get("expressions")).getArrayData().size()];
-            for(int i = 0; i < ((InterpreterArrayDataType)params.get("expressions")).getArrayData().size(); i++) {
-                expression[i] = (((InterpreterArrayDataType)params.get("expressions")).getArrayData().get(String.valueOf(i)).getData());
-            }
-            System.out.printf(params.get("formatSpecifier").getData(), expression);
+        functions.put("printf", new BuiltInFunctionDefinitionNode("printf", paramList, true, (arguments) -> {
+            System.out.printf(arguments[0].getData(), formatArguments(arguments));
             return null;
         }));
-        functions.put("sprintf", new BuiltInFunctionDefinitionNode("sprintf", paramList, true, (params) -> {
-            String[] expression =  new String[((InterpreterArrayDataType)params.get("expressions")).getArrayData().size()];
-            for(int i = 0; i < ((InterpreterArrayDataType)params.get("expressions")).getArrayData().size(); i++) {
-                expression[i] = (((InterpreterArrayDataType)params.get("expressions")).getArrayData().get(String.valueOf(i)).getData());
-            }
-            return String.format(params.get("formatSpecifier").getData(), expression);
+        functions.put("sprintf", new BuiltInFunctionDefinitionNode("sprintf", paramList, true, (arguments) -> {
+            return new InterpreterDataType(String.format(arguments[0].getData(), formatArguments(arguments)));
         }));
-        functions.put("next", new BuiltInFunctionDefinitionNode("next", new LinkedList<>(), false, (params) -> {
-            lineManager.splitAndAssign();
-            return null;
+        functions.put("next", new BuiltInFunctionDefinitionNode("next", new LinkedList<>(), false, (arguments) -> {
+            throw FlowControlException.NEXT;
+        }));
+        paramList.clear();
+        paramList.add(new Token(0, 0, Token.TokenType.WORD, "status"));
+        functions.put("exit", new BuiltInFunctionDefinitionNode("exit", paramList, false, (arguments) -> {
+            throw FlowControlException.EXIT;
         }));
+        paramList.removeLast();
+        ((BuiltInFunctionDefinitionNode) functions.get("exit")).getAltSignatures().add(new LinkedList<>(paramList));
         paramList.clear();
         paramList.add(new Token(0, 0, Token.TokenType.WORD, "reference"));
-        functions.put("getline", new BuiltInFunctionDefinitionNode("getline", paramList, false, (params) -> {
+        functions.put("getline", new BuiltInFunctionDefinitionNode("getline", paramList, false, (arguments) -> {
             lineManager.splitAndAssign();
-            if(params.size() > 0){
-                params.get("reference").setData(globalVariables.get("$0").getData());
+            if(arguments.length > 0 && !(arguments[0] instanceof ImmutableInterpreterDataType)){
+                arguments[0].setInput(lineManager.getRecord().getData());
             }
-            return globalVariables.get("$0").getData();
+            return new InterpreterDataType(lineManager.getRecord().getData());
         }));
         paramList.clear();
         paramList.add(new Token(0, 0, Token.TokenType.WORD, "regexp"));
         paramList.add(new Token(0, 0, Token.TokenType.WORD, "replacement"));
         paramList.add(new Token(0, 0, Token.TokenType.WORD, "target"));
-        functions.put("gsub", new BuiltInFunctionDefinitionNode("gsub", paramList, false, (params) -> {
-            Pattern stringPattern = Pattern.compile(params.get("regexp").getData());
+        functions.put("gsub", new BuiltInFunctionDefinitionNode("gsub", paramList, false, (arguments) -> {
+            Pattern stringPattern = Pattern.compile(arguments[0].getData());
             Matcher patternMatcher;
             int numberOfMatches = 0;
-            if(params.size() == 2) {
-                patternMatcher = stringPattern.matcher(globalVariables.get("$0").getData());
+            if(arguments.length == 2) {
+                patternMatcher = stringPattern.matcher(lineManager.getRecord().getData());
                 while(patternMatcher.find()) {
                     numberOfMatches++;
                 }
-                globalVariables.get("$0").setData(globalVariables.get("$0").getData().replaceAll(params.get("regexp").getData(), params.get("replacement").getData())); //we need to actually store the result
-                return String.valueOf(numberOfMatches);
+                lineManager.getRecord().setData(lineManager.getRecord().getData().replaceAll(arguments[0].getData(), arguments[1].getData())); //we need to actually store the result
+                return new InterpreterDataType(numberOfMatches);
             }
-            patternMatcher = stringPattern.matcher(params.get("target").getData());
+            patternMatcher = stringPattern.matcher(arguments[2].getData());
             while(patternMatcher.find()) {
                 numberOfMatches++;
             }
-            var tempString = params.get("target").getData().replaceAll(params.get("regexp").getData(), params.get("replacement").getData());
-            params.get("target").setData(tempString);
-            return String.valueOf(numberOfMatches);
+            var tempString = arguments[2].getData().replaceAll(arguments[0].getData(), arguments[1].getData());
+            setTarget(arguments[2], tempString);
+            return new InterpreterDataType(numberOfMatches);
         }));
         paramList.removeLast();
         ((BuiltInFunctionDefinitionNode)functions.get("gsub")).getAltSignatures().add(new LinkedList<>(paramList));
         paramList.add(new Token(0, 0, Token.TokenType.WORD, "target"));
-        functions.put("sub", new BuiltInFunctionDefinitionNode("sub", paramList, false, (params) -> {
-            Pattern stringPattern = Pattern.compile(params.get("regexp").getData());
+        functions.put("sub", new BuiltInFunctionDefinitionNode("sub", paramList, false, (arguments) -> {
+            Pattern stringPattern = Pattern.compile(arguments[0].getData());
             Matcher patternMatcher;
             int numberOfMatches = 0;
-            if(params.size() == 2) {
-                patternMatcher = stringPattern.matcher(globalVariables.get("$0").getData());
+            if(arguments.length == 2) {
+                patternMatcher = stringPattern.matcher(lineManager.getRecord().getData());
                 if(patternMatcher.find()) {
                     numberOfMatches++;
                 }
-                globalVariables.get("$0").setData(globalVariables.get("$0").getData().replaceFirst(params.get("regexp").getData(), params.get("replacement").getData()));
-                return String.valueOf(numberOfMatches);
+                lineManager.getRecord().setData(lineManager.getRecord().getData().replaceFirst(arguments[0].getData(), arguments[1].getData()));
+                return new InterpreterDataType(numberOfMatches);
             }
-            patternMatcher = stringPattern.matcher(params.get("target").getData());
+            patternMatcher = stringPattern.matcher(arguments[2].getData());
             if(patternMatcher.find()) {
                 numberOfMatches++;
             }
-            var tempString = params.get("target").getData().replaceFirst(params.get("regexp").getData(), params.get("replacement").getData());
-            params.get("target").setData(tempString);
-            return String.valueOf(numberOfMatches);
+            var tempString = arguments[2].getData().replaceFirst(arguments[0].getData(), arguments[1].getData());
+            setTarget(arguments[2], tempString);
+            return new InterpreterDataType(numberOfMatches);
         }));
         paramList.removeLast();
         ((BuiltInFunctionDefinitionNode) functions.get("sub")).getAltSignatures().add(new LinkedList<>(paramList));
         paramList.clear();
         paramList.add(new Token(0, 0, Token.TokenType.WORD, "testString"));
         paramList.add(new Token(0, 0, Token.TokenType.WORD, "regexp"));
-        functions.put("match", new BuiltInFunctionDefinitionNode("match", paramList, false, (params) -> {
-            Pattern stringPattern = Pattern.compile(params.get("regexp").getData());
-            Matcher patternMatcher = stringPattern.matcher(params.get("testString").getData());
+        functions.put("match", new BuiltInFunctionDefinitionNode("match", paramList, false, (arguments) -> {
+            Pattern stringPattern = Pattern.compile(arguments[1].getData());
+            Matcher patternMatcher = stringPattern.matcher(arguments[0].getData());
 
             if(patternMatcher.find()) {
-                globalVariables.put("RSTART", new InterpreterDataType(String.valueOf(patternMatcher.start() + 1)));
-                globalVariables.put("RLENGTH", new InterpreterDataType(String.valueOf(patternMatcher.end() + 1 - patternMatcher.start() + 1)));
-                return globalVariables.get("RSTART").getData();
+                matchStart.setNumber(patternMatcher.start() + 1);
+                matchLength.setNumber(patternMatcher.end() - patternMatcher.start());
+                return new InterpreterDataType(matchStart.getNumber());
             }
             else {
-                globalVariables.put("RSTART", new InterpreterDataType(String.valueOf(0)));
-                globalVariables.put("RLENGTH", new InterpreterDataType(String.valueOf(-1)));
-                return globalVariables.get("RSTART").getData();
+                matchStart.setNumber(0);
+                matchLength.setNumber(-1);
+                return new InterpreterDataType(matchStart.getNumber());
             }
         }));
         paramList.clear();
         paramList.add(new Token(0, 0, Token.TokenType.WORD, "testString"));
         paramList.add(new Token(0, 0, Token.TokenType.WORD, "regexp"));
-        functions.put("index", new BuiltInFunctionDefinitionNode("index", paramList, false, (params) -> {
-            Pattern stringPattern = Pattern.compile(params.get("regexp").getData());
-            Matcher patternMatcher = stringPattern.matcher(params.get("testString").getData());
+        functions.put("index", new BuiltInFunctionDefinitionNode("index", paramList, false, (arguments) -> {
+            Pattern stringPattern = Pattern.compile(arguments[1].getData());
+            Matcher patternMatcher = stringPattern.matcher(arguments[0].getData());
 
             if(patternMatcher.find()) {
-                return String.valueOf(patternMatcher.start()+1);
+                return new InterpreterDataType(patternMatcher.start()+1);
             }
-            return String.valueOf(0);
+            return new InterpreterDataType(0);
         }));
         paramList.clear();
         paramList.add(new Token(0, 0, Token.TokenType.WORD, "testString"));
-        functions.put("length", new BuiltInFunctionDefinitionNode("length", paramList, false, (params) -> String.valueOf(params.get("testString").getData().length())));
-        functions.put("tolower", new BuiltInFunctionDefinitionNode("tolower", paramList, false, (params) -> params.get("testString").getData().toLowerCase()));
-        functions.put("toupper", new BuiltInFunctionDefinitionNode("toupper", paramList, false, (params) -> params.get("testString").getData().toUpperCase()));
+        functions.put("length", new BuiltInFunctionDefinitionNode("length", paramList, false, (arguments) -> new InterpreterDataType(arguments[0].getData().length())));
+        functions.put("tolower", new BuiltInFunctionDefinitionNode("tolower", paramList, false, (arguments) -> new InterpreterDataType(arguments[0].getData().toLowerCase())));
+        functions.put("toupper", new BuiltInFunctionDefinitionNode("toupper", paramList, false, (arguments) -> new InterpreterDataType(arguments[0].getData().toUpperCase())));
         paramList.clear();
         paramList.add(new Token(0, 0, Token.TokenType.WORD, "stringToSplit"));
         paramList.add(new Token(0, 0, Token.TokenType.WORD, "targetArray"));
         paramList.add(new Token(0, 0, Token.TokenType.WORD, "fieldSeparator"));
-        functions.put("split", new BuiltInFunctionDefinitionNode("split", paramList, false, (params) -> {
+        functions.put("split", new BuiltInFunctionDefinitionNode("split", paramList, false, (arguments) -> {
             String[] targetArray;
-            if(params.size() == 2) {
-                targetArray = params.get("stringToSplit").getData().split(globalVariables.get("FS").getData());
-                for(int i = 0; i < targetArray.length; i++) {
-                    ((InterpreterArrayDataType)params.get("targetArray")).getArrayData().put(String.valueOf(i), new InterpreterDataType(targetArray[i]));
-                }
-                return String.valueOf(targetArray.length);
+            if(arguments.length == 2) {
+                targetArray = fieldSeparatorPattern.split(arguments[0].getData());
+            }
+            else {
+                targetArray = arguments[0].getData().split(arguments[2].getData());
             }
-            targetArray = params.get("stringToSplit").getData().split(params.get("fieldSeparator").getData());
             for(int i = 0; i < targetArray.length; i++) {
-                ((InterpreterArrayDataType)params.get("targetArray")).getArrayData().put(String.valueOf(i), new InterpreterDataType(targetArray[i]));
+                ((InterpreterArrayDataType)arguments[1]).getArrayData().put(intern(String.valueOf(i)), new InterpreterDataType(intern(targetArray[i]), true));
             }
-            return String.valueOf(targetArray.length);
+            return new InterpreterDataType(targetArray.length);
         }));
         paramList.removeLast();
         ((BuiltInFunctionDefinitionNode)functions.get("split")).getAltSignatures().add(new LinkedList<>(paramList));
@@ -221,67 +458,282 @@ public class Interpreter {
         paramList.add(new Token(0, 0, Token.TokenType.WORD, "targetString"));
         paramList.add(new Token(0, 0, Token.TokenType.WORD, "subStringStart"));
         paramList.add(new Token(0, 0, Token.TokenType.WORD, "subStringLength"));
-        functions.put("substr", new BuiltInFunctionDefinitionNode("substr", paramList, false, (params) -> {
-            if(params.size() == 3) {
-                return params.get("targetString").getData().substring(Integer.parseInt(params.get("subStringStart").getData()) - 1, Integer.parseInt(params.get("subStringStart").getData())-1 + Integer.parseInt(params.get("subStringLength").getData()));
+        functions.put("substr", new BuiltInFunctionDefinitionNode("substr", paramList, false, (arguments) -> {
+            var start = (int) arguments[1].getNumber() - 1;
+            if(arguments.length == 3) {
+                return new InterpreterDataType(arguments[0].getData().substring(start, start + (int) arguments[2].getNumber()));
             }
-            return params.get("targetString").getData().substring(Integer.parseInt(params.get("subStringStart").getData()) - 1);
+            return new InterpreterDataType(arguments[0].getData().substring(start));
         }));
         paramList.removeLast();
         ((BuiltInFunctionDefinitionNode)functions.get("substr")).getAltSignatures().add(new LinkedList<>(paramList));
 
         if(inputFile != null) {
-            globalVariables.put("FILENAME", new InterpreterDataType(inputFile.getFileName().toString()));
+            putGlobal("FILENAME", new InterpreterDataType(inputFile.getFileName().toString()));
         }
         else {
-            globalVariables.put("FILENAME", new InterpreterDataType(null));
-        }
-        globalVariables.put("FS", new InterpreterDataType(" "));
-        globalVariables.put("NF", new InterpreterDataType("0"));
-        globalVariables.put("NR", new InterpreterDataType("0"));
-        globalVariables.put("OFMT", new InterpreterDataType("%.6g"));
-        globalVariables.put("OFS", new InterpreterDataType(" "));
-        globalVariables.put("ORS", new InterpreterDataType("\n"));
+            putGlobal("FILENAME", new InterpreterDataType((String) null));
+        }
+        //the special variables are never replaced in their slots, so they can be held directly
+        fieldSeparator = new SpecialInterpreterDataType(" ", this::compileFieldSeparator);
+        fieldPatternSource = new SpecialInterpreterDataType("", this::compileFieldPattern);
+        numberOfFields = new InterpreterDataType(0);
+        recordNumber = new InterpreterDataType(0);
+        fileRecordNumber = new InterpreterDataType(0);
+        matchStart = new InterpreterDataType(0);
+        matchLength = new InterpreterDataType(-1);
+        compileFieldSeparator();
+        compileFieldPattern();
+        putGlobal("FS", fieldSeparator);
+        putGlobal("FPAT", fieldPatternSource);
+        putGlobal("NF", numberOfFields);
+        putGlobal("NR", recordNumber);
+        putGlobal("FNR", fileRecordNumber);
+        putGlobal("RSTART", matchStart);
+        putGlobal("RLENGTH", matchLength);
+        putGlobal("OFMT", new InterpreterDataType("%.6g"));
+        outputFieldSeparator = new InterpreterDataType(" ");
+        putGlobal("OFS", outputFieldSeparator);
+        putGlobal("ORS", new InterpreterDataType("\n"));
 
+        framePools = new IdentityHashMap<>();
         for(FunctionDefinitionNode function : programNode.getFunctionNodes()) {
             functions.put(function.getFunctionName(), function);
+            framePools.put(function, new FramePool(function.getParameters().size()));
+        }
+        new FunctionLinker(this, functions).link(programNode);
+        var predicateCompiler = new PredicateCompiler(this);
+        predicateCompiler.reorderConditions(programNode);
+        if(executionMode == ExecutionMode.TREE_WALKING || executionMode == ExecutionMode.TIERED) {
+            blockPredicates = predicateCompiler.compileConditions(programNode);
+            countedLoops = CountedLoop.findAll(programNode);
+            if(executionMode == ExecutionMode.TIERED) {
+                tieredCompiler = new TieredCompiler(this, programNode);
+            }
+        }
+        else if(executionMode == ExecutionMode.CLOSURE_COMPILED) {
+            var compiler = new ClosureCompiler(this, programNode);
+            compiledBeginBlocks = compiler.compileBlocks(programNode.getBeginNodes());
+            compiledBlocks = compiler.compileBlocks(programNode.getBlockNodes());
+            compiledEndBlocks = compiler.compileBlocks(programNode.getEndNodes());
+        }
+        else if(executionMode == ExecutionMode.BYTECODE || executionMode == ExecutionMode.JVM_BYTECODE) {
+            var compiler = new BytecodeCompiler(this, programNode);
+            var beginChunk = compiler.compileBlocks("BEGIN", programNode.getBeginNodes());
+            var mainChunk = compiler.compileBlocks("BLOCK", programNode.getBlockNodes());
+            var endChunk = compiler.compileBlocks("END", programNode.getEndNodes());
+            if(executionMode == ExecutionMode.JVM_BYTECODE) {
+                try {
+                    jvmRuntime = new JvmRuntime(this, beginChunk, mainChunk, endChunk);
+                }
+                catch(UnsupportedOperationException e) {
+                    //programs too large for JVM methods run in the VirtualMachine instead
+                }
+            }
+            if(jvmRuntime == null) {
+                virtualMachine = new VirtualMachine(this, beginChunk, mainChunk, endChunk);
+            }
+        }
+    }
+
+    /**
+     * recompiles the pattern that splits records after an assignment to FS
+     */
+    private void compileFieldSeparator() {
+        fieldSeparatorPattern = Pattern.compile(fieldSeparator.getData());
+    }
+
+    /**
+     * recompiles the pattern that matches fields after an assignment to FPAT. An empty
+     * FPAT turns field matching off, so records are split by FS again.
+     */
+    private void compileFieldPattern() {
+        var source = fieldPatternSource.getData();
+        fieldPattern = source == null || source.isEmpty() ? null : Pattern.compile(source);
+    }
+
+    /**
+     * @param name : the name of a global variable, such as a special variable
+     * @param value : the global variable's new InterpreterDataType
+     */
+    private void putGlobal(String name, InterpreterDataType value) {
+        globalVariables[globalSlots.get(name)] = value;
+    }
+
+    /**
+     * deduplicates field values and array keys through a bounded table, which saves memory
+     * when the input has columns with few distinct values
+     *
+     * @param capacity : the maximum number of distinct Strings kept in the table
+     */
+    public void enableInterning(int capacity) {
+        interner = new StringInterner(capacity);
+    }
+
+    /**
+     * sets how many times a block or user function runs in the tree before it is compiled.
+     * This only applies to ExecutionMode.TIERED.
+     *
+     * @param threshold : the number of interpreted runs, TieredCompiler.DEFAULT_THRESHOLD unless set
+     */
+    public void setCompileThreshold(int threshold) {
+        if(tieredCompiler != null) {
+            tieredCompiler.setThreshold(threshold);
         }
     }
 
+    /**
+     * @return the interning table with its hit-rate statistics, or null if interning is not enabled
+     */
+    public StringInterner getInterner() {
+        return interner;
+    }
+
     /**
      * walks through the program node and executes the program
      */
     public void interpretProgram() {
-        for(BlockNode beginBlock: program.getBeginNodes()) {
-            interpretBlock(beginBlock);
+        if(executionMode == ExecutionMode.CLOSURE_COMPILED) {
+            runCompiledProgram();
+            return;
+        }
+        if(jvmRuntime != null) {
+            jvmRuntime.run();
+            return;
+        }
+        if(virtualMachine != null) {
+            virtualMachine.run();
+            return;
         }
-        lineManager.splitAndAssign();
-         do {
-            for(BlockNode block: program.getBlockNodes()) {
-                interpretBlock(block);
+        var retVal = interpretBlocks(program.getBeginNodes());
+        if(retVal != ReturnType.EXIT) {
+            lineManager.splitAndAssign();
+            do {
+                retVal = interpretBlocks(program.getBlockNodes());
+            } while(retVal != ReturnType.EXIT && lineManager.splitAndAssign());
+        }
+        interpretBlocks(program.getEndNodes());
+    }
+
+    /**
+     * interprets blocks in order until one of them runs next or exit
+     *
+     * @param blocks : the BEGIN, END, or general blocks of the program
+     * @return ReturnType.NEXT or ReturnType.EXIT if a block ran one of them, or ReturnType.NONE
+     */
+    private ReturnType interpretBlocks(List<BlockNode> blocks) {
+        for(BlockNode block : blocks) {
+            var retVal = interpretBlock(block);
+            if(retVal.isNextOrExit()) {
+                return retVal;
+            }
+        }
+        return ReturnType.NONE;
+    }
+
+    /**
+     * runs the blocks compiled by the ClosureCompiler with the same input loop as interpretProgram
+     */
+    private void runCompiledProgram() {
+        var retVal = runCompiledBlocks(compiledBeginBlocks);
+        if(retVal != ReturnType.EXIT) {
+            lineManager.splitAndAssign();
+            do {
+                retVal = runCompiledBlocks(compiledBlocks);
+            } while(retVal != ReturnType.EXIT && lineManager.splitAndAssign());
+        }
+        runCompiledBlocks(compiledEndBlocks);
+    }
+
+    /**
+     * @param blocks : blocks compiled by the ClosureCompiler
+     * @return ReturnType.NEXT or ReturnType.EXIT if a block ran one of them, or ReturnType.NONE
+     */
+    private ReturnType runCompiledBlocks(ClosureCompiler.StatementExecutor[] blocks) {
+        for(ClosureCompiler.StatementExecutor block : blocks) {
+            var retVal = block.execute(null);
+            if(retVal.isNextOrExit()) {
+                return retVal;
             }
-        } while(lineManager.splitAndAssign());
-        for(BlockNode endBlock: program.getEndNodes()) {
-            interpretBlock(endBlock);
         }
+        return ReturnType.NONE;
+    }
+
+    /**
+     * makes the next line of input the current record
+     *
+     * @return true if there was a line left
+     */
+    boolean nextRecord() {
+        return lineManager.splitAndAssign();
+    }
+
+    /**
+     * @return the globals, indexed by the slots the VariableResolver assigned
+     */
+    InterpreterDataType[] getGlobalVariables() {
+        return globalVariables;
+    }
+
+    /**
+     * @return the slot of NF, which has to be brought up to date before it is read
+     */
+    int getNumberOfFieldsSlot() {
+        return numberOfFieldsSlot;
+    }
+
+    /**
+     * @param function : a user function
+     * @return the pool of the function's call frames
+     */
+    FramePool getFramePool(FunctionDefinitionNode function) {
+        return framePools.get(function);
+    }
+
+    /**
+     * @param index : the field number
+     * @return the field's InterpreterDataType
+     */
+    InterpreterDataType getField(int index) {
+        return lineManager.getField(index);
+    }
 
+    /**
+     * produces the remaining fields of the current record, so that NF is up to date
+     */
+    void finishFields() {
+        if(lineManager.hasPendingFields()) {
+            lineManager.finishFields();
+        }
     }
 
     /**
      * interprets the blocks of a program
      *
      * @param block : a BEGIN, END, or general BLOCK
+     * @return ReturnType.NEXT or ReturnType.EXIT if the block ran one of them, or ReturnType.NONE
      */
-    private void interpretBlock(BlockNode block) {
-        var condition = "0";
-        if(block.getCondition().isPresent()) {
-            condition = getIDT(block.getCondition().get(), null).getData();
+    private ReturnType interpretBlock(BlockNode block) {
+        if(tieredCompiler != null) {
+            var compiledBlock = tieredCompiler.getCompiledBlock(block);
+            if(compiledBlock != null) {
+                return compiledBlock.execute(null);
+            }
         }
-        if(condition.compareTo("1") == 0 || block.getCondition().isEmpty()) {
-            for(StatementNode statement: block.getStatements()) {
-                processStatement(statement, null);
+        try {
+            if(block.getCondition().isEmpty() || blockPredicates.get(block).test()) {
+                for(StatementNode statement: block.getStatements()) {
+                    var retVal = processStatement(statement, null);
+                    if(retVal.isNextOrExit()) {
+                        return retVal;
+                    }
+                }
             }
         }
+        catch(FlowControlException e) {
+            return e.getFlowControl();
+        }
+        return ReturnType.NONE;
     }
 
     /**
@@ -291,51 +743,95 @@ public class Interpreter {
      * @param localVariables : the possible local variables of a function
      * @return the ReturnType based on AWK flow control
      */
-    private ReturnType processStatement(StatementNode statement, HashMap<String, InterpreterDataType> localVariables) {
-        if(statement instanceof BreakNode) {
-            return new ReturnType(ReturnType.FlowControlStatement.BREAK);
-        }
-        else if(statement instanceof ContinueNode) {
-            return new ReturnType(ReturnType.FlowControlStatement.CONTINUE);
-        }
-        else if(statement instanceof DeleteNode) {
-            return evaluateDeleteStatement((DeleteNode) statement, localVariables);
-        }
-        else if(statement instanceof DoWhileNode) {
-            return evaluateDoWhile((DoWhileNode) statement, localVariables);
-        }
-        else if(statement instanceof ForNode) {
-            return evaluateForLoop((ForNode) statement, localVariables);
+    private ReturnType processStatement(StatementNode statement, InterpreterDataType[] localVariables) {
+        switch(statement.getNodeType()) {
+            case BREAK:
+                return ReturnType.BREAK;
+            case CONTINUE:
+                return ReturnType.CONTINUE;
+            case DELETE:
+                return evaluateDeleteStatement((DeleteNode) statement, localVariables);
+            case DO_WHILE:
+                return evaluateDoWhile((DoWhileNode) statement, localVariables);
+            case FOR:
+                return evaluateForLoop((ForNode) statement, localVariables);
+            case FOR_IN:
+                return evaluateForInLoop((ForInNode) statement, localVariables);
+            case IF:
+                return evaluateIfStatements((IfNode) statement, localVariables);
+            case RETURN:
+                if(((ReturnNode) statement).getParameter().isPresent()) {
+                    return new ReturnType(ReturnType.FlowControlStatement.RETURN, getIDT(((ReturnNode) statement).getParameter().get(), localVariables));
+                }
+                return ReturnType.RETURN;
+            case WHILE:
+                return evaluateWhile((WhileNode) statement, localVariables);
+            case FUNCTION_CALL:
+                if(isNextOrExit((FunctionCallNode) statement)) {
+                    return evaluateNextOrExit((FunctionCallNode) statement, localVariables);
+                }
+                getIDT(statement, localVariables);
+                return ReturnType.NONE;
+            case ASSIGNMENT:
+                getIDT(statement, localVariables);
+                return ReturnType.NONE;
+            default:
+                throw new RuntimeException();
         }
-        else if(statement instanceof ForInNode) {
-            return evaluateForInLoop((ForInNode) statement, localVariables);
+    }
+
+    /**
+     * @param node : a function call
+     * @return true if the call is a next statement or an exit statement
+     */
+    boolean isNextOrExit(FunctionCallNode node) {
+        return (node.getFunctionName().equals("next") && node.getParameters().isEmpty())
+                || (node.getFunctionName().equals("exit") && node.getParameters().size() <= 1);
+    }
+
+    /**
+     * interprets a next or exit statement. The status of exit is evaluated but not used,
+     * since the interpreter does not report one.
+     *
+     * @param statement : the next or exit call
+     * @param localVariables : the possible local variables of a function
+     * @return ReturnType.NEXT or ReturnType.EXIT
+     */
+    private ReturnType evaluateNextOrExit(FunctionCallNode statement, InterpreterDataType[] localVariables) {
+        if(statement.getFunctionName().equals("next")) {
+            return ReturnType.NEXT;
         }
-        else if(statement instanceof IfNode) {
-            return evaluateIfStatements((IfNode) statement, localVariables);
+        if(!statement.getParameters().isEmpty()) {
+            getIDT(statement.getParameters().getFirst(), localVariables);
         }
-        else if(statement instanceof ReturnNode) {
-            if(((ReturnNode) statement).getParameter().isPresent()) {
-                return new ReturnType(ReturnType.FlowControlStatement.RETURN, getIDT(((ReturnNode) statement).getParameter().get(), localVariables).getData());
+        return ReturnType.EXIT;
+    }
+
+    /**
+     * interprets a while loop
+     *
+     * @param statement : the statement currently being evaluated
+     * @param localVariables : the possible local variables of a function
+     * @return the corresponding ReturnType based on the AWK language
+     */
+    private ReturnType evaluateWhile(WhileNode statement, InterpreterDataType[] localVariables) {
+        var countedLoop = countedLoops.get(statement);
+        if(countedLoop != null) {
+            var counter = loadVariable(countedLoop.getCounter(), localVariables);
+            if(counter != null && counter.comparesAsNumber()) {
+                return evaluateCountedLoop(countedLoop, counter, localVariables);
             }
-            return new ReturnType(ReturnType.FlowControlStatement.RETURN);
         }
-        else if(statement instanceof WhileNode) {
-            while(getIDT(((WhileNode) statement).getCondition(), localVariables).getData().compareTo("1") == 0) {
-                var retVal = interpretListOfStatements(((WhileNode) statement).getLoopBlock().getStatements(), localVariables);
-                if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.BREAK) {
-                    break;
-                }
-                else if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.RETURN) {
-                    return retVal;
-                }
+        while(evaluateCondition(statement.getCondition(), localVariables)) {
+            var retVal = interpretListOfStatements(statement.getLoopBlock().getStatements(), localVariables);
+            if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.BREAK) {
+                break;
+            }
+            else if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.RETURN || retVal.isNextOrExit()) {
+                return retVal;
             }
-            return new ReturnType(ReturnType.FlowControlStatement.NONE);
-        }
-        else if(!(statement instanceof AssignmentNode) && !(statement instanceof FunctionCallNode)) {
-                throw new RuntimeException();
         }
-        getIDT(statement, localVariables);
-        return new ReturnType(ReturnType.FlowControlStatement.NONE);
+        return ReturnType.NONE;
     }
 
     /**
@@ -345,7 +841,7 @@ public class Interpreter {
      * @param localVariables the possible local variables of a function
      * @return a ReturnType of flow control type NONE unless another type of flow control statement is encountered first
      */
-    private ReturnType interpretListOfStatements(LinkedList<StatementNode> statements, HashMap<String, InterpreterDataType> localVariables) {
+    private ReturnType interpretListOfStatements(LinkedList<StatementNode> statements, InterpreterDataType[] localVariables) {
         ReturnType retVal;
         for(StatementNode statement: statements) {
             retVal = processStatement(statement, localVariables);
@@ -353,7 +849,7 @@ public class Interpreter {
                 return retVal;
             }
         }
-        return new ReturnType(ReturnType.FlowControlStatement.NONE);
+        return ReturnType.NONE;
     }
 
     /**
@@ -363,117 +859,202 @@ public class Interpreter {
      * @param localVariables : the possible local variables of a function
      * @return a new InterpreterDataType with the result of the operation
      */
-    private InterpreterDataType getIDT(Node node, HashMap<String, InterpreterDataType> localVariables) {
-        InterpreterDataType left;
-        InterpreterDataType right;
-
-        if(node instanceof AssignmentNode) {
-            if(!(((AssignmentNode) node).getTarget() instanceof VariableReferenceNode) && !(((AssignmentNode) node).getTarget() instanceof OperationNode)) {
-                throw new RuntimeException("invalid assignment target");
-            }
-            else if(((AssignmentNode) node).getTarget() instanceof OperationNode) {
-                if(((OperationNode) ((AssignmentNode) node).getTarget()).getOperationType() != OperationNode.OperationType.FIELDREF){
-                    throw new RuntimeException("invalid assignment target");
+    private InterpreterDataType getIDT(Node node, InterpreterDataType[] localVariables) {
+        switch(node.getNodeType()) {
+            case ASSIGNMENT:
+                return evaluateAssignment((AssignmentNode) node, localVariables);
+            case CONSTANT:
+                if(node instanceof LiteralNode) {
+                    return ((LiteralNode) node).getValue();
+                }
+                return new LiteralNode((ConstantNode) node).getValue();
+            case FUNCTION_CALL:
+                return runFunctionCall((FunctionCallNode) node, localVariables);
+            case PATTERN:
+                throw new RuntimeException("illegal pattern placement");
+            case TERNARY:
+                if(evaluateCondition(((TernaryNode) node).getBooleanExpression(), localVariables)) {
+                    return getIDT(((TernaryNode) node).getTrueCase(), localVariables);
                 }
-            }
-            right = getIDT(((AssignmentNode) node).getAssignment(), localVariables);
-            left = getIDT(((AssignmentNode) node).getTarget(), localVariables);
-            left.setData(right.getData());
-            return left;
-        }
-        if(node instanceof ConstantNode) {
-            return new InterpreterDataType(node.toString());
-        }
-        if(node instanceof FunctionCallNode) {
-            return new InterpreterDataType(runFunctionCall((FunctionCallNode) node, localVariables));
-        }
-        if(node instanceof PatternNode) {
-            throw new RuntimeException("illegal pattern placement");
-        }
-        if(node instanceof TernaryNode) {
-            var conditional = getIDT(((TernaryNode) node).getBooleanExpression(), localVariables);
-            conditional = getBooleanResult(conditional);
-            if(conditional.getData().compareTo("1") == 0) {
-                return getIDT(((TernaryNode) node).getTrueCase(), localVariables);
-            }
-            else {
                 return getIDT(((TernaryNode) node).getFalseCase(), localVariables);
-            }
-        }
-        if(node instanceof VariableReferenceNode) {
-            return evaluateVariableReference((VariableReferenceNode) node, localVariables);
-        }
-        else {
-            return evaluateOperation((OperationNode) node, localVariables);
+            case VARIABLE_REFERENCE:
+                return evaluateVariableReference((VariableReferenceNode) node, localVariables);
+            default:
+                return evaluateOperation((OperationNode) node, localVariables);
         }
     }
 
     /**
-     * interprets a function call
+     * evaluates an expression whose value may be modified, such as the operand of an increment.
+     * Constants and the results of conditions share one immutable value between evaluations,
+     * so they are given a copy.
      *
-     * @param node : a function call node
+     * @param node : the expression that is currently being interpreted
      * @param localVariables : the possible local variables of a function
-     * @return "" for now
+     * @return the value of the expression, which may be modified
      */
-    private String runFunctionCall(FunctionCallNode node, HashMap<String, InterpreterDataType> localVariables) {
-        var map = new HashMap<String, InterpreterDataType>();
-        var function = functions.get(node.getFunctionName());
-        LinkedList<Token> parameters = null;
-        if(function == null) {
-            throw new RuntimeException("function not defined");
-        }
-        if(function.getParameters().size() != node.getParameters().size()) {
-            if(!(function instanceof BuiltInFunctionDefinitionNode)) {
-                throw new RuntimeException("function called with more parameters than defined");
-            }
-            else if(!((BuiltInFunctionDefinitionNode) function).isVariadic()) {
-                for(LinkedList<Token> signature : ((BuiltInFunctionDefinitionNode) function).getAltSignatures()) {
-                    if(signature.size() == node.getParameters().size()) {
-                        parameters = signature;
-                        break;
-                    }
-                }
-                if(parameters == null) {
-                    throw new RuntimeException("function called with more parameters than defined");
-                }
-            }
-            else {
-                parameters = function.getParameters();
-            }
+    private InterpreterDataType getTarget(Node node, InterpreterDataType[] localVariables) {
+        var value = getIDT(node, localVariables);
+        if(value instanceof ImmutableInterpreterDataType) {
+            return new InterpreterDataType(value);
         }
-        else {
-            parameters = function.getParameters();
+        return value;
+    }
+
+    /**
+     * stores the result of a builtin in the argument it modifies, such as the target of sub. An
+     * immutable argument is a constant or the result of a condition rather than a variable, so the
+     * result is dropped, as it is for any other value that is not a variable.
+     *
+     * @param target : the argument being modified
+     * @param data : the result
+     */
+    private static void setTarget(InterpreterDataType target, String data) {
+        if(!(target instanceof ImmutableInterpreterDataType)) {
+            target.setData(data);
         }
-        if(function instanceof BuiltInFunctionDefinitionNode) {
-            if(((BuiltInFunctionDefinitionNode) function).isVariadic()) {
-                for(int i = 0; i < parameters.size(); i++) {
-                    if(i == parameters.size()-1) {
-                        map.put(parameters.get(i).getTokenValue(), new InterpreterArrayDataType());
-                        for(int j = i; j < node.getParameters().size(); j++) {
-                            ((InterpreterArrayDataType)map.get(parameters.get(i).getTokenValue())).getArrayData().put(String.valueOf(j-i), getIDT(node.getParameters().get(j), localVariables));
-                        }
-                        break;
-                    }
-                    map.put(parameters.get(i).getTokenValue(), getIDT(node.getParameters().get(i), localVariables));
+    }
+
+    /**
+     * interprets an assignment
+     *
+     * @param node : the assignment that is currently being interpreted
+     * @param localVariables : the possible local variables of a function
+     * @return the assigned InterpreterDataType
+     */
+    private InterpreterDataType evaluateAssignment(AssignmentNode node, InterpreterDataType[] localVariables) {
+        InterpreterDataType left;
+        InterpreterDataType right;
+
+        switch(node.getTarget().getNodeType()) {
+            case VARIABLE_REFERENCE:
+                break;
+            case OPERATION:
+                if(((OperationNode) node.getTarget()).getOperationType() != OperationNode.OperationType.FIELDREF) {
+                    throw new RuntimeException("invalid assignment target");
                 }
+                break;
+            default:
+                throw new RuntimeException("invalid assignment target");
+        }
+        if(node.getAssignment().getNodeType() == Node.NodeType.OPERATION && isIncrementOrDecrement((OperationNode) node.getAssignment())) {
+            return evaluateIncrementAndDecrement((OperationNode) node.getAssignment(), localVariables);
+        }
+        if(isAppendToTarget(node)) {
+            left = getTarget(node.getTarget(), localVariables);
+            if(!(left instanceof InterpreterArrayDataType)) {
+                left.append(evaluateAppendedText((OperationNode) node.getAssignment(), localVariables));
+                return left;
             }
-            else {
-                var i = 0;
-                for(Token parameterName: parameters) {
-                    map.put(parameterName.getTokenValue(), getIDT(node.getParameters().get(i++), localVariables));
-                }
+        }
+        right = getIDT(node.getAssignment(), localVariables);
+        left = getTarget(node.getTarget(), localVariables);
+        left.assign(right);
+        return left;
+    }
+
+    /**
+     * interprets a function call
+     *
+     * @param node : a function call node
+     * @param localVariables : the possible local variables of a function
+     * @return the value the function returns
+     */
+    private InterpreterDataType runFunctionCall(FunctionCallNode node, InterpreterDataType[] localVariables) {
+        var function = node.getFunction();
+        if(function instanceof BuiltInFunctionDefinitionNode) {
+            var arguments = new InterpreterDataType[node.getParameters().size()];
+            for(int i = 0; i < arguments.length; i++) {
+                arguments[i] = getIDT(node.getParameters().get(i), localVariables);
             }
-            return ((BuiltInFunctionDefinitionNode) function).execute(map);
+            return callBuiltIn((BuiltInFunctionDefinitionNode) function, arguments);
         }
         else {
-            var i = 0;
-            for(Token parameterName: parameters) {
-                map.put(parameterName.getTokenValue(), getIDT(node.getParameters().get(i++), localVariables));
+            //parameters without an argument are the function's local variables, left undefined until first use
+            var compiledFunction = tieredCompiler == null ? null : tieredCompiler.getCompiledFunction(function);
+            var framePool = framePools.get(function);
+            var frame = framePool.acquire();
+            try {
+                for(int i = 0; i < node.getParameters().size(); i++) {
+                    var argument = getIDT(node.getParameters().get(i), localVariables);
+                    if(!(argument instanceof InterpreterArrayDataType)) {
+                        var scalarArgument = new InterpreterDataType();
+                        scalarArgument.assign(argument);
+                        argument = scalarArgument;
+                    }
+                    frame[i] = argument;
+                }
+                ReturnType retVal;
+                if(compiledFunction != null) {
+                    retVal = compiledFunction.execute(frame);
+                }
+                else {
+                    retVal = interpretListOfStatements(function.getStatements(), frame);
+                }
+                if(retVal.isNextOrExit()) {
+                    throw FlowControlException.of(retVal);
+                }
+                return new InterpreterDataType(retVal.getReturnValue());
+            }
+            finally {
+                framePool.release(frame);
             }
-            return interpretListOfStatements(function.getStatements(), map).getReturnValue();
         }
     }
 
+    /**
+     * finds the parameter list a call binds its arguments to. Builtins may have alternate
+     * signatures, and user functions may be called with fewer arguments than parameters.
+     *
+     * @param function : the function being called
+     * @param argumentCount : the number of arguments in the call
+     * @return the parameters of the matching signature
+     */
+    LinkedList<Token> selectSignature(FunctionDefinitionNode function, int argumentCount) {
+        if(function.getParameters().size() == argumentCount) {
+            return function.getParameters();
+        }
+        if(!(function instanceof BuiltInFunctionDefinitionNode)) {
+            if(argumentCount > function.getParameters().size()) {
+                throw new RuntimeException("function called with more parameters than defined");
+            }
+            return function.getParameters();
+        }
+        if(((BuiltInFunctionDefinitionNode) function).isVariadic()) {
+            return function.getParameters();
+        }
+        for(LinkedList<Token> signature : ((BuiltInFunctionDefinitionNode) function).getAltSignatures()) {
+            if(signature.size() == argumentCount) {
+                return signature;
+            }
+        }
+        throw new RuntimeException("function called with more parameters than defined");
+    }
+
+    /**
+     * runs a builtin with the evaluated arguments of a call, which it reads by position
+     *
+     * @param function : the builtin being called
+     * @param arguments : the evaluated arguments of the call
+     * @return the builtin's result, which is empty for builtins that have none
+     */
+    InterpreterDataType callBuiltIn(BuiltInFunctionDefinitionNode function, InterpreterDataType[] arguments) {
+        var result = function.execute(arguments);
+        return result == null ? new InterpreterDataType() : result;
+    }
+
+    /**
+     * @param arguments : the arguments of printf or sprintf, starting with the format
+     * @return the String forms of the arguments that follow the format
+     */
+    private static String[] formatArguments(InterpreterDataType[] arguments) {
+        var expressions = new String[arguments.length - 1];
+        for(int i = 1; i < arguments.length; i++) {
+            expressions[i - 1] = arguments[i].getData();
+        }
+        return expressions;
+    }
+
     /**
      * interprets n-length chains of if statements
      *
@@ -481,13 +1062,13 @@ public class Interpreter {
      * @param localVariables : the possible local variables of a function
      * @return the ReturnType determined from the block statements
      */
-    private ReturnType evaluateIfStatements(IfNode statement, HashMap<String, InterpreterDataType> localVariables) {
+    private ReturnType evaluateIfStatements(IfNode statement, InterpreterDataType[] localVariables) {
         while(statement.hasNext()) {
             if(statement.getCondition().isEmpty()) {
                 var retVal = interpretListOfStatements(statement.getBlockStatements().getStatements(), localVariables);
                 return retVal;
             }
-            else if(getIDT(statement.getCondition().get(), localVariables).getData().compareTo("1") == 0) {
+            else if(evaluateCondition(statement.getCondition().get(), localVariables)) {
                 var retVal = interpretListOfStatements(statement.getBlockStatements().getStatements(), localVariables);
                 return retVal;
             }
@@ -498,39 +1079,43 @@ public class Interpreter {
             return retVal;
 
         }
-        else if(getIDT(statement.getCondition().get(), localVariables).getData().compareTo("1") == 0) {
+        else if(evaluateCondition(statement.getCondition().get(), localVariables)) {
             var retVal = interpretListOfStatements(statement.getBlockStatements().getStatements(), localVariables);
             if(retVal.getFlowControlType() != ReturnType.FlowControlStatement.NONE) {
                 return retVal;
             }
         }
-        return new ReturnType(ReturnType.FlowControlStatement.NONE);
+        return ReturnType.NONE;
     }
 
     /**
-     * interprets a for-in loop
+     * interprets a for-in loop. The loop runs over the keys the array has when it starts,
+     * so the body may delete or add elements.
      *
      * @param statement : the statement currently being evaluated
      * @param localVariables : the possible local variables of a function
      * @return the corresponding ReturnType based on the AWK language
      */
-    private ReturnType evaluateForInLoop(ForInNode statement, HashMap<String, InterpreterDataType> localVariables) {
+    private ReturnType evaluateForInLoop(ForInNode statement, InterpreterDataType[] localVariables) {
         var reference = getIDT(statement.getInStatement().getRight().get(), localVariables);
         if(!(reference instanceof InterpreterArrayDataType)) {
             throw new RuntimeException("attempt to use scalar reference as array");
         }
-        globalVariables.put(((VariableReferenceNode) statement.getInStatement().getLeft()).getVariableName(), new InterpreterDataType());
-        for(String key: ((InterpreterArrayDataType) reference).getArrayData().keySet()) {
-            globalVariables.get(((VariableReferenceNode) statement.getInStatement().getLeft()).getVariableName()).setData(key);
+        var loopVariable = getIDT(statement.getInStatement().getLeft(), localVariables);
+        if(loopVariable instanceof InterpreterArrayDataType) {
+            throw new RuntimeException("attempt to use array as the variable of a for-in loop");
+        }
+        for(String key: ((InterpreterArrayDataType) reference).getArrayData().keySet().toArray(new String[0])) {
+            loopVariable.setData(key);
             var retVal = interpretListOfStatements(statement.getLoopBlock().getStatements(), localVariables);
             if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.BREAK) {
                 break;
             }
-            else if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.RETURN) {
+            else if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.RETURN || retVal.isNextOrExit()) {
                 return retVal;
             }
         }
-        return new ReturnType(ReturnType.FlowControlStatement.NONE);
+        return ReturnType.NONE;
     }
 
     /**
@@ -540,43 +1125,80 @@ public class Interpreter {
      * @param localVariables : the possible local variables of a function
      * @return the corresponding ReturnType based on the AWK language
      */
-    private ReturnType evaluateForLoop(ForNode statement, HashMap<String, InterpreterDataType> localVariables) {
+    private ReturnType evaluateForLoop(ForNode statement, InterpreterDataType[] localVariables) {
         if(statement.getInitializer().isPresent()) {
             if(!(statement.getInitializer().get() instanceof StatementNode)) {
                 throw new RuntimeException("invalid statement");
             }
             processStatement((StatementNode) statement.getInitializer().get(), localVariables);
         }
+        var countedLoop = countedLoops.get(statement);
+        if(countedLoop != null) {
+            var counter = loadVariable(countedLoop.getCounter(), localVariables);
+            if(counter != null && counter.comparesAsNumber()) {
+                return evaluateCountedLoop(countedLoop, counter, localVariables);
+            }
+        }
         if(statement.getConditional().isEmpty()) {
             while(true) {
                 var retVal = interpretListOfStatements(statement.getLoopBlock().getStatements(), localVariables);
                 if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.BREAK) {
                     break;
                 }
-                else if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.RETURN) {
+                else if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.RETURN || retVal.isNextOrExit()) {
                     return retVal;
                 }
                 if(statement.getPostIterationOperation().isPresent()) {
                     getIDT(statement.getPostIterationOperation().get(), localVariables);
                 }
             }
-            return new ReturnType(ReturnType.FlowControlStatement.NONE);
+            return ReturnType.NONE;
         }
         else {
-            while(getIDT(statement.getConditional().get(), localVariables).getData().compareTo("1") == 0) {
+            while(evaluateCondition(statement.getConditional().get(), localVariables)) {
                 var retVal = interpretListOfStatements(statement.getLoopBlock().getStatements(), localVariables);
                 if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.BREAK) {
                     break;
                 }
-                else if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.RETURN) {
+                else if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.RETURN || retVal.isNextOrExit()) {
                     return retVal;
                 }
                 if(statement.getPostIterationOperation().isPresent()) {
                     getIDT(statement.getPostIterationOperation().get(), localVariables);
                 }
             }
-            return new ReturnType(ReturnType.FlowControlStatement.NONE);
+            return ReturnType.NONE;
+        }
+    }
+
+    /**
+     * interprets a loop that counts a variable toward a bound. The counter stays a primitive, is
+     * compared with the bound as a number whenever the bound is one, and is stored into the
+     * variable after every step without being formatted.
+     *
+     * @param loop : the loop
+     * @param counter : the variable the loop counts with, which holds a number
+     * @param localVariables : the possible local variables of a function
+     * @return the corresponding ReturnType based on the AWK language
+     */
+    private ReturnType evaluateCountedLoop(CountedLoop loop, InterpreterDataType counter, InterpreterDataType[] localVariables) {
+        var value = counter.getNumber();
+        while(true) {
+            var bound = getIDT(loop.getBound(), localVariables);
+            if(!loop.continues(bound.comparesAsNumber() ? compareNumbers(value, bound.getNumber()) : compare(counter, bound))) {
+                break;
+            }
+            var retVal = interpretListOfStatements(loop.getBody(), localVariables);
+            if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.BREAK) {
+                break;
+            }
+            else if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.RETURN || retVal.isNextOrExit()) {
+                return retVal;
+            }
+            value += loop.getStep();
+            counter.setNumber(value);
         }
+        return ReturnType.NONE;
     }
 
     /**
@@ -586,18 +1208,18 @@ public class Interpreter {
      * @param localVariables : the possible local variables of a function
      * @return the corresponding ReturnType based on the AWK language
      */
-    private ReturnType evaluateDoWhile(DoWhileNode statement, HashMap<String, InterpreterDataType> localVariables) {
+    private ReturnType evaluateDoWhile(DoWhileNode statement, InterpreterDataType[] localVariables) {
         do {
             var retVal = interpretListOfStatements(statement.getLoopBlock().getStatements(), localVariables);
             if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.BREAK) {
                 break;
             }
-            else if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.RETURN) {
+            else if(retVal.getFlowControlType() == ReturnType.FlowControlStatement.RETURN || retVal.isNextOrExit()) {
                 return retVal;
             }
 
-        }while(getIDT(statement.getCondition(), localVariables).getData().compareTo("1") == 0);
-        return new ReturnType(ReturnType.FlowControlStatement.NONE);
+        }while(evaluateCondition(statement.getCondition(), localVariables));
+        return ReturnType.NONE;
     }
 
     /**
@@ -607,38 +1229,26 @@ public class Interpreter {
      * @param localVariables : the possible local variables of a function
      * @return a ReturnType of NORMAL FlowControlStatement type
      */
-    private ReturnType evaluateDeleteStatement(DeleteNode statement, HashMap<String, InterpreterDataType> localVariables) {
+    private ReturnType evaluateDeleteStatement(DeleteNode statement, InterpreterDataType[] localVariables) {
         if(!(statement.getReference() instanceof VariableReferenceNode)) {
             throw new RuntimeException("reference expected but instead found: " + statement.getReference().toString());
         }
 
-        if(localVariables != null) {
-            if(localVariables.containsKey(((VariableReferenceNode) statement.getReference()).getVariableName())) {
-                if(!(localVariables.get(((VariableReferenceNode) statement.getReference()).getVariableName()) instanceof InterpreterArrayDataType)) {
-                    throw new RuntimeException("attempt to use scalar reference as an array");
-                }
-                if(((VariableReferenceNode) statement.getReference()).getIndexExpression().isPresent()) {
-                    var index = getIDT(((VariableReferenceNode) statement.getReference()).getIndexExpression().get(), localVariables);
-                    ((InterpreterArrayDataType) localVariables.get(((VariableReferenceNode) statement.getReference()).getVariableName())).getArrayData().remove(index.getData());
-                    return new ReturnType(ReturnType.FlowControlStatement.NONE);
-                }
-                localVariables.remove(((VariableReferenceNode) statement.getReference()).getVariableName());
-                return new ReturnType(ReturnType.FlowControlStatement.NONE);
-            }
+        var reference = (VariableReferenceNode) statement.getReference();
+        var variable = loadVariable(reference, localVariables);
+        if(variable == null) {
+            return ReturnType.NONE;
         }
-        else if(globalVariables.containsKey(((VariableReferenceNode) statement.getReference()).getVariableName())) {
-            if(!(globalVariables.get(((VariableReferenceNode) statement.getReference()).getVariableName()) instanceof InterpreterArrayDataType)) {
-                throw new RuntimeException("attempt to use scalar reference as an array");
-            }
-            if(((VariableReferenceNode) statement.getReference()).getIndexExpression().isPresent()) {
-                var index = getIDT(((VariableReferenceNode) statement.getReference()).getIndexExpression().get(), null);
-                ((InterpreterArrayDataType) globalVariables.get(((VariableReferenceNode) statement.getReference()).getVariableName())).getArrayData().remove(index.getData());
-                return new ReturnType(ReturnType.FlowControlStatement.NONE);
-            }
-            globalVariables.remove(((VariableReferenceNode) statement.getReference()).getVariableName());
-            return new ReturnType(ReturnType.FlowControlStatement.NONE);
+        if(!(variable instanceof InterpreterArrayDataType)) {
+            throw new RuntimeException("attempt to use scalar reference as an array");
         }
-        return new ReturnType(ReturnType.FlowControlStatement.NONE);
+        if(reference.getIndexExpression().isPresent()) {
+            var index = getIDT(reference.getIndexExpression().get(), localVariables);
+            ((InterpreterArrayDataType) variable).getArrayData().remove(index.getData());
+            return ReturnType.NONE;
+        }
+        storeVariable(reference, null, localVariables);
+        return ReturnType.NONE;
     }
 
     /**
@@ -648,26 +1258,43 @@ public class Interpreter {
      * @param localVariables : the possible local variables of a function
      * @return a new InterpreterDataType with the result of the operation
      */
-    private InterpreterDataType evaluateOperation(OperationNode node, HashMap<String, InterpreterDataType> localVariables) {
-        if (isComparisonOperation(node)) {
-            return evaluateComparison(node, localVariables);
-        } else if (isBooleanOperation(node)) {
-            return evaluateBoolean(node, localVariables);
-        } else if (node.getOperationType() == OperationNode.OperationType.MATCH || node.getOperationType() == OperationNode.OperationType.NOTMATCH) {
-            return evaluateMatch(node, localVariables);
-        } else if (node.getOperationType() == OperationNode.OperationType.FIELDREF) {
-            return evaluateFieldReference(node, localVariables);
-        } else if (node.getOperationType() == OperationNode.OperationType.PREDECREMENT || node.getOperationType() == OperationNode.OperationType.PREINCREMENT
-                || node.getOperationType() == OperationNode.OperationType.POSTDECREMENT || node.getOperationType() == OperationNode.OperationType.POSTINCREMENT) {
-            return evaluateIncrementAndDecrement(node, localVariables);
-        } else if (node.getOperationType() == OperationNode.OperationType.UPLUS || node.getOperationType() == OperationNode.OperationType.UNEG) {
-            return evaluateNegation(node, localVariables);
-        } else if (node.getOperationType() == OperationNode.OperationType.IN) {
-            return evaluateArrayMembership(node, localVariables);
-        } else if (isMathOperation(node)) {
-            return evaluateMathOperation(node, localVariables);
-        } else {
-            return evaluateConcatenation(node, localVariables);
+    private InterpreterDataType evaluateOperation(OperationNode node, InterpreterDataType[] localVariables) {
+        switch(node.getOperationType()) {
+            case EQUALTO:
+            case NOTEQUALTO:
+            case LESSTHAN:
+            case LESSOREQUAL:
+            case GREATERTHAN:
+            case GREATEROREQUAL:
+                return evaluateComparison(node, localVariables);
+            case AND:
+            case OR:
+            case NOT:
+                return evaluateBoolean(node, localVariables);
+            case MATCH:
+            case NOTMATCH:
+                return evaluateMatch(node, localVariables);
+            case FIELDREF:
+                return evaluateFieldReference(node, localVariables);
+            case PREINCREMENT:
+            case POSTINCREMENT:
+            case PREDECREMENT:
+            case POSTDECREMENT:
+                return evaluateIncrementAndDecrement(node, localVariables);
+            case UPLUS:
+            case UNEG:
+                return evaluateNegation(node, localVariables);
+            case IN:
+                return evaluateArrayMembership(node, localVariables);
+            case EXP:
+            case ADD:
+            case SUBTRACT:
+            case MULTIPLY:
+            case DIVIDE:
+            case MODULO:
+                return evaluateMathOperation(node, localVariables);
+            default:
+                return evaluateConcatenation(node, localVariables);
         }
     }
 
@@ -678,7 +1305,7 @@ public class Interpreter {
      * @param localVariables : the possible local variables of a function
      * @return a new InterpreterDataType with the result of the operation
      */
-    private InterpreterDataType evaluateConcatenation(OperationNode node, HashMap<String, InterpreterDataType> localVariables) {
+    private InterpreterDataType evaluateConcatenation(OperationNode node, InterpreterDataType[] localVariables) {
         var left = getIDT(node.getLeft(), localVariables);
         InterpreterDataType right;
         if(node.getRight().isPresent()) {
@@ -688,6 +1315,70 @@ public class Interpreter {
         return new InterpreterDataType(left.getData());
     }
 
+    /**
+     * checks for assignments of the form var = var expr..., which can append to the
+     * variable instead of copying its whole value. The appended expressions must be free
+     * of side effects, so that they cannot change the variable while they are evaluated.
+     *
+     * @param node : the assignment that is currently being interpreted
+     * @return true if the assignment only appends to its target
+     */
+    boolean isAppendToTarget(AssignmentNode node) {
+        if(!(node.getTarget() instanceof VariableReferenceNode) || ((VariableReferenceNode) node.getTarget()).getIndexExpression().isPresent()) {
+            return false;
+        }
+        var concatenation = node.getAssignment();
+        while(concatenation instanceof OperationNode && ((OperationNode) concatenation).getOperationType() == OperationNode.OperationType.CONCATENATE
+                && ((OperationNode) concatenation).getRight().isPresent()) {
+            if(hasSideEffects(((OperationNode) concatenation).getRight().get())) {
+                return false;
+            }
+            concatenation = ((OperationNode) concatenation).getLeft();
+        }
+        return concatenation != node.getAssignment() && concatenation instanceof VariableReferenceNode
+                && ((VariableReferenceNode) concatenation).getIndexExpression().isEmpty()
+                && ((VariableReferenceNode) concatenation).getVariableName().equals(((VariableReferenceNode) node.getTarget()).getVariableName());
+    }
+
+    /**
+     * evaluates everything but the leftmost operand of a chain of concatenations
+     *
+     * @param node : a concatenation whose leftmost operand is the target of an assignment
+     * @param localVariables : the possible local variables of a function
+     * @return the text to append to the target
+     */
+    private String evaluateAppendedText(OperationNode node, InterpreterDataType[] localVariables) {
+        var right = getIDT(node.getRight().get(), localVariables).getData();
+        if(node.getLeft() instanceof OperationNode) {
+            return evaluateAppendedText((OperationNode) node.getLeft(), localVariables) + right;
+        }
+        return right;
+    }
+
+    /**
+     * @param node : an expression
+     * @return true if evaluating the expression could assign a variable, call a function, or read input
+     */
+    boolean hasSideEffects(Node node) {
+        if(node instanceof AssignmentNode || node instanceof FunctionCallNode) {
+            return true;
+        }
+        if(node instanceof OperationNode) {
+            if(hasSideEffects(((OperationNode) node).getLeft())) {
+                return true;
+            }
+            return ((OperationNode) node).getRight().isPresent() && hasSideEffects(((OperationNode) node).getRight().get());
+        }
+        if(node instanceof TernaryNode) {
+            return hasSideEffects(((TernaryNode) node).getBooleanExpression()) || hasSideEffects(((TernaryNode) node).getTrueCase())
+                    || hasSideEffects(((TernaryNode) node).getFalseCase());
+        }
+        if(node instanceof VariableReferenceNode) {
+            return ((VariableReferenceNode) node).getIndexExpression().isPresent() && hasSideEffects(((VariableReferenceNode) node).getIndexExpression().get());
+        }
+        return false;
+    }
+
     /**
      * interprets arithmetic operations
      *
@@ -695,68 +1386,136 @@ public class Interpreter {
      * @param localVariables : the possible local variables of a function
      * @return a new InterpreterDataType with the result of the operation
      */
-    private InterpreterDataType evaluateMathOperation(OperationNode node, HashMap<String, InterpreterDataType> localVariables) {
-        var left = getIDT(node.getLeft(), localVariables);
-        var right = getIDT(node.getRight().get(), localVariables);
+    private InterpreterDataType evaluateMathOperation(OperationNode node, InterpreterDataType[] localVariables) {
+        return new InterpreterDataType(evaluateNumber(node, localVariables));
+    }
+
+    /**
+     * evaluates an expression as a number. Arithmetic subtrees are computed on primitives,
+     * so only the value that finally escapes the subtree is wrapped in an InterpreterDataType.
+     *
+     * @param node : the expression that is currently being interpreted
+     * @param localVariables : the possible local variables of a function
+     * @return the numeric value of the expression
+     */
+    private double evaluateNumber(Node node, InterpreterDataType[] localVariables) {
+        if(node instanceof LiteralNode) {
+            return toNumber(((LiteralNode) node).getValue());
+        }
+        if(node.getNodeType() == Node.NodeType.CONSTANT) {
+            return toNumber(node.toString());
+        }
+        if(node.getNodeType() != Node.NodeType.OPERATION) {
+            return toNumber(getIDT(node, localVariables));
+        }
+        var operation = (OperationNode) node;
+        switch(operation.getOperationType()) {
+            case UNEG:
+                return -evaluateNumber(operation.getLeft(), localVariables);
+            case UPLUS:
+                return evaluateNumber(operation.getLeft(), localVariables);
+            case EXP:
+            case ADD:
+            case SUBTRACT:
+            case MULTIPLY:
+            case DIVIDE:
+            case MODULO:
+                break;
+            default:
+                return toNumber(getIDT(node, localVariables));
+        }
+        var left = evaluateOperand(operation.getLeft(), operation, localVariables);
+        var right = evaluateOperand(operation.getRight().get(), operation, localVariables);
 
-        if(left.getData().compareTo("") == 0 && right.getData().compareTo("") == 0){
-            left.setData("0");
-            right.setData("0");
+        switch(operation.getOperationType()) {
+            case EXP:
+                return Math.pow(left, right);
+            case ADD:
+                return left + right;
+            case SUBTRACT:
+                return left - right;
+            case MULTIPLY:
+                return left * right;
+            case DIVIDE:
+                if(right == 0) {
+                    throw new ArithmeticException("division by zero");
+                }
+                return left / right;
+            default:
+                if(right == 0) {
+                    throw new ArithmeticException("division by zero in %");
+                }
+                return left % right;
         }
-        else if(left.getData().compareTo("") == 0) {
-            if(isInt(right.getData())) {
-                left.setData("0");
-            }
-            else if(isFloat(right.getData())) {
-                left.setData("0.0");
-            }
+    }
+
+    /**
+     * evaluates an operand of an arithmetic operation as a number. While the operation is
+     * specialized to numbers, an operand that is not itself arithmetic is read without dispatching
+     * on its node type, guarded by a check that it holds a number. The first operand that does
+     * not deoptimizes the operation, which converts its operands the generic way from then on.
+     *
+     * @param operand : the left or right operand
+     * @param operation : the arithmetic operation
+     * @param localVariables : the possible local variables of a function
+     * @return the numeric value of the operand
+     */
+    private double evaluateOperand(Node operand, OperationNode operation, InterpreterDataType[] localVariables) {
+        if(operation.getSpecialization() == OperationNode.Specialization.GENERIC || isArithmetic(operand)) {
+            return evaluateNumber(operand, localVariables);
         }
-        else if(right.getData().compareTo("") == 0) {
-            if(isInt(left.getData())) {
-                right.setData("0");
-            }
-            else if(isFloat(left.getData())) {
-                right.setData("0.0");
-            }
+        var value = loadOperand(operand, localVariables);
+        if(!value.isNumeric()) {
+            operation.setSpecialization(OperationNode.Specialization.GENERIC);
+            return toNumber(value);
         }
-        if(isInt(left.getData()) && isInt(right.getData())) {
-            var leftAsInt = Integer.parseInt(left.getData());
-            var rightAsInt = Integer.parseInt(right.getData());
+        return value.getNumber();
+    }
 
-            switch(node.getOperationType()) {
-                case EXP:
-                    return new InterpreterDataType(String.valueOf((int)Math.pow(leftAsInt, rightAsInt)));
-                case ADD:
-                    return new InterpreterDataType(String.valueOf(leftAsInt + rightAsInt));
-                case SUBTRACT:
-                    return new InterpreterDataType(String.valueOf(leftAsInt - rightAsInt));
-                case MULTIPLY:
-                    return new InterpreterDataType(String.valueOf(leftAsInt * rightAsInt));
-                case DIVIDE:
-                    return new InterpreterDataType(String.valueOf(leftAsInt / rightAsInt));
-                default:
-                    return new InterpreterDataType(String.valueOf(leftAsInt % rightAsInt));
+    /**
+     * reads an operand of a specialized operation. Constants and scalar variables are read
+     * straight from their values and slots, and everything else is evaluated.
+     *
+     * @param operand : an operand that is not arithmetic
+     * @param localVariables : the possible local variables of a function
+     * @return the operand's value
+     */
+    private InterpreterDataType loadOperand(Node operand, InterpreterDataType[] localVariables) {
+        if(operand instanceof LiteralNode) {
+            return ((LiteralNode) operand).getValue();
+        }
+        if(operand instanceof VariableReferenceNode) {
+            var reference = (VariableReferenceNode) operand;
+            if(reference.getIndexExpression().isEmpty() && (reference.isLocal() || reference.getSlot() != numberOfFieldsSlot)) {
+                var variable = loadVariable(reference, localVariables);
+                if(variable != null) {
+                    return variable;
+                }
             }
         }
-        if(!isFloat(left.getData()) || !isFloat(right.getData())) {
-            throw new NumberFormatException("illegal arithmetic operation");
-        }
-        var leftAsFloat = Float.parseFloat(left.getData());
-        var rightAsFloat = Float.parseFloat(right.getData());
+        return getIDT(operand, localVariables);
+    }
 
-        switch(node.getOperationType()) {
+    /**
+     * @param node : an expression
+     * @return true if the expression is an arithmetic operation, whose value is always a number
+     */
+    private static boolean isArithmetic(Node node) {
+        if(node.getNodeType() != Node.NodeType.OPERATION) {
+            return false;
+        }
+        switch(((OperationNode) node).getOperationType()) {
             case EXP:
-                return new InterpreterDataType(String.valueOf(Math.pow(leftAsFloat, rightAsFloat)));
             case ADD:
-                return new InterpreterDataType(String.valueOf(leftAsFloat + rightAsFloat));
             case SUBTRACT:
-                return new InterpreterDataType(String.valueOf(leftAsFloat - rightAsFloat));
             case MULTIPLY:
-                return new InterpreterDataType(String.valueOf(leftAsFloat * rightAsFloat));
             case DIVIDE:
-                return new InterpreterDataType(String.valueOf(leftAsFloat / rightAsFloat));
+            case MODULO:
+            case UNEG:
+            case UPLUS:
+                return true;
             default:
-                return new InterpreterDataType(String.valueOf(leftAsFloat % rightAsFloat));
+                return false;
         }
     }
 
@@ -767,16 +1526,22 @@ public class Interpreter {
      * @param localVariables : the possible local variables of a function
      * @return a new InterpreterDataType with the result of the operation
      */
-    private InterpreterDataType evaluateArrayMembership(OperationNode node, HashMap<String, InterpreterDataType> localVariables) {
+    private InterpreterDataType evaluateArrayMembership(OperationNode node, InterpreterDataType[] localVariables) {
+        return ImmutableInterpreterDataType.valueOf(evaluateArrayMembershipCondition(node, localVariables));
+    }
+
+    /**
+     * @param node : the membership operation that is currently being interpreted
+     * @param localVariables : the possible local variables of a function
+     * @return true if the key is in the array
+     */
+    private boolean evaluateArrayMembershipCondition(OperationNode node, InterpreterDataType[] localVariables) {
         var left = getIDT(node.getLeft(), localVariables);
         var right = getIDT(node.getRight().get(), localVariables);
         if(!(right instanceof InterpreterArrayDataType)) {
             throw new RuntimeException("illegal membership operation." + node.getRight().get() + "is not an array");
         }
-        if(((InterpreterArrayDataType) right).getArrayData().containsKey(left.getData())) {
-            return new InterpreterDataType("1");
-        }
-        return new InterpreterDataType("0");
+        return ((InterpreterArrayDataType) right).getArrayData().containsKey(left.getData());
     }
 
     /**
@@ -786,80 +1551,35 @@ public class Interpreter {
      * @param localVariables : the possible local variables of a function
      * @return
      */
-    private InterpreterDataType evaluateNegation(OperationNode node, HashMap<String, InterpreterDataType> localVariables) {
-        var left  = getIDT(node.getLeft(), localVariables);
-
-        if(left.getData().compareTo("") == 0) {
-            left.setData("0");
-        }
-        if(isInt(left.getData())) {
-            var leftAsInt = Integer.parseInt(left.getData());
-            if(node.getOperationType() == OperationNode.OperationType.UNEG) {
-                return new InterpreterDataType(String.valueOf(leftAsInt * -1));
-            }
-            return new InterpreterDataType(String.valueOf(leftAsInt));
-
-        }
-        if(!isFloat(left.getData())) {
-            throw new NumberFormatException("cannot cast " + node.getLeft() + " to Float");
-        }
-        var leftAsFloat = Float.parseFloat(left.getData());
-        if(node.getOperationType() == OperationNode.OperationType.UNEG) {
-            return new InterpreterDataType(String.valueOf(leftAsFloat * -1));
-        }
-        return new InterpreterDataType(String.valueOf(leftAsFloat));
+    private InterpreterDataType evaluateNegation(OperationNode node, InterpreterDataType[] localVariables) {
+        return new InterpreterDataType(evaluateNumber(node, localVariables));
     }
 
     /**
-     * evaluates the basic increment and decrement operations
+     * evaluates the basic increment and decrement operations. The target is updated in place,
+     * so the post operations return a copy of the value from before the update.
      *
      * @param node : the operation that is currently being interpreted
      * @param localVariables : the possible local variables of a function
-     * @return a new InterpreterDataType with the result of the operation
+     * @return the target after a pre operation, or its previous value after a post operation
      */
-    private InterpreterDataType evaluateIncrementAndDecrement(OperationNode node, HashMap<String, InterpreterDataType> localVariables) {
-        var left = getIDT(node.getLeft(), localVariables);
+    private InterpreterDataType evaluateIncrementAndDecrement(OperationNode node, InterpreterDataType[] localVariables) {
+        var left = getTarget(node.getLeft(), localVariables);
+        var leftAsNumber = toNumber(left);
 
-        if(left.getData().compareTo("") == 0) {
-            left.setData("0");
-        }
-        if(isInt(left.getData())) {
-            var leftAsInt = Integer.parseInt(left.getData());
-            if (node.getOperationType() == OperationNode.OperationType.PREDECREMENT) {
-                left.setData(String.valueOf(leftAsInt - 1));
-                return left;
-            } else if (node.getOperationType() == OperationNode.OperationType.PREINCREMENT) {
-                left.setData(String.valueOf(leftAsInt + 1));
-                return left;
-            } else if (node.getOperationType() == OperationNode.OperationType.POSTDECREMENT) {
-                left.setData(String.valueOf(leftAsInt - 1));
+        switch(node.getOperationType()) {
+            case PREDECREMENT:
+                left.setNumber(leftAsNumber - 1);
                 return left;
-            } else {
-                left.setData(String.valueOf(leftAsInt + 1));
+            case PREINCREMENT:
+                left.setNumber(leftAsNumber + 1);
                 return left;
-            }
-
-        }
-        
-        if (!isFloat(left.getData())) {
-            throw new NumberFormatException("cannot cast " + node.getLeft() + " to Float");
-        }
-        var leftAsFloat = Float.parseFloat(left.getData());
-
-        if (node.getOperationType() == OperationNode.OperationType.PREDECREMENT) {
-            left.setData(String.valueOf(leftAsFloat - 1));
-            return left;
-        } else if (node.getOperationType() == OperationNode.OperationType.PREINCREMENT) {
-            left.setData(String.valueOf(leftAsFloat + 1));
-            return left;
-        } else if (node.getOperationType() == OperationNode.OperationType.POSTDECREMENT) {
-            var retVal = new InterpreterDataType(left.getData());
-            left.setData(String.valueOf(leftAsFloat - 1));
-            return retVal;
-        } else {
-            var retVal = new InterpreterDataType(left.getData());
-            left.setData(String.valueOf(leftAsFloat + 1));
-            return retVal;
+            case POSTDECREMENT:
+                left.setNumber(leftAsNumber - 1);
+                return new InterpreterDataType(leftAsNumber);
+            default:
+                left.setNumber(leftAsNumber + 1);
+                return new InterpreterDataType(leftAsNumber);
         }
     }
 
@@ -870,13 +1590,12 @@ public class Interpreter {
      * @param localVariables : the possible local variables of a function
      * @return
      */
-    private InterpreterDataType evaluateFieldReference(OperationNode node, HashMap<String, InterpreterDataType> localVariables) {
+    private InterpreterDataType evaluateFieldReference(OperationNode node, InterpreterDataType[] localVariables) {
         var left = getIDT(node.getLeft(), localVariables);
-        if(globalVariables.containsKey("$" + left.getData())) {
-            return globalVariables.get("$" + left.getData());
+        if(!left.isNumeric()) {
+            throw new RuntimeException("invalid field reference: $" + left.getData());
         }
-        globalVariables.put("$" + left.getData(), new InterpreterDataType(""));
-        return globalVariables.get("$" + left.getData());
+        return lineManager.getField((int) left.getNumber());
     }
 
     /**
@@ -886,19 +1605,29 @@ public class Interpreter {
      * @param localVariables : the possible local variables of a function
      * @return
      */
-    private InterpreterDataType evaluateMatch(OperationNode node, HashMap<String, InterpreterDataType> localVariables) {
-        var pattern = Pattern.compile(((PatternNode)node.getRight().get()).getRegexPattern());
+    private InterpreterDataType evaluateMatch(OperationNode node, InterpreterDataType[] localVariables) {
+        return ImmutableInterpreterDataType.valueOf(evaluateMatchCondition(node, localVariables));
+    }
+
+    /**
+     * evaluates a match. Each pattern is compiled the first time its match runs and reused from then on.
+     *
+     * @param node : the match or non-match operation that is currently being interpreted
+     * @param localVariables : the possible local variables of a function
+     * @return true if the operation holds
+     */
+    private boolean evaluateMatchCondition(OperationNode node, InterpreterDataType[] localVariables) {
+        var patternNode = (PatternNode) node.getRight().get();
+        var pattern = matchPatterns.get(patternNode);
+        if(pattern == null) {
+            pattern = Pattern.compile(patternNode.getRegexPattern());
+            matchPatterns.put(patternNode, pattern);
+        }
         var matcher = pattern.matcher(getIDT(node.getLeft(), localVariables).getData());
         if(node.getOperationType() == OperationNode.OperationType.MATCH) {
-            if(matcher.find()) {
-                return new InterpreterDataType("1");
-            }
-            return new InterpreterDataType("0");
-        }
-        if(matcher.find()) {
-            return new InterpreterDataType("0");
+            return matcher.find();
         }
-        return new InterpreterDataType("1");
+        return !matcher.find();
     }
 
     /**
@@ -908,33 +1637,23 @@ public class Interpreter {
      * @param localVariables : the possible local variables of a function
      * @return a new InterpreterDataType with the result of the operation
      */
-    private InterpreterDataType evaluateBoolean(OperationNode node, HashMap<String, InterpreterDataType> localVariables) {
+    private InterpreterDataType evaluateBoolean(OperationNode node, InterpreterDataType[] localVariables) {
+        return ImmutableInterpreterDataType.valueOf(evaluateBooleanCondition(node, localVariables));
+    }
+
+    /**
+     * @param node : the logical operation that is currently being interpreted
+     * @param localVariables : the possible local variables of a function
+     * @return the result of the logical operation
+     */
+    private boolean evaluateBooleanCondition(OperationNode node, InterpreterDataType[] localVariables) {
         if(node.getOperationType() == OperationNode.OperationType.AND) {
-            var left = getIDT(node.getLeft(), localVariables);
-            var right = getIDT(node.getRight().get(), localVariables);
-            left = getBooleanResult(left);
-            right = getBooleanResult(right);
-            if(left.getData().compareTo("1") == 0 && right.getData().compareTo("1") == 0) {
-                return new InterpreterDataType("1");
-            }
-            return new InterpreterDataType("0");
+            return evaluateCondition(node.getLeft(), localVariables) && evaluateCondition(node.getRight().get(), localVariables);
         }
         if(node.getOperationType() == OperationNode.OperationType.OR) {
-            var left = getIDT(node.getLeft(), localVariables);
-            var right = getIDT(node.getRight().get(), localVariables);
-            left = getBooleanResult(left);
-            right = getBooleanResult(right);
-            if(left.getData().compareTo("1") == 0 || right.getData().compareTo("1") == 0) {
-                return new InterpreterDataType("1");
-            }
-            return new InterpreterDataType("0");
+            return evaluateCondition(node.getLeft(), localVariables) || evaluateCondition(node.getRight().get(), localVariables);
         }
-        var left = getIDT(node.getLeft(), localVariables);
-        left = getBooleanResult(left);
-        if(left.getData().compareTo("1") == 0) {
-            return new InterpreterDataType("0");
-        }
-        return new InterpreterDataType("1");
+        return !evaluateCondition(node.getLeft(), localVariables);
     }
 
     /**
@@ -944,81 +1663,102 @@ public class Interpreter {
      * @param localVariables  : the possible local variables of a function
      * @return a new InterpreterDataType with the result of the comparison
      */
-    private InterpreterDataType evaluateComparison(OperationNode node, HashMap<String, InterpreterDataType> localVariables) {
-        var left = getIDT(node.getLeft(), localVariables);
-        var right = getIDT(node.getRight().get(), localVariables);
-        float leftAsFloat;
-        float rightAsFloat;
-
-        if(isFloat(left.getData()) && isFloat(right.getData())){
-            leftAsFloat = Float.parseFloat(left.getData());
-            rightAsFloat = Float.parseFloat(right.getData());
-            switch (node.getOperationType()) {
-                case EQUALTO:
-                    if(leftAsFloat == rightAsFloat){
-                        return new InterpreterDataType("1");
-                    }
-                    return new InterpreterDataType("0");
-                case NOTEQUALTO:
-                    if(leftAsFloat != rightAsFloat) {
-                        return new InterpreterDataType("1");
-                    }
-                    return new InterpreterDataType("0");
-                case LESSTHAN:
-                    if(leftAsFloat < rightAsFloat) {
-                        return new InterpreterDataType("1");
-                    }
-                    return new InterpreterDataType("0");
-                case LESSOREQUAL:
-                    if(leftAsFloat <= rightAsFloat) {
-                        return new InterpreterDataType("1");
-                    }
-                    return new InterpreterDataType("0");
-                case GREATERTHAN:
-                    if(leftAsFloat > rightAsFloat) {
-                        return new InterpreterDataType("1");
-                    }
-                    return new InterpreterDataType("0");
+    private InterpreterDataType evaluateComparison(OperationNode node, InterpreterDataType[] localVariables) {
+        return ImmutableInterpreterDataType.valueOf(evaluateComparisonCondition(node, localVariables));
+    }
 
-                default:
-                    if(leftAsFloat >= rightAsFloat) {
-                        return new InterpreterDataType("1");
-                    }
-                    return new InterpreterDataType("0");
-            }
+    /**
+     * compares numerically when both operands are numbers or strnums, and as Strings otherwise
+     *
+     * @param node : the comparison that is currently being interpreted
+     * @param localVariables  : the possible local variables of a function
+     * @return the result of the comparison
+     */
+    private boolean evaluateComparisonCondition(OperationNode node, InterpreterDataType[] localVariables) {
+        int comparison;
+        if(node.getSpecialization() == OperationNode.Specialization.NUMBER) {
+            comparison = compareSpecialized(node, localVariables);
+        }
+        else {
+            var left = getIDT(node.getLeft(), localVariables);
+            var right = getIDT(node.getRight().get(), localVariables);
+            comparison = compare(left, right);
         }
         switch (node.getOperationType()) {
             case EQUALTO:
-                if(left.getData().compareTo(right.getData()) == 0) {
-                    return new InterpreterDataType("1");
-                }
-                return new InterpreterDataType("0");
+                return comparison == 0;
             case NOTEQUALTO:
-                if(left.getData().compareTo(right.getData()) != 0) {
-                    return new InterpreterDataType("1");
-                }
-                return new InterpreterDataType("0");
+                return comparison != 0;
             case LESSTHAN:
-                if(left.getData().compareTo(right.getData()) < 0) {
-                    return new InterpreterDataType("1");
-                }
-                return new InterpreterDataType("0");
+                return comparison < 0;
             case LESSOREQUAL:
-                if(left.getData().compareTo(right.getData()) <= 0) {
-                    return new InterpreterDataType("1");
-                }
-                return new InterpreterDataType("0");
+                return comparison <= 0;
             case GREATERTHAN:
-                if(left.getData().compareTo(right.getData()) > 0) {
-                    return new InterpreterDataType("1");
-                }
-                return new InterpreterDataType("0");
+                return comparison > 0;
             default:
-                if(left.getData().compareTo(right.getData()) >= 0) {
-                    return new InterpreterDataType("1");
-                }
-                return new InterpreterDataType("0");
+                return comparison >= 0;
+        }
+    }
+
+    /**
+     * compares the operands of a comparison specialized to numbers. Arithmetic operands are
+     * computed as primitives, and the others are read with loadOperand and guarded by a check
+     * that they hold numbers. When one does not, the comparison deoptimizes and finishes with
+     * compare on the values already evaluated, so no operand is evaluated twice.
+     *
+     * @param node : the comparison that is currently being interpreted
+     * @param localVariables : the possible local variables of a function
+     * @return a negative number, zero, or a positive number as left is less than, equal to, or greater than right
+     */
+    private int compareSpecialized(OperationNode node, InterpreterDataType[] localVariables) {
+        InterpreterDataType leftValue = null;
+        InterpreterDataType rightValue = null;
+        double left = 0;
+        double right = 0;
+        if(isArithmetic(node.getLeft())) {
+            left = evaluateNumber(node.getLeft(), localVariables);
+        }
+        else {
+            leftValue = loadOperand(node.getLeft(), localVariables);
         }
+        if(isArithmetic(node.getRight().get())) {
+            right = evaluateNumber(node.getRight().get(), localVariables);
+        }
+        else {
+            rightValue = loadOperand(node.getRight().get(), localVariables);
+        }
+        //the operands are checked after both are evaluated, since evaluating the right one may change the left one
+        if((leftValue != null && !leftValue.comparesAsNumber()) || (rightValue != null && !rightValue.comparesAsNumber())) {
+            node.setSpecialization(OperationNode.Specialization.GENERIC);
+            return compare(leftValue != null ? leftValue : new InterpreterDataType(left), rightValue != null ? rightValue : new InterpreterDataType(right));
+        }
+        return compareNumbers(leftValue != null ? leftValue.getNumber() : left, rightValue != null ? rightValue.getNumber() : right);
+    }
+
+    /**
+     * compares numerically when both operands are numbers or strnums, and as Strings otherwise,
+     * so a String constant that looks like a number still compares as a String
+     *
+     * @param left : the left operand of a comparison
+     * @param right : the right operand of a comparison
+     * @return a negative number, zero, or a positive number as left is less than, equal to, or greater than right
+     */
+    int compare(InterpreterDataType left, InterpreterDataType right) {
+        if(left.comparesAsNumber() && right.comparesAsNumber()) {
+            return compareNumbers(left.getNumber(), right.getNumber());
+        }
+        return left.getData().compareTo(right.getData());
+    }
+
+    /**
+     * compares two numbers the way compare does, so that a comparison with NaN is equal
+     *
+     * @param left : the left operand
+     * @param right : the right operand
+     * @return a negative number, zero, or a positive number as left is less than, equal to, or greater than right
+     */
+    static int compareNumbers(double left, double right) {
+        return left < right ? -1 : (left > right ? 1 : 0);
     }
 
     /**
@@ -1028,129 +1768,190 @@ public class Interpreter {
      * @param localVariables : the possible local variables of a function
      * @return a new InterpreterDataType with the result of the operation
      */
-    private InterpreterDataType evaluateVariableReference(VariableReferenceNode node, HashMap<String, InterpreterDataType> localVariables) {
-        InterpreterDataType indexExpression;
+    private InterpreterDataType evaluateVariableReference(VariableReferenceNode node, InterpreterDataType[] localVariables) {
         if(node.getIndexExpression().isPresent()) {
-            indexExpression = getIDT(node.getIndexExpression().get(), localVariables);
-            if(localVariables != null) {
-                if (localVariables.containsKey(node.getVariableName())) {
-                    if (!(localVariables.get(node.getVariableName()) instanceof InterpreterArrayDataType)) {
-                        throw new RuntimeException("reference to element in " + node.getVariableName() + " but " + node.getVariableName() + " is not an array");
-                    }
-                    if (!((InterpreterArrayDataType) localVariables.get(node.getVariableName())).getArrayData().containsKey(indexExpression.getData())) {
-                        ((InterpreterArrayDataType) localVariables.get(node.getVariableName())).getArrayData().put(indexExpression.getData(), new InterpreterDataType());
-                    }
-                    return ((InterpreterArrayDataType) localVariables.get(node.getVariableName())).getArrayData().get(indexExpression.getData());
-                }
-            }
-            else if(globalVariables.containsKey(node.getVariableName())) {
-                if(!(globalVariables.get(node.getVariableName()) instanceof InterpreterArrayDataType)) {
-                    throw new RuntimeException("reference to element in " + node.getVariableName() + " but " + node.getVariableName() + " is not an array");
-                }
-                if (!((InterpreterArrayDataType) globalVariables.get(node.getVariableName())).getArrayData().containsKey(indexExpression.getData())) {
-                    ((InterpreterArrayDataType) globalVariables.get(node.getVariableName())).getArrayData().put(indexExpression.getData(), new InterpreterDataType());
-                }
-                return ((InterpreterArrayDataType) globalVariables.get(node.getVariableName())).getArrayData().get(indexExpression.getData());
-            }
-            else {
-                globalVariables.put(node.getVariableName(), new InterpreterArrayDataType());
-                ((InterpreterArrayDataType)globalVariables.get(node.getVariableName())).getArrayData().put(indexExpression.getData(), new InterpreterDataType());
-                return ((InterpreterArrayDataType) globalVariables.get(node.getVariableName())).getArrayData().get(indexExpression.getData());
+            var indexExpression = getIDT(node.getIndexExpression().get(), localVariables);
+            var array = loadVariable(node, localVariables);
+            if(array == null) {
+                array = new InterpreterArrayDataType();
+                storeVariable(node, array, localVariables);
             }
+            return getArrayElement(array, indexExpression.getData(), node.getVariableName());
         }
-        if(localVariables != null) {
-            if (localVariables.containsKey(node.getVariableName())) {
-                return localVariables.get(node.getVariableName());
-            }
+        if(!node.isLocal() && node.getSlot() == numberOfFieldsSlot && lineManager.hasPendingFields()) {
+            lineManager.finishFields();
         }
-        if(globalVariables.containsKey(node.getVariableName())) {
-            return globalVariables.get(node.getVariableName());
+        var variable = loadVariable(node, localVariables);
+        if(variable == null) {
+            variable = new InterpreterDataType();
+            storeVariable(node, variable, localVariables);
         }
-        globalVariables.put(node.getVariableName(), new InterpreterDataType());
-        return globalVariables.get(node.getVariableName());
+        return variable;
     }
 
     /**
-     * this method simplifies evaluating boolean operations by
-     * mapping all non-zero floats to true and everything else to false based
-     * on the AWK programming language.
+     * @param array : the variable being indexed
+     * @param key : the index
+     * @param name : the name of the variable, for errors
+     * @return the element at key, created if it does not exist
+     */
+    InterpreterDataType getArrayElement(InterpreterDataType array, String key, String name) {
+        if(!(array instanceof InterpreterArrayDataType)) {
+            throw new RuntimeException("reference to element in " + name + " but " + name + " is not an array");
+        }
+        var element = ((InterpreterArrayDataType) array).getArrayData().get(key);
+        if(element == null) {
+            element = new InterpreterDataType();
+            ((InterpreterArrayDataType) array).getArrayData().put(intern(key), element);
+        }
+        return element;
+    }
+
+    /**
+     * @param node : a resolved variable reference
+     * @param localVariables : the frame of the enclosing function, if there is one
+     * @return the variable held in the reference's slot, or null if the variable is undefined
+     */
+    private InterpreterDataType loadVariable(VariableReferenceNode node, InterpreterDataType[] localVariables) {
+        if(node.getSlot() < 0) {
+            throw new RuntimeException("unresolved reference to " + node.getVariableName());
+        }
+        if(node.isLocal()) {
+            return localVariables[node.getSlot()];
+        }
+        return globalVariables[node.getSlot()];
+    }
+
+    /**
+     * @param node : a resolved variable reference
+     * @param variable : the variable to hold in the reference's slot, or null to undefine it
+     * @param localVariables : the frame of the enclosing function, if there is one
+     */
+    private void storeVariable(VariableReferenceNode node, InterpreterDataType variable, InterpreterDataType[] localVariables) {
+        if(node.isLocal()) {
+            localVariables[node.getSlot()] = variable;
+        }
+        else {
+            globalVariables[node.getSlot()] = variable;
+        }
+    }
+
+    /**
+     * evaluates the condition of a block, conditional, loop, or ternary without building
+     * an InterpreterDataType for comparisons, logical operations, matches, and memberships.
      *
-     * @param idt : an InterpreterDataType
-     * @return an InterpreterDataType with a boolean value
+     * @param node : the condition that is currently being interpreted
+     * @param localVariables : the possible local variables of a function
+     * @return true if the condition holds
      */
-    private InterpreterDataType getBooleanResult(InterpreterDataType idt) {
-        if(isFloat(idt.getData())) {
-            var dataAsFloat = Float.parseFloat(idt.getData());
-            if(dataAsFloat != 0) {
-                return new InterpreterDataType("1");
+    private boolean evaluateCondition(Node node, InterpreterDataType[] localVariables) {
+        if(node.getNodeType() == Node.NodeType.OPERATION) {
+            var operation = (OperationNode) node;
+            switch(operation.getOperationType()) {
+                case EQUALTO:
+                case NOTEQUALTO:
+                case LESSTHAN:
+                case LESSOREQUAL:
+                case GREATERTHAN:
+                case GREATEROREQUAL:
+                    return evaluateComparisonCondition(operation, localVariables);
+                case AND:
+                case OR:
+                case NOT:
+                    return evaluateBooleanCondition(operation, localVariables);
+                case MATCH:
+                case NOTMATCH:
+                    return evaluateMatchCondition(operation, localVariables);
+                case IN:
+                    return evaluateArrayMembershipCondition(operation, localVariables);
+                default:
+                    break;
             }
         }
-        return new InterpreterDataType("0");
+        return isTrue(getIDT(node, localVariables));
     }
 
     /**
-     * @param node : the operation that is currently being interpreted
-     * @return true if the operator is a comparison operator
+     * @param node : an expression outside of any function
+     * @return the value of the expression
      */
-    private boolean isComparisonOperation(OperationNode node) {
-        if(node.getOperationType() == OperationNode.OperationType.EQUALTO || node.getOperationType() == OperationNode.OperationType.NOTEQUALTO
-                || node.getOperationType() == OperationNode.OperationType.LESSTHAN || node.getOperationType() == OperationNode.OperationType.LESSOREQUAL
-                || node.getOperationType() == OperationNode.OperationType.GREATERTHAN || node.getOperationType() == OperationNode.OperationType.GREATEROREQUAL) {
-            return true;
-        }
-        return false;
+    InterpreterDataType evaluate(Node node) {
+        return getIDT(node, null);
+    }
+
+    /**
+     * @param node : a condition outside of any function
+     * @return the truth value of the condition
+     */
+    boolean evaluateCondition(Node node) {
+        return evaluateCondition(node, null);
+    }
+
+    /**
+     * maps all non-zero numbers to true and everything else to false based
+     * on the AWK programming language.
+     *
+     * @param idt : an InterpreterDataType
+     * @return the truth value of idt
+     */
+    boolean isTrue(InterpreterDataType idt) {
+        return idt.isNumeric() && idt.getNumber() != 0;
     }
 
     /**
      * @param node : the operation that is currently being interpreted
-     * @return true if the operation belongs to the logical operations
+     * @return true if the operation is a pre or post increment or decrement
      */
-    private boolean isBooleanOperation(OperationNode node) {
-        if(node.getOperationType() == OperationNode.OperationType.AND || node.getOperationType() == OperationNode.OperationType.OR
-                || node.getOperationType() == OperationNode.OperationType.NOT) {
-            return true;
+    private boolean isIncrementOrDecrement(OperationNode node) {
+        switch(node.getOperationType()) {
+            case PREINCREMENT:
+            case POSTINCREMENT:
+            case PREDECREMENT:
+            case POSTDECREMENT:
+                return true;
+            default:
+                return false;
         }
-        return false;
     }
 
     /**
-     * @param node : the operation that is currently being interpreted
-     * @return true if the operation belongs to the arithmetic operations
+     * @param value : a field value or array key
+     * @return the shared instance of value when interning is enabled
      */
-    private boolean isMathOperation(OperationNode node) {
-        if(node.getOperationType() == OperationNode.OperationType.EXP || node.getOperationType() == OperationNode.OperationType.ADD
-                || node.getOperationType() == OperationNode.OperationType.SUBTRACT || node.getOperationType() == OperationNode.OperationType.MULTIPLY
-                || node.getOperationType() == OperationNode.OperationType.DIVIDE || node.getOperationType() == OperationNode.OperationType.MODULO) {
-            return true;
+    String intern(String value) {
+        if(interner == null) {
+            return value;
         }
-        return false;
+        return interner.intern(value);
     }
 
     /**
-     * @param data : a String to parse
-     * @return true if the String parses as a float
+     * @param idt : an InterpreterDataType used as an operand of an arithmetic operation
+     * @return the numeric value of idt, where an empty value counts as zero
      */
-    private boolean isFloat(String data) {
-        try{
-            Float.parseFloat(data);
+    double toNumber(InterpreterDataType idt) {
+        if(idt.isNumeric()) {
+            return idt.getNumber();
         }
-        catch (NumberFormatException numberFormatException) {
-            return false;
+        if(idt.getData() == null || idt.getData().isEmpty()) {
+            return 0;
         }
-        return true;
+        throw new NumberFormatException("illegal arithmetic operation on " + idt.getData());
     }
 
     /**
-     * @param data : a String to parse
-     * @return  true if the String parses as an integer
+     * @param data : a String used as an operand of an arithmetic operation
+     * @return the numeric value of data, where an empty String counts as zero
      */
-    private boolean isInt(String data) {
-        try{
-            Integer.parseInt(data);
+    double toNumber(String data) {
+        var number = NumberScanner.parse(data);
+        if(!Double.isNaN(number)) {
+            return number;
         }
-        catch (NumberFormatException numberFormatException) {
-            return false;
+        if(data == null || data.isEmpty()) {
+            return 0;
         }
-        return true;
+        throw new NumberFormatException("illegal arithmetic operation on " + data);
     }
+
 }
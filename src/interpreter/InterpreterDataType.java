@@ -1,19 +1,211 @@
 package interpreter;
 
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
 public class InterpreterDataType {
+    private enum NumericState {UNKNOWN, NUMERIC, NOT_NUMERIC}
+
+    /**
+     * the POSIX types of a value. A STRNUM is text from the input, which compares as a number
+     * when it looks like one.
+     */
+    private enum ValueType {STRING, NUMBER, STRNUM}
+
     private String data;
+    private StringBuilder appendedData;
+
+    private double numericData;
+    private NumericState numericState;
+    private ValueType valueType;
 
+    /**
+     * creates an uninitialized value, which compares like an empty input
+     */
     public InterpreterDataType() {
         data = "";
+        numericState = NumericState.UNKNOWN;
+        valueType = ValueType.STRNUM;
     }
     public InterpreterDataType(String data) {
         this.data = data;
+        numericState = NumericState.UNKNOWN;
+        valueType = ValueType.STRING;
+    }
+    public InterpreterDataType(double numericData) {
+        this.numericData = numericData;
+        numericState = NumericState.NUMERIC;
+        valueType = ValueType.NUMBER;
+    }
+
+    /**
+     * @param other : the value to copy, such as a shared constant that is about to be modified
+     */
+    public InterpreterDataType(InterpreterDataType other) {
+        copy(other);
+    }
+
+    /**
+     * @param data : a String read from the input
+     * @param isStrnum : true if the value came from input, such as a field, and may compare as a number
+     */
+    public InterpreterDataType(String data, boolean isStrnum) {
+        this(data);
+        if(isStrnum) {
+            valueType = ValueType.STRNUM;
+        }
     }
 
+    /**
+     * @return the string form of the value, converting the numeric form or flattening appended text at most once
+     */
     public String getData() {
+        if(data == null) {
+            if(appendedData != null) {
+                data = appendedData.toString();
+            }
+            else if(numericState == NumericState.NUMERIC) {
+                data = formatNumber(numericData);
+            }
+        }
         return data;
     }
     public void setData(String data) {
         this.data = data;
+        appendedData = null;
+        numericState = NumericState.UNKNOWN;
+        valueType = ValueType.STRING;
+    }
+
+    /**
+     * replaces the value with text read from the input, such as a record or a split element
+     *
+     * @param data : the text
+     */
+    public void setInput(String data) {
+        this.data = data;
+        appendedData = null;
+        numericState = NumericState.UNKNOWN;
+        valueType = ValueType.STRNUM;
+    }
+
+    /**
+     * appends text to the string form of the value. Repeated appends grow one buffer,
+     * which is only flattened into a String when the whole value is read.
+     *
+     * @param text : the text to append
+     */
+    public void append(String text) {
+        if(appendedData == null) {
+            appendedData = new StringBuilder(getData() == null ? "" : getData());
+        }
+        appendedData.append(text);
+        data = null;
+        numericState = NumericState.UNKNOWN;
+        valueType = ValueType.STRING;
+    }
+
+    /**
+     * replaces the value with a number. The string form is produced when it is first read.
+     *
+     * @param numericData : the new value
+     */
+    public void setNumber(double numericData) {
+        this.numericData = numericData;
+        data = null;
+        appendedData = null;
+        numericState = NumericState.NUMERIC;
+        valueType = ValueType.NUMBER;
+    }
+
+    /**
+     * copies another value, including its cached numeric form
+     *
+     * @param other : the value being assigned
+     */
+    public void assign(InterpreterDataType other) {
+        copy(other);
+    }
+
+    /**
+     * copies another value without the checks or hooks that subclasses add to assign
+     *
+     * @param other : the value being copied
+     */
+    private void copy(InterpreterDataType other) {
+        data = other.appendedData != null ? other.getData() : other.data;
+        appendedData = null;
+        numericData = other.numericData;
+        numericState = other.numericState;
+        valueType = other.valueType;
+    }
+
+    /**
+     * @return true if the value is a number or a string that parses as one
+     */
+    public boolean isNumeric() {
+        if(numericState == NumericState.UNKNOWN) {
+            numericData = NumberScanner.parse(getData());
+            numericState = Double.isNaN(numericData) ? NumericState.NOT_NUMERIC : NumericState.NUMERIC;
+        }
+        return numericState == NumericState.NUMERIC;
+    }
+
+    /**
+     * @return true if the value is a number, such as a numeric constant or the result of arithmetic,
+     * rather than a string
+     */
+    public boolean isNumber() {
+        return valueType == ValueType.NUMBER;
+    }
+
+    /**
+     * @return true if the value came from input and looks like a number
+     */
+    public boolean isStrnum() {
+        return valueType == ValueType.STRNUM && isNumeric();
+    }
+
+    /**
+     * @return true if the value is a number or a strnum, so that a comparison with another such
+     * value compares numbers instead of strings
+     */
+    public boolean comparesAsNumber() {
+        return valueType == ValueType.NUMBER || isStrnum();
+    }
+
+    /**
+     * @return the numeric form of the value. Only meaningful when isNumeric is true.
+     */
+    public double getNumber() {
+        isNumeric();
+        return numericData;
+    }
+
+    /**
+     * converts a number to its string form. Integral values print as integers and
+     * everything else is converted like the "%.6g" CONVFMT of AWK.
+     *
+     * @param number : the number to convert
+     * @return the String form of number
+     */
+    private static String formatNumber(double number) {
+        if(number == (long) number) {
+            return String.valueOf((long) number);
+        }
+        if(Double.isNaN(number)) {
+            return "nan";
+        }
+        if(Double.isInfinite(number)) {
+            return number > 0 ? "inf" : "-inf";
+        }
+        var rounded = new BigDecimal(number).round(new MathContext(6, RoundingMode.HALF_EVEN));
+        int exponent = rounded.precision() - rounded.scale() - 1;
+        if(exponent >= -4 && exponent < 6) {
+            return rounded.stripTrailingZeros().toPlainString();
+        }
+        var mantissa = rounded.movePointLeft(exponent).stripTrailingZeros().toPlainString();
+        return mantissa + (exponent < 0 ? "e-" : "e+") + (Math.abs(exponent) < 10 ? "0" : "") + Math.abs(exponent);
     }
 }
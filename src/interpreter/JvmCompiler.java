@@ -0,0 +1,766 @@
+package interpreter;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * This class translates BytecodeChunks into JVM classes that are loaded as hidden classes, so that
+ * the JIT compiles and inlines AWK code like any other Java code. Values stay on the JVM operand
+ * stack, numbers become primitive doubles, and a condition that is followed by a conditional jump
+ * becomes a single JVM branch.
+ *
+ * @author Jake Camadine
+ */
+public class JvmCompiler {
+    /**
+     * This interface is implemented by every generated class
+     */
+    public interface CompiledChunk {
+        /**
+         * @param runtime : the runtime whose helpers the code calls
+         * @param frame : the frame of the function being called, or null for blocks
+         * @return NORMAL, or NEXT or EXIT if the chunk or a function it called ran next or exit
+         */
+        int run(JvmRuntime runtime, InterpreterDataType[] frame);
+    }
+
+    private static final String CLASS_NAME = "interpreter/CompiledAwkChunk";
+    private static final String RUNTIME = "interpreter/JvmRuntime";
+    private static final String VALUE_CLASS = "interpreter/InterpreterDataType";
+    private static final String VALUE = "L" + VALUE_CLASS + ";";
+    private static final String FRAME = "[" + VALUE;
+    private static final String RUNTIME_TYPE = "L" + RUNTIME + ";";
+    private static final String STRING = "Ljava/lang/String;";
+    private static final String CONSTANTS = "[Ljava/lang/Object;";
+
+    private static final int RUNTIME_LOCAL = 1;
+    private static final int FRAME_LOCAL = 2;
+    private static final int CONSTANTS_LOCAL = 3;
+    private static final int FIRST_FOR_IN_LOCAL = 4;
+    private static final int MAX_LOCALS = 255;
+
+    //JVM instructions
+    private static final int ACONST_NULL = 0x01;
+    private static final int ICONST_0 = 0x03;
+    private static final int DCONST_0 = 0x0e;
+    private static final int DCONST_1 = 0x0f;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC = 0x12;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int ALOAD = 0x19;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int AALOAD = 0x32;
+    private static final int ASTORE = 0x3a;
+    private static final int ASTORE_0 = 0x4b;
+    private static final int AASTORE = 0x53;
+    private static final int POP = 0x57;
+    private static final int DUP = 0x59;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int DNEG = 0x77;
+    private static final int I2D = 0x87;
+    private static final int DCMPL = 0x97;
+    private static final int IFEQ = 0x99;
+    private static final int IFNE = 0x9a;
+    private static final int IFLT = 0x9b;
+    private static final int IFGE = 0x9c;
+    private static final int IFGT = 0x9d;
+    private static final int IFLE = 0x9e;
+    private static final int GOTO = 0xa7;
+    private static final int IRETURN = 0xac;
+    private static final int RETURN = 0xb1;
+    private static final int GETSTATIC = 0xb2;
+    private static final int GETFIELD = 0xb4;
+    private static final int PUTFIELD = 0xb5;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int NEW = 0xbb;
+    private static final int ANEWARRAY = 0xbd;
+    private static final int ATHROW = 0xbf;
+    private static final int CHECKCAST = 0xc0;
+    private static final int INSTANCEOF = 0xc1;
+
+    private MethodHandles.Lookup lookup;
+    private IdentityHashMap<BytecodeChunk.FunctionCall, JvmRuntime.CompiledCall> compiledCalls;
+
+    private ClassFileWriter writer;
+    private ClassFileWriter.Code jvmCode;
+    private int[] offsets;
+    private ArrayList<int[]> branchPatches;
+    private int scratchLocal;
+    private int maxLocals;
+
+    public JvmCompiler() {
+        lookup = MethodHandles.lookup();
+        compiledCalls = new IdentityHashMap<>();
+    }
+
+    /**
+     * translates a chunk, and every user function it calls, into hidden classes
+     *
+     * @param chunk : the chunk to translate
+     * @return an instance of the chunk's class
+     * @throws UnsupportedOperationException if the chunk is too large for a JVM method
+     */
+    public CompiledChunk compile(BytecodeChunk chunk) {
+        //the functions are compiled first, since compiling them reuses the state below
+        var constants = linkConstants(chunk.getConstants());
+        var code = chunk.getCode();
+        var forInDepths = findForInDepths(code);
+        var jumpTargets = findJumpTargets(code, forInDepths);
+
+        writer = new ClassFileWriter(CLASS_NAME, "java/lang/Object", "interpreter/JvmCompiler$CompiledChunk");
+        jvmCode = new ClassFileWriter.Code();
+        offsets = new int[code.length + 1];
+        branchPatches = new ArrayList<>();
+        scratchLocal = FIRST_FOR_IN_LOCAL + chunk.getMaxForInDepth();
+        maxLocals = scratchLocal;
+
+        emitLoad(0);
+        jvmCode.u1(GETFIELD);
+        jvmCode.u2(writer.fieldReference(CLASS_NAME, "constants", CONSTANTS));
+        emitStore(CONSTANTS_LOCAL);
+        var pc = 0;
+        while(pc < code.length) {
+            var next = pc + 1 + Opcode.getOperandCount(code[pc]);
+            if(forInDepths[pc] < 0) {
+                pc = next;
+                continue;
+            }
+            offsets[pc] = jvmCode.length();
+            if(isCondition(code[pc]) && next < code.length && !jumpTargets[next]
+                    && (code[next] == Opcode.JUMP_IF_FALSE || code[next] == Opcode.JUMP_IF_TRUE)) {
+                var trueBranch = emitCondition(chunk, pc);
+                emitBranch(code[next] == Opcode.JUMP_IF_TRUE ? trueBranch : negate(trueBranch), code[next + 1]);
+                pc = next + 2;
+                continue;
+            }
+            emitInstruction(chunk, pc, forInDepths[pc]);
+            pc = next;
+        }
+        if(forInDepths[code.length] >= 0) {
+            offsets[code.length] = jvmCode.length();
+            emitLoad(RUNTIME_LOCAL);
+            emitInvoke("clearReturnValue", "(" + RUNTIME_TYPE + ")V");
+            jvmCode.u1(ICONST_0);
+            jvmCode.u1(IRETURN);
+        }
+        for(int[] patch : branchPatches) {
+            var offset = offsets[patch[1]] - patch[0];
+            if(offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                throw new UnsupportedOperationException(chunk.getName() + " is too large to compile");
+            }
+            jvmCode.patch(patch[0] + 1, offset);
+        }
+        if(jvmCode.length() > 65535 || maxLocals > MAX_LOCALS) {
+            throw new UnsupportedOperationException(chunk.getName() + " is too large to compile");
+        }
+
+        writer.addField(ClassFileWriter.ACC_PRIVATE | ClassFileWriter.ACC_FINAL, "constants", CONSTANTS);
+        var constructor = new ClassFileWriter.Code();
+        constructor.u1(ALOAD_0);
+        constructor.u1(INVOKESPECIAL);
+        constructor.u2(writer.methodReference("java/lang/Object", "<init>", "()V"));
+        constructor.u1(ALOAD_0);
+        constructor.u1(ALOAD_0 + 1);
+        constructor.u1(PUTFIELD);
+        constructor.u2(writer.fieldReference(CLASS_NAME, "constants", CONSTANTS));
+        constructor.u1(RETURN);
+        writer.addMethod(ClassFileWriter.ACC_PUBLIC, "<init>", "(" + CONSTANTS + ")V", 2, 2, constructor);
+        //every instruction adds at most 8 slots to the stack it was compiled for
+        var maxStack = chunk.getMaxValueDepth() + 2 * chunk.getMaxNumberDepth() + 8;
+        writer.addMethod(ClassFileWriter.ACC_PUBLIC, "run", "(" + RUNTIME_TYPE + FRAME + ")I", maxStack, maxLocals, jvmCode);
+        return load(chunk.getName(), writer.toByteArray(), constants);
+    }
+
+    private CompiledChunk load(String name, byte[] classFile, Object[] constants) {
+        try {
+            var chunkLookup = lookup.defineHiddenClass(classFile, true);
+            var constructor = chunkLookup.findConstructor(chunkLookup.lookupClass(), MethodType.methodType(void.class, Object[].class));
+            return (CompiledChunk) constructor.invoke(constants);
+        }
+        catch(RuntimeException | Error e) {
+            throw e;
+        }
+        catch(Throwable e) {
+            throw new RuntimeException("could not load the compiled class of " + name, e);
+        }
+    }
+
+    /**
+     * replaces every call to a user function in a chunk's constants with a call to its compiled class
+     *
+     * @param constants : the constants of a chunk
+     * @return the constants the compiled class uses
+     */
+    private Object[] linkConstants(Object[] constants) {
+        var linked = Arrays.copyOf(constants, constants.length);
+        for(int i = 0; i < linked.length; i++) {
+            if(!(linked[i] instanceof BytecodeChunk.FunctionCall)) {
+                continue;
+            }
+            var call = (BytecodeChunk.FunctionCall) linked[i];
+            var compiledCall = compiledCalls.get(call);
+            if(compiledCall == null) {
+                compiledCall = new JvmRuntime.CompiledCall(call);
+                compiledCalls.put(call, compiledCall);
+                compiledCall.setBody(compile(call.getBody()));
+            }
+            linked[i] = compiledCall;
+        }
+        return linked;
+    }
+
+    /**
+     * follows every path through a chunk to find which instructions can run, and how many for-in
+     * loops enclose each of them, which decides the local that holds each loop's state
+     *
+     * @param code : the instructions of a chunk
+     * @return the for-in depth of each instruction and of the end of the chunk, or -1 if it never runs
+     */
+    private static int[] findForInDepths(int[] code) {
+        var depths = new int[code.length + 1];
+        Arrays.fill(depths, -1);
+        var pending = new ArrayDeque<Integer>();
+        reach(depths, pending, 0, 0);
+        while(!pending.isEmpty()) {
+            int pc = pending.pop();
+            if(pc == code.length) {
+                continue;
+            }
+            var depth = depths[pc];
+            var next = pc + 1 + Opcode.getOperandCount(code[pc]);
+            switch(code[pc]) {
+                case Opcode.JUMP:
+                    reach(depths, pending, code[pc + 1], depth);
+                    break;
+                case Opcode.JUMP_IF_FALSE:
+                case Opcode.JUMP_IF_TRUE:
+                case Opcode.JUMP_IF_ARRAY:
+                    reach(depths, pending, code[pc + 1], depth);
+                    reach(depths, pending, next, depth);
+                    break;
+                case Opcode.FOR_IN_START:
+                    reach(depths, pending, next, depth + 1);
+                    break;
+                case Opcode.FOR_IN_NEXT:
+                    reach(depths, pending, code[pc + 1], depth - 1);
+                    reach(depths, pending, next, depth);
+                    break;
+                case Opcode.FOR_IN_END:
+                    reach(depths, pending, next, depth - 1);
+                    break;
+                case Opcode.RETURN:
+                case Opcode.RETURN_EMPTY:
+                case Opcode.NEXT:
+                case Opcode.EXIT:
+                case Opcode.FAIL:
+                    break;
+                default:
+                    reach(depths, pending, next, depth);
+                    break;
+            }
+        }
+        return depths;
+    }
+
+    private static void reach(int[] depths, ArrayDeque<Integer> pending, int pc, int depth) {
+        if(depths[pc] < 0) {
+            depths[pc] = depth;
+            pending.push(pc);
+        }
+    }
+
+    private static boolean[] findJumpTargets(int[] code, int[] forInDepths) {
+        var targets = new boolean[code.length + 1];
+        var pc = 0;
+        while(pc < code.length) {
+            if(forInDepths[pc] >= 0) {
+                switch(code[pc]) {
+                    case Opcode.JUMP:
+                    case Opcode.JUMP_IF_FALSE:
+                    case Opcode.JUMP_IF_TRUE:
+                    case Opcode.JUMP_IF_ARRAY:
+                    case Opcode.FOR_IN_NEXT:
+                        targets[code[pc + 1]] = true;
+                        break;
+                    default:
+                        break;
+                }
+            }
+            pc += 1 + Opcode.getOperandCount(code[pc]);
+        }
+        return targets;
+    }
+
+    private static boolean isCondition(int opcode) {
+        switch(opcode) {
+            case Opcode.EQUAL:
+            case Opcode.NOT_EQUAL:
+            case Opcode.LESS:
+            case Opcode.LESS_OR_EQUAL:
+            case Opcode.GREATER:
+            case Opcode.GREATER_OR_EQUAL:
+            case Opcode.NUMBER_EQUAL:
+            case Opcode.NUMBER_NOT_EQUAL:
+            case Opcode.NUMBER_LESS:
+            case Opcode.NUMBER_LESS_OR_EQUAL:
+            case Opcode.NUMBER_GREATER:
+            case Opcode.NUMBER_GREATER_OR_EQUAL:
+            case Opcode.MATCH:
+            case Opcode.NOT_MATCH:
+            case Opcode.IN:
+            case Opcode.TEST:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @param branch : a JVM branch that tests an int against zero
+     * @return the branch that is taken exactly when the given one is not
+     */
+    private static int negate(int branch) {
+        return ((branch - IFEQ) ^ 1) + IFEQ;
+    }
+
+    /**
+     * emits a condition that leaves an int on the JVM stack in place of 1 or 0 on the number stack
+     *
+     * @return the branch on that int that is taken when the condition is true
+     */
+    private int emitCondition(BytecodeChunk chunk, int pc) {
+        var code = chunk.getCode();
+        switch(code[pc]) {
+            case Opcode.MATCH:
+            case Opcode.NOT_MATCH:
+                emitChunkConstant(code[pc + 1], "java/util/regex/Pattern");
+                emitInvoke("match", "(" + VALUE + "Ljava/util/regex/Pattern;)Z");
+                return code[pc] == Opcode.MATCH ? IFNE : IFEQ;
+            case Opcode.IN:
+                emitString(chunk.getStrings()[code[pc + 1]]);
+                emitInvoke("in", "(" + VALUE + VALUE + STRING + ")Z");
+                return IFNE;
+            case Opcode.TEST:
+                emitLoad(RUNTIME_LOCAL);
+                emitInvoke("test", "(" + VALUE + RUNTIME_TYPE + ")Z");
+                return IFNE;
+            case Opcode.NUMBER_EQUAL:
+            case Opcode.NUMBER_NOT_EQUAL:
+            case Opcode.NUMBER_LESS:
+            case Opcode.NUMBER_LESS_OR_EQUAL:
+            case Opcode.NUMBER_GREATER:
+            case Opcode.NUMBER_GREATER_OR_EQUAL:
+                emitInvoke("compareNumbers", "(DD)I");
+                switch(code[pc]) {
+                    case Opcode.NUMBER_EQUAL:
+                        return IFEQ;
+                    case Opcode.NUMBER_NOT_EQUAL:
+                        return IFNE;
+                    case Opcode.NUMBER_LESS:
+                        return IFLT;
+                    case Opcode.NUMBER_LESS_OR_EQUAL:
+                        return IFLE;
+                    case Opcode.NUMBER_GREATER:
+                        return IFGT;
+                    default:
+                        return IFGE;
+                }
+            default:
+                emitLoad(RUNTIME_LOCAL);
+                emitInvoke("compare", "(" + VALUE + VALUE + RUNTIME_TYPE + ")I");
+                switch(code[pc]) {
+                    case Opcode.EQUAL:
+                        return IFEQ;
+                    case Opcode.NOT_EQUAL:
+                        return IFNE;
+                    case Opcode.LESS:
+                        return IFLT;
+                    case Opcode.LESS_OR_EQUAL:
+                        return IFLE;
+                    case Opcode.GREATER:
+                        return IFGT;
+                    default:
+                        return IFGE;
+                }
+        }
+    }
+
+    private void emitInstruction(BytecodeChunk chunk, int pc, int forInDepth) {
+        var code = chunk.getCode();
+        switch(code[pc]) {
+            case Opcode.PUSH_STRING:
+                jvmCode.u1(NEW);
+                jvmCode.u2(writer.classReference(VALUE_CLASS));
+                jvmCode.u1(DUP);
+                emitString(chunk.getStrings()[code[pc + 1]]);
+                jvmCode.u1(INVOKESPECIAL);
+                jvmCode.u2(writer.methodReference(VALUE_CLASS, "<init>", "(" + STRING + ")V"));
+                break;
+            case Opcode.PUSH_TRUE:
+            case Opcode.PUSH_FALSE:
+                jvmCode.u1(GETSTATIC);
+                jvmCode.u2(writer.fieldReference("interpreter/ImmutableInterpreterDataType",
+                        code[pc] == Opcode.PUSH_TRUE ? "TRUE" : "FALSE", "Linterpreter/ImmutableInterpreterDataType;"));
+                break;
+            case Opcode.LOAD_GLOBAL:
+                emitLoad(RUNTIME_LOCAL);
+                emitInt(code[pc + 1]);
+                emitInvoke("loadGlobal", "(" + RUNTIME_TYPE + "I)" + VALUE);
+                break;
+            case Opcode.LOAD_LOCAL:
+                emitLoad(FRAME_LOCAL);
+                emitInt(code[pc + 1]);
+                emitInvoke("loadLocal", "(" + FRAME + "I)" + VALUE);
+                break;
+            case Opcode.LOAD_NUMBER_OF_FIELDS:
+                emitLoad(RUNTIME_LOCAL);
+                emitInt(code[pc + 1]);
+                emitInvoke("loadNumberOfFields", "(" + RUNTIME_TYPE + "I)" + VALUE);
+                break;
+            case Opcode.LOAD_GLOBAL_ELEMENT:
+                emitLoad(RUNTIME_LOCAL);
+                emitInt(code[pc + 1]);
+                emitString(chunk.getStrings()[code[pc + 2]]);
+                emitInvoke("loadGlobalElement", "(" + VALUE + RUNTIME_TYPE + "I" + STRING + ")" + VALUE);
+                break;
+            case Opcode.LOAD_LOCAL_ELEMENT:
+                emitLoad(RUNTIME_LOCAL);
+                emitLoad(FRAME_LOCAL);
+                emitInt(code[pc + 1]);
+                emitString(chunk.getStrings()[code[pc + 2]]);
+                emitInvoke("loadLocalElement", "(" + VALUE + RUNTIME_TYPE + FRAME + "I" + STRING + ")" + VALUE);
+                break;
+            case Opcode.LOAD_FIELD:
+                emitLoad(RUNTIME_LOCAL);
+                emitInvoke("loadField", "(" + VALUE + RUNTIME_TYPE + ")" + VALUE);
+                break;
+            case Opcode.LOAD_CONSTANT_FIELD:
+                emitLoad(RUNTIME_LOCAL);
+                emitInt(code[pc + 1]);
+                emitInvoke("loadConstantField", "(" + RUNTIME_TYPE + "I)" + VALUE);
+                break;
+            case Opcode.POP:
+                jvmCode.u1(POP);
+                break;
+            case Opcode.ASSIGN:
+                emitInvoke("assign", "(" + VALUE + VALUE + ")" + VALUE);
+                break;
+            case Opcode.APPEND:
+                emitArray(code[pc + 1]);
+                emitInvoke("append", "(" + VALUE + FRAME + ")" + VALUE);
+                break;
+            case Opcode.JUMP_IF_ARRAY:
+                jvmCode.u1(DUP);
+                jvmCode.u1(INSTANCEOF);
+                jvmCode.u2(writer.classReference("interpreter/InterpreterArrayDataType"));
+                emitBranch(IFNE, code[pc + 1]);
+                break;
+            case Opcode.PRE_INCREMENT:
+                emitUpdate("preIncrement");
+                break;
+            case Opcode.PRE_DECREMENT:
+                emitUpdate("preDecrement");
+                break;
+            case Opcode.POST_INCREMENT:
+                emitUpdate("postIncrement");
+                break;
+            case Opcode.POST_DECREMENT:
+                emitUpdate("postDecrement");
+                break;
+            case Opcode.CONCATENATE:
+                emitInvoke("concatenate", "(" + VALUE + VALUE + ")" + VALUE);
+                break;
+            case Opcode.COPY:
+                emitInvoke("copy", "(" + VALUE + ")" + VALUE);
+                break;
+            case Opcode.TO_VALUE:
+                emitInvoke("toValue", "(D)" + VALUE);
+                break;
+            case Opcode.TO_BOOLEAN_VALUE:
+                emitInvoke("toBooleanValue", "(D)" + VALUE);
+                break;
+            case Opcode.PUSH_NUMBER:
+                emitNumber(chunk.getNumbers()[code[pc + 1]]);
+                break;
+            case Opcode.TO_NUMBER:
+                emitLoad(RUNTIME_LOCAL);
+                emitInvoke("toNumber", "(" + VALUE + RUNTIME_TYPE + ")D");
+                break;
+            case Opcode.ADD:
+                jvmCode.u1(DADD);
+                break;
+            case Opcode.SUBTRACT:
+                jvmCode.u1(DSUB);
+                break;
+            case Opcode.MULTIPLY:
+                jvmCode.u1(DMUL);
+                break;
+            case Opcode.DIVIDE:
+                emitInvoke("divide", "(DD)D");
+                break;
+            case Opcode.MODULO:
+                emitInvoke("modulo", "(DD)D");
+                break;
+            case Opcode.POWER:
+                jvmCode.u1(INVOKESTATIC);
+                jvmCode.u2(writer.methodReference("java/lang/Math", "pow", "(DD)D"));
+                break;
+            case Opcode.NEGATE:
+                jvmCode.u1(DNEG);
+                break;
+            case Opcode.LOAD_GLOBAL_NUMBER:
+                emitLoad(RUNTIME_LOCAL);
+                emitInt(code[pc + 1]);
+                emitInvoke("loadGlobalNumber", "(" + RUNTIME_TYPE + "I)D");
+                break;
+            case Opcode.LOAD_LOCAL_NUMBER:
+                emitLoad(FRAME_LOCAL);
+                emitInt(code[pc + 1]);
+                emitInvoke("loadLocalNumber", "(" + FRAME + "I)D");
+                break;
+            case Opcode.ASSIGN_NUMBER:
+                emitInvoke("assignNumber", "(D" + VALUE + ")" + VALUE);
+                break;
+            case Opcode.EQUAL:
+            case Opcode.NOT_EQUAL:
+            case Opcode.LESS:
+            case Opcode.LESS_OR_EQUAL:
+            case Opcode.GREATER:
+            case Opcode.GREATER_OR_EQUAL:
+            case Opcode.NUMBER_EQUAL:
+            case Opcode.NUMBER_NOT_EQUAL:
+            case Opcode.NUMBER_LESS:
+            case Opcode.NUMBER_LESS_OR_EQUAL:
+            case Opcode.NUMBER_GREATER:
+            case Opcode.NUMBER_GREATER_OR_EQUAL:
+            case Opcode.MATCH:
+            case Opcode.NOT_MATCH:
+            case Opcode.IN:
+            case Opcode.TEST:
+                //turns the int into 1.0 or 0.0 with two short branches
+                jvmCode.u1(negate(emitCondition(chunk, pc)));
+                jvmCode.u2(7);
+                jvmCode.u1(DCONST_1);
+                jvmCode.u1(GOTO);
+                jvmCode.u2(4);
+                jvmCode.u1(DCONST_0);
+                break;
+            case Opcode.NOT:
+                emitInvoke("not", "(D)D");
+                break;
+            case Opcode.JUMP:
+                emitBranch(GOTO, code[pc + 1]);
+                break;
+            case Opcode.JUMP_IF_FALSE:
+            case Opcode.JUMP_IF_TRUE:
+                jvmCode.u1(DCONST_0);
+                jvmCode.u1(DCMPL);
+                emitBranch(code[pc] == Opcode.JUMP_IF_FALSE ? IFEQ : IFNE, code[pc + 1]);
+                break;
+            case Opcode.FOR_IN_START:
+                emitInvoke("forInStart", "(" + VALUE + VALUE + ")Linterpreter/JvmRuntime$ForInState;");
+                emitStore(FIRST_FOR_IN_LOCAL + forInDepth);
+                break;
+            case Opcode.FOR_IN_NEXT:
+                emitLoad(FIRST_FOR_IN_LOCAL + forInDepth - 1);
+                emitInvoke("forInNext", "(Linterpreter/JvmRuntime$ForInState;)Z");
+                emitBranch(IFEQ, code[pc + 1]);
+                break;
+            case Opcode.FOR_IN_END:
+                jvmCode.u1(ACONST_NULL);
+                emitStore(FIRST_FOR_IN_LOCAL + forInDepth - 1);
+                break;
+            case Opcode.CALL_BUILTIN:
+                emitArray(code[pc + 2]);
+                emitChunkConstant(code[pc + 1], "interpreter/BuiltInFunctionDefinitionNode");
+                emitLoad(RUNTIME_LOCAL);
+                emitInvoke("callBuiltIn", "(" + FRAME + "Linterpreter/BuiltInFunctionDefinitionNode;" + RUNTIME_TYPE + ")" + VALUE);
+                break;
+            case Opcode.CALL_FUNCTION:
+                emitArray(code[pc + 2]);
+                emitChunkConstant(code[pc + 1], "interpreter/JvmRuntime$CompiledCall");
+                emitLoad(RUNTIME_LOCAL);
+                emitInvoke("callFunction", "(" + FRAME + "Linterpreter/JvmRuntime$CompiledCall;" + RUNTIME_TYPE + ")I");
+                //a status other than NORMAL is returned to the caller at once
+                jvmCode.u1(DUP);
+                jvmCode.u1(IFEQ);
+                jvmCode.u2(4);
+                jvmCode.u1(IRETURN);
+                jvmCode.u1(POP);
+                emitLoad(RUNTIME_LOCAL);
+                emitInvoke("takeReturnValue", "(" + RUNTIME_TYPE + ")" + VALUE);
+                break;
+            case Opcode.RETURN:
+                emitLoad(RUNTIME_LOCAL);
+                emitInvoke("setReturnValue", "(" + VALUE + RUNTIME_TYPE + ")V");
+                jvmCode.u1(ICONST_0);
+                jvmCode.u1(IRETURN);
+                break;
+            case Opcode.RETURN_EMPTY:
+                emitLoad(RUNTIME_LOCAL);
+                emitInvoke("clearReturnValue", "(" + RUNTIME_TYPE + ")V");
+                jvmCode.u1(ICONST_0);
+                jvmCode.u1(IRETURN);
+                break;
+            case Opcode.NEXT:
+                emitInt(JvmRuntime.NEXT);
+                jvmCode.u1(IRETURN);
+                break;
+            case Opcode.EXIT:
+                emitInt(JvmRuntime.EXIT);
+                jvmCode.u1(IRETURN);
+                break;
+            case Opcode.DELETE_GLOBAL:
+                emitLoad(RUNTIME_LOCAL);
+                emitInt(code[pc + 1]);
+                emitInvoke("deleteGlobal", "(" + RUNTIME_TYPE + "I)V");
+                break;
+            case Opcode.DELETE_LOCAL:
+                emitLoad(FRAME_LOCAL);
+                emitInt(code[pc + 1]);
+                emitInvoke("deleteLocal", "(" + FRAME + "I)V");
+                break;
+            case Opcode.DELETE_GLOBAL_ELEMENT:
+                emitLoad(RUNTIME_LOCAL);
+                emitInt(code[pc + 1]);
+                emitInvoke("deleteGlobalElement", "(" + VALUE + RUNTIME_TYPE + "I)V");
+                break;
+            case Opcode.DELETE_LOCAL_ELEMENT:
+                emitLoad(FRAME_LOCAL);
+                emitInt(code[pc + 1]);
+                emitInvoke("deleteLocalElement", "(" + VALUE + FRAME + "I)V");
+                break;
+            case Opcode.FAIL:
+                emitString(chunk.getStrings()[code[pc + 1]]);
+                emitInvoke("fail", "(" + STRING + ")Ljava/lang/RuntimeException;");
+                jvmCode.u1(ATHROW);
+                break;
+            default:
+                throw new RuntimeException("unknown instruction " + code[pc] + " in " + chunk.getName());
+        }
+    }
+
+    private void emitUpdate(String helper) {
+        emitLoad(RUNTIME_LOCAL);
+        emitInvoke(helper, "(" + VALUE + RUNTIME_TYPE + ")" + VALUE);
+    }
+
+    private void emitInvoke(String helper, String descriptor) {
+        jvmCode.u1(INVOKESTATIC);
+        jvmCode.u2(writer.methodReference(RUNTIME, helper, descriptor));
+    }
+
+    private void emitBranch(int branch, int target) {
+        branchPatches.add(new int[] {jvmCode.length(), target});
+        jvmCode.u1(branch);
+        jvmCode.u2(0);
+    }
+
+    private void emitLoad(int local) {
+        if(local <= 3) {
+            jvmCode.u1(ALOAD_0 + local);
+        }
+        else {
+            jvmCode.u1(ALOAD);
+            jvmCode.u1(local);
+        }
+    }
+
+    private void emitStore(int local) {
+        if(local <= 3) {
+            jvmCode.u1(ASTORE_0 + local);
+        }
+        else {
+            jvmCode.u1(ASTORE);
+            jvmCode.u1(local);
+        }
+    }
+
+    private void emitInt(int value) {
+        if(value >= -1 && value <= 5) {
+            jvmCode.u1(ICONST_0 + value);
+        }
+        else if(value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            jvmCode.u1(BIPUSH);
+            jvmCode.u1(value);
+        }
+        else if(value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            jvmCode.u1(SIPUSH);
+            jvmCode.u2(value);
+        }
+        else {
+            emitPoolConstant(writer.integer(value));
+        }
+    }
+
+    private void emitNumber(double value) {
+        if(Double.doubleToRawLongBits(value) == 0) {
+            jvmCode.u1(DCONST_0);
+        }
+        else if(value == 1) {
+            jvmCode.u1(DCONST_1);
+        }
+        else {
+            jvmCode.u1(LDC2_W);
+            jvmCode.u2(writer.doubleConstant(value));
+        }
+    }
+
+    private void emitString(String value) {
+        if(value == null) {
+            jvmCode.u1(ACONST_NULL);
+        }
+        else {
+            emitPoolConstant(writer.string(value));
+        }
+    }
+
+    private void emitPoolConstant(int index) {
+        if(index < 256) {
+            jvmCode.u1(LDC);
+            jvmCode.u1(index);
+        }
+        else {
+            jvmCode.u1(LDC_W);
+            jvmCode.u2(index);
+        }
+    }
+
+    private void emitChunkConstant(int index, String className) {
+        emitLoad(CONSTANTS_LOCAL);
+        emitInt(index);
+        jvmCode.u1(AALOAD);
+        jvmCode.u1(CHECKCAST);
+        jvmCode.u2(writer.classReference(className));
+    }
+
+    /**
+     * replaces the top values of the JVM stack with an array of them, in the order they were pushed
+     *
+     * @param count : the number of values
+     */
+    private void emitArray(int count) {
+        for(int i = count - 1; i >= 0; i--) {
+            emitStore(scratchLocal + i);
+        }
+        emitInt(count);
+        jvmCode.u1(ANEWARRAY);
+        jvmCode.u2(writer.classReference(VALUE_CLASS));
+        for(int i = 0; i < count; i++) {
+            jvmCode.u1(DUP);
+            emitInt(i);
+            emitLoad(scratchLocal + i);
+            jvmCode.u1(AASTORE);
+        }
+        maxLocals = Math.max(maxLocals, scratchLocal + count);
+    }
+}
@@ -0,0 +1,344 @@
+package interpreter;
+
+import java.util.regex.Pattern;
+
+/**
+ * This class runs an AWK program whose chunks the JvmCompiler turned into JVM classes. The
+ * generated code calls its static helpers for every instruction that is more than a primitive
+ * operation, and they behave exactly as the VirtualMachine's instructions do.
+ *
+ * @author Jake Camadine
+ */
+public class JvmRuntime {
+    static final int NORMAL = 0;
+    static final int NEXT = 1;
+    static final int EXIT = 2;
+
+    /**
+     * This class models the progress of a for-in loop through a snapshot of its array's keys
+     */
+    static class ForInState {
+        private String[] keys;
+        private int next;
+        private InterpreterDataType variable;
+    }
+
+    /**
+     * This class models a call site of a user function together with the function's compiled
+     * class, which is filled in once the function is compiled so that functions can be recursive
+     */
+    static class CompiledCall {
+        private BytecodeChunk.FunctionCall call;
+        private JvmCompiler.CompiledChunk body;
+
+        CompiledCall(BytecodeChunk.FunctionCall call) {
+            this.call = call;
+        }
+
+        void setBody(JvmCompiler.CompiledChunk body) {
+            this.body = body;
+        }
+    }
+
+    private Interpreter interpreter;
+    private InterpreterDataType[] globalVariables;
+    private InterpreterDataType returnValue;
+
+    private JvmCompiler.CompiledChunk beginChunk;
+    private JvmCompiler.CompiledChunk mainChunk;
+    private JvmCompiler.CompiledChunk endChunk;
+
+    /**
+     * compiles the chunks, and the functions they call, into JVM classes
+     *
+     * @param interpreter : the interpreter whose globals, fields, and builtins the program uses
+     * @param beginChunk : the compiled BEGIN blocks
+     * @param mainChunk : the compiled blocks that run for every record
+     * @param endChunk : the compiled END blocks
+     * @throws UnsupportedOperationException if a chunk is too large for a JVM method
+     */
+    public JvmRuntime(Interpreter interpreter, BytecodeChunk beginChunk, BytecodeChunk mainChunk, BytecodeChunk endChunk) {
+        this.interpreter = interpreter;
+        globalVariables = interpreter.getGlobalVariables();
+        var compiler = new JvmCompiler();
+        this.beginChunk = compiler.compile(beginChunk);
+        this.mainChunk = compiler.compile(mainChunk);
+        this.endChunk = compiler.compile(endChunk);
+    }
+
+    /**
+     * runs the BEGIN blocks, the other blocks once for every record, and then the END blocks.
+     * next moves on to the following record, and exit skips to the END blocks, or ends them.
+     */
+    public void run() {
+        var status = beginChunk.run(this, null);
+        if(status != EXIT) {
+            interpreter.nextRecord();
+            do {
+                status = mainChunk.run(this, null);
+            } while(status != EXIT && interpreter.nextRecord());
+        }
+        endChunk.run(this, null);
+    }
+
+    static InterpreterDataType loadGlobal(JvmRuntime runtime, int slot) {
+        var variables = runtime.globalVariables;
+        if(variables[slot] == null) {
+            variables[slot] = new InterpreterDataType();
+        }
+        return variables[slot];
+    }
+
+    static InterpreterDataType loadLocal(InterpreterDataType[] frame, int slot) {
+        if(frame[slot] == null) {
+            frame[slot] = new InterpreterDataType();
+        }
+        return frame[slot];
+    }
+
+    static InterpreterDataType loadNumberOfFields(JvmRuntime runtime, int slot) {
+        runtime.interpreter.finishFields();
+        return runtime.globalVariables[slot];
+    }
+
+    static double loadGlobalNumber(JvmRuntime runtime, int slot) {
+        return runtime.globalVariables[slot].getNumber();
+    }
+
+    static double loadLocalNumber(InterpreterDataType[] frame, int slot) {
+        return frame[slot].getNumber();
+    }
+
+    static InterpreterDataType loadGlobalElement(InterpreterDataType key, JvmRuntime runtime, int slot, String name) {
+        var variables = runtime.globalVariables;
+        if(variables[slot] == null) {
+            variables[slot] = new InterpreterArrayDataType();
+        }
+        return runtime.interpreter.getArrayElement(variables[slot], key.getData(), name);
+    }
+
+    static InterpreterDataType loadLocalElement(InterpreterDataType key, JvmRuntime runtime, InterpreterDataType[] frame, int slot, String name) {
+        if(frame[slot] == null) {
+            frame[slot] = new InterpreterArrayDataType();
+        }
+        return runtime.interpreter.getArrayElement(frame[slot], key.getData(), name);
+    }
+
+    static InterpreterDataType loadField(InterpreterDataType index, JvmRuntime runtime) {
+        if(!index.isNumeric()) {
+            throw new RuntimeException("invalid field reference: $" + index.getData());
+        }
+        return runtime.interpreter.getField((int) index.getNumber());
+    }
+
+    static InterpreterDataType loadConstantField(JvmRuntime runtime, int index) {
+        return runtime.interpreter.getField(index);
+    }
+
+    static InterpreterDataType assign(InterpreterDataType right, InterpreterDataType target) {
+        target.assign(right);
+        return target;
+    }
+
+    static InterpreterDataType assignNumber(double number, InterpreterDataType target) {
+        target.setNumber(number);
+        return target;
+    }
+
+    static InterpreterDataType append(InterpreterDataType target, InterpreterDataType[] parts) {
+        if(parts.length == 1) {
+            target.append(parts[0].getData());
+            return target;
+        }
+        //every part is read before the target changes, since a part may read the target
+        var builder = new StringBuilder();
+        for(InterpreterDataType part : parts) {
+            builder.append(part.getData());
+        }
+        target.append(builder.toString());
+        return target;
+    }
+
+    static InterpreterDataType preIncrement(InterpreterDataType left, JvmRuntime runtime) {
+        left.setNumber(runtime.interpreter.toNumber(left) + 1);
+        return left;
+    }
+
+    static InterpreterDataType preDecrement(InterpreterDataType left, JvmRuntime runtime) {
+        left.setNumber(runtime.interpreter.toNumber(left) - 1);
+        return left;
+    }
+
+    static InterpreterDataType postIncrement(InterpreterDataType left, JvmRuntime runtime) {
+        var previous = runtime.interpreter.toNumber(left);
+        left.setNumber(previous + 1);
+        return new InterpreterDataType(previous);
+    }
+
+    static InterpreterDataType postDecrement(InterpreterDataType left, JvmRuntime runtime) {
+        var previous = runtime.interpreter.toNumber(left);
+        left.setNumber(previous - 1);
+        return new InterpreterDataType(previous);
+    }
+
+    static InterpreterDataType concatenate(InterpreterDataType left, InterpreterDataType right) {
+        return new InterpreterDataType(left.getData() + right.getData());
+    }
+
+    static InterpreterDataType copy(InterpreterDataType value) {
+        return new InterpreterDataType(value.getData());
+    }
+
+    static InterpreterDataType toValue(double number) {
+        return new InterpreterDataType(number);
+    }
+
+    static InterpreterDataType toBooleanValue(double condition) {
+        return ImmutableInterpreterDataType.valueOf(condition != 0);
+    }
+
+    static double toNumber(InterpreterDataType value, JvmRuntime runtime) {
+        return runtime.interpreter.toNumber(value);
+    }
+
+    static double divide(double left, double right) {
+        if(right == 0) {
+            throw new ArithmeticException("division by zero");
+        }
+        return left / right;
+    }
+
+    static double modulo(double left, double right) {
+        if(right == 0) {
+            throw new ArithmeticException("division by zero in %");
+        }
+        return left % right;
+    }
+
+    static int compare(InterpreterDataType left, InterpreterDataType right, JvmRuntime runtime) {
+        return runtime.interpreter.compare(left, right);
+    }
+
+    static int compareNumbers(double left, double right) {
+        return Interpreter.compareNumbers(left, right);
+    }
+
+    static boolean match(InterpreterDataType value, Pattern pattern) {
+        return pattern.matcher(value.getData()).find();
+    }
+
+    static boolean in(InterpreterDataType key, InterpreterDataType array, String name) {
+        if(!(array instanceof InterpreterArrayDataType)) {
+            throw new RuntimeException("illegal membership operation." + name + "is not an array");
+        }
+        return ((InterpreterArrayDataType) array).getArrayData().containsKey(key.getData());
+    }
+
+    static boolean test(InterpreterDataType value, JvmRuntime runtime) {
+        return runtime.interpreter.isTrue(value);
+    }
+
+    static double not(double condition) {
+        return condition == 0 ? 1 : 0;
+    }
+
+    static ForInState forInStart(InterpreterDataType array, InterpreterDataType variable) {
+        if(!(array instanceof InterpreterArrayDataType)) {
+            throw new RuntimeException("attempt to use scalar reference as array");
+        }
+        if(variable instanceof InterpreterArrayDataType) {
+            throw new RuntimeException("attempt to use array as the variable of a for-in loop");
+        }
+        var state = new ForInState();
+        state.keys = ((InterpreterArrayDataType) array).getArrayData().keySet().toArray(new String[0]);
+        state.variable = variable;
+        return state;
+    }
+
+    static boolean forInNext(ForInState state) {
+        if(state.next == state.keys.length) {
+            return false;
+        }
+        state.variable.setData(state.keys[state.next++]);
+        return true;
+    }
+
+    static InterpreterDataType callBuiltIn(InterpreterDataType[] arguments, BuiltInFunctionDefinitionNode function, JvmRuntime runtime) {
+        return runtime.interpreter.callBuiltIn(function, arguments);
+    }
+
+    /**
+     * calls a user function in a pooled frame. Scalar arguments are copied, and arrays are passed by reference.
+     *
+     * @return NORMAL, or NEXT or EXIT if the function ran next or exit
+     */
+    static int callFunction(InterpreterDataType[] arguments, CompiledCall call, JvmRuntime runtime) {
+        var framePool = call.call.getFramePool();
+        var frame = framePool.acquire();
+        try {
+            for(int i = 0; i < arguments.length; i++) {
+                var argument = arguments[i];
+                if(!(argument instanceof InterpreterArrayDataType)) {
+                    var scalarArgument = new InterpreterDataType();
+                    scalarArgument.assign(argument);
+                    argument = scalarArgument;
+                }
+                frame[i] = argument;
+            }
+            return call.body.run(runtime, frame);
+        }
+        finally {
+            framePool.release(frame);
+        }
+    }
+
+    static InterpreterDataType takeReturnValue(JvmRuntime runtime) {
+        return runtime.returnValue;
+    }
+
+    static void setReturnValue(InterpreterDataType value, JvmRuntime runtime) {
+        runtime.returnValue = new InterpreterDataType(value);
+    }
+
+    static void clearReturnValue(JvmRuntime runtime) {
+        runtime.returnValue = new InterpreterDataType();
+    }
+
+    static void deleteGlobal(JvmRuntime runtime, int slot) {
+        delete(runtime.globalVariables, slot);
+    }
+
+    static void deleteLocal(InterpreterDataType[] frame, int slot) {
+        delete(frame, slot);
+    }
+
+    private static void delete(InterpreterDataType[] variables, int slot) {
+        if(variables[slot] != null) {
+            if(!(variables[slot] instanceof InterpreterArrayDataType)) {
+                throw new RuntimeException("attempt to use scalar reference as an array");
+            }
+            variables[slot] = null;
+        }
+    }
+
+    static void deleteGlobalElement(InterpreterDataType key, JvmRuntime runtime, int slot) {
+        deleteElement(key, runtime.globalVariables, slot);
+    }
+
+    static void deleteLocalElement(InterpreterDataType key, InterpreterDataType[] frame, int slot) {
+        deleteElement(key, frame, slot);
+    }
+
+    private static void deleteElement(InterpreterDataType key, InterpreterDataType[] variables, int slot) {
+        if(variables[slot] != null) {
+            if(!(variables[slot] instanceof InterpreterArrayDataType)) {
+                throw new RuntimeException("attempt to use scalar reference as an array");
+            }
+            ((InterpreterArrayDataType) variables[slot]).getArrayData().remove(key.getData());
+        }
+    }
+
+    static RuntimeException fail(String message) {
+        return new RuntimeException(message);
+    }
+}
@@ -0,0 +1,42 @@
+package interpreter;
+
+import parser.ConstantNode;
+
+/**
+ * This class models a constant whose value is built once, when the program is optimized,
+ * and then shared by every evaluation of the constant.
+ *
+ * @author Jake Camadine
+ */
+public class LiteralNode extends ConstantNode {
+    private ImmutableInterpreterDataType value;
+
+    /**
+     * @param constant : a constant of the program. A numerical constant is given a number, which
+     *                 prints in its converted form, and a String literal is given a String.
+     */
+    public LiteralNode(ConstantNode constant) {
+        super(constant.toString(), constant.isNumber());
+        if(constant.isNumber()) {
+            value = new ImmutableInterpreterDataType(NumberScanner.parse(constant.toString()));
+        }
+        else {
+            value = new ImmutableInterpreterDataType(constant.toString());
+        }
+    }
+
+    /**
+     * @param value : a value computed once, such as the result of a constant operation, whose type is kept
+     */
+    public LiteralNode(InterpreterDataType value) {
+        super(value.getData(), value.isNumber());
+        this.value = new ImmutableInterpreterDataType(value);
+    }
+
+    /**
+     * @return the constant's value
+     */
+    public ImmutableInterpreterDataType getValue() {
+        return value;
+    }
+}
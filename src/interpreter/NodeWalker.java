@@ -0,0 +1,88 @@
+package interpreter;
+
+import parser.*;
+
+/**
+ * This class visits the nodes of a subtree of the program, for analyses that look at every
+ * expression and statement in it.
+ *
+ * @author Jake Camadine
+ */
+public final class NodeWalker {
+    /**
+     * receives each node of the walked subtree
+     */
+    public interface Visitor {
+        void visit(Node node);
+    }
+
+    private NodeWalker() {
+
+    }
+
+    /**
+     * visits every node of a subtree, parents before their children
+     *
+     * @param node : the root of the subtree
+     * @param visitor : the visitor
+     */
+    public static void walk(Node node, Visitor visitor) {
+        visitor.visit(node);
+        switch(node.getNodeType()) {
+            case VARIABLE_REFERENCE:
+                ((VariableReferenceNode) node).getIndexExpression().ifPresent((index) -> walk(index, visitor));
+                break;
+            case ASSIGNMENT:
+                walk(((AssignmentNode) node).getTarget(), visitor);
+                walk(((AssignmentNode) node).getAssignment(), visitor);
+                break;
+            case FUNCTION_CALL:
+                ((FunctionCallNode) node).getParameters().forEach((parameter) -> walk(parameter, visitor));
+                break;
+            case OPERATION:
+                walk(((OperationNode) node).getLeft(), visitor);
+                ((OperationNode) node).getRight().ifPresent((right) -> walk(right, visitor));
+                break;
+            case TERNARY:
+                walk(((TernaryNode) node).getBooleanExpression(), visitor);
+                walk(((TernaryNode) node).getTrueCase(), visitor);
+                walk(((TernaryNode) node).getFalseCase(), visitor);
+                break;
+            case DELETE:
+                walk(((DeleteNode) node).getReference(), visitor);
+                break;
+            case DO_WHILE:
+                walk(((DoWhileNode) node).getCondition(), visitor);
+                ((DoWhileNode) node).getLoopBlock().getStatements().forEach((statement) -> walk(statement, visitor));
+                break;
+            case WHILE:
+                walk(((WhileNode) node).getCondition(), visitor);
+                ((WhileNode) node).getLoopBlock().getStatements().forEach((statement) -> walk(statement, visitor));
+                break;
+            case FOR: {
+                var loop = (ForNode) node;
+                loop.getInitializer().ifPresent((initializer) -> walk(initializer, visitor));
+                loop.getConditional().ifPresent((condition) -> walk(condition, visitor));
+                loop.getPostIterationOperation().ifPresent((postIteration) -> walk(postIteration, visitor));
+                loop.getLoopBlock().getStatements().forEach((statement) -> walk(statement, visitor));
+                break;
+            }
+            case FOR_IN:
+                walk(((ForInNode) node).getInStatement(), visitor);
+                ((ForInNode) node).getLoopBlock().getStatements().forEach((statement) -> walk(statement, visitor));
+                break;
+            case IF: {
+                var statement = (IfNode) node;
+                statement.getCondition().ifPresent((condition) -> walk(condition, visitor));
+                statement.getBlockStatements().getStatements().forEach((blockStatement) -> walk(blockStatement, visitor));
+                statement.getNext().ifPresent((next) -> walk(next, visitor));
+                break;
+            }
+            case RETURN:
+                ((ReturnNode) node).getParameter().ifPresent((parameter) -> walk(parameter, visitor));
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package interpreter;
+
+import java.math.BigInteger;
+
+/**
+ * This class classifies and parses numeric strings in a single pass without throwing exceptions.
+ * Decimals are converted with the Eisel-Lemire algorithm, falling back to Double.parseDouble
+ * only for the rare inputs the algorithm cannot round on its own.
+ *
+ * @author Jake Camadine
+ */
+public final class NumberScanner {
+    private static final int MIN_EXPONENT = -348;
+    private static final int MAX_EXPONENT = 347;
+    private static final int MAX_MANTISSA_DIGITS = 19;
+
+    private static final double[] SMALL_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    //the 128 bit mantissas of the powers of ten from MIN_EXPONENT to MAX_EXPONENT, rounded down
+    private static final long[] POWERS_OF_TEN_HIGH = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+    private static final long[] POWERS_OF_TEN_LOW = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+
+    static {
+        var lowMask = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+        for(int exponent = MIN_EXPONENT; exponent <= MAX_EXPONENT; exponent++) {
+            BigInteger mantissa;
+            if(exponent >= 0) {
+                var power = BigInteger.TEN.pow(exponent);
+                var shift = 128 - power.bitLength();
+                mantissa = shift >= 0 ? power.shiftLeft(shift) : power.shiftRight(-shift);
+            }
+            else {
+                var power = BigInteger.TEN.pow(-exponent);
+                mantissa = BigInteger.ONE.shiftLeft(127 + power.bitLength()).divide(power);
+                while(mantissa.bitLength() > 128) {
+                    mantissa = mantissa.shiftRight(1);
+                }
+            }
+            POWERS_OF_TEN_HIGH[exponent - MIN_EXPONENT] = mantissa.shiftRight(64).longValue();
+            POWERS_OF_TEN_LOW[exponent - MIN_EXPONENT] = mantissa.and(lowMask).longValue();
+        }
+    }
+
+    private NumberScanner() {
+
+    }
+
+    /**
+     * parses a String of the form [sign] digits [. digits] [e [sign] digits], optionally surrounded by blanks.
+     *
+     * @param text : the String to parse
+     * @return the value of text, or NaN if text is not numeric
+     */
+    public static double parse(String text) {
+        if(text == null) {
+            return Double.NaN;
+        }
+        int index = 0;
+        int end = text.length();
+        while(index < end && isBlank(text.charAt(index))) {
+            index++;
+        }
+        while(end > index && isBlank(text.charAt(end - 1))) {
+            end--;
+        }
+        var start = index;
+        var isNegative = false;
+        if(index < end && (text.charAt(index) == '+' || text.charAt(index) == '-')) {
+            isNegative = text.charAt(index) == '-';
+            index++;
+        }
+        long mantissa = 0;
+        int significantDigits = 0;
+        int digitCount = 0;
+        int decimalExponent = 0;
+        var isIntegral = true;
+
+        while(index < end && isDigit(text.charAt(index))) {
+            if(mantissa != 0 || text.charAt(index) != '0') {
+                if(significantDigits < MAX_MANTISSA_DIGITS) {
+                    mantissa = mantissa * 10 + (text.charAt(index) - '0');
+                }
+                else {
+                    decimalExponent++;
+                }
+                significantDigits++;
+            }
+            digitCount++;
+            index++;
+        }
+        if(index < end && text.charAt(index) == '.') {
+            isIntegral = false;
+            index++;
+            while(index < end && isDigit(text.charAt(index))) {
+                if(mantissa != 0 || text.charAt(index) != '0') {
+                    if(significantDigits < MAX_MANTISSA_DIGITS) {
+                        mantissa = mantissa * 10 + (text.charAt(index) - '0');
+                        decimalExponent--;
+                    }
+                    significantDigits++;
+                }
+                else {
+                    decimalExponent--;
+                }
+                digitCount++;
+                index++;
+            }
+        }
+        if(digitCount == 0) {
+            return Double.NaN;
+        }
+        if(index < end && (text.charAt(index) == 'e' || text.charAt(index) == 'E')) {
+            isIntegral = false;
+            index++;
+            var exponentIsNegative = false;
+            if(index < end && (text.charAt(index) == '+' || text.charAt(index) == '-')) {
+                exponentIsNegative = text.charAt(index) == '-';
+                index++;
+            }
+            if(index == end || !isDigit(text.charAt(index))) {
+                return Double.NaN;
+            }
+            int exponent = 0;
+            while(index < end && isDigit(text.charAt(index))) {
+                if(exponent < 100000) {
+                    exponent = exponent * 10 + (text.charAt(index) - '0');
+                }
+                index++;
+            }
+            decimalExponent += exponentIsNegative ? -exponent : exponent;
+        }
+        if(index != end) {
+            return Double.NaN;
+        }
+        if(significantDigits > MAX_MANTISSA_DIGITS) {
+            return Double.parseDouble(text.substring(start, end));
+        }
+        if(isIntegral && significantDigits < MAX_MANTISSA_DIGITS) {
+            return isNegative ? -(double) mantissa : (double) mantissa;
+        }
+        var value = convertDecimal(mantissa, decimalExponent);
+        if(Double.isNaN(value)) {
+            return Double.parseDouble(text.substring(start, end));
+        }
+        return isNegative ? -value : value;
+    }
+
+    /**
+     * converts mantissa * 10^exponent to the nearest double.
+     *
+     * @param mantissa : the significant digits, at most 19 of them
+     * @param exponent : the power of ten
+     * @return the nearest double, or NaN if the result could not be rounded with certainty
+     */
+    private static double convertDecimal(long mantissa, int exponent) {
+        if(mantissa == 0) {
+            return 0;
+        }
+        if(mantissa >= 0 && mantissa <= (1L << 53) && exponent >= -22 && exponent <= 22) {
+            if(exponent >= 0) {
+                return mantissa * SMALL_POWERS_OF_TEN[exponent];
+            }
+            return mantissa / SMALL_POWERS_OF_TEN[-exponent];
+        }
+        if(exponent < MIN_EXPONENT || exponent > MAX_EXPONENT) {
+            return Double.NaN;
+        }
+        var leadingZeros = Long.numberOfLeadingZeros(mantissa);
+        mantissa <<= leadingZeros;
+        long binaryExponent = ((217706L * exponent) >> 16) + 64 + 1023 - leadingZeros;
+
+        var powerHigh = POWERS_OF_TEN_HIGH[exponent - MIN_EXPONENT];
+        var powerLow = POWERS_OF_TEN_LOW[exponent - MIN_EXPONENT];
+        var productHigh = unsignedMultiplyHigh(mantissa, powerHigh);
+        var productLow = mantissa * powerHigh;
+
+        if((productHigh & 0x1FF) == 0x1FF && Long.compareUnsigned(productLow + mantissa, mantissa) < 0) {
+            var lowerHigh = unsignedMultiplyHigh(mantissa, powerLow);
+            var lowerLow = mantissa * powerLow;
+            var mergedHigh = productHigh;
+            var mergedLow = productLow + lowerHigh;
+            if(Long.compareUnsigned(mergedLow, productLow) < 0) {
+                mergedHigh++;
+            }
+            if((mergedHigh & 0x1FF) == 0x1FF && mergedLow + 1 == 0 && Long.compareUnsigned(lowerLow + mantissa, mantissa) < 0) {
+                return Double.NaN;
+            }
+            productHigh = mergedHigh;
+            productLow = mergedLow;
+        }
+        var mostSignificantBit = productHigh >>> 63;
+        var resultMantissa = productHigh >>> (mostSignificantBit + 9);
+        binaryExponent -= 1 ^ mostSignificantBit;
+
+        if(productLow == 0 && (productHigh & 0x1FF) == 0 && (resultMantissa & 3) == 1) {
+            return Double.NaN;
+        }
+        resultMantissa += resultMantissa & 1;
+        resultMantissa >>>= 1;
+        if((resultMantissa >>> 53) > 0) {
+            resultMantissa >>>= 1;
+            binaryExponent++;
+        }
+        if(binaryExponent <= 0 || binaryExponent >= 0x7FF) {
+            return Double.NaN;
+        }
+        return Double.longBitsToDouble(binaryExponent << 52 | (resultMantissa & 0x000FFFFFFFFFFFFFL));
+    }
+
+    /**
+     * @return the high 64 bits of the unsigned 128 bit product of x and y
+     */
+    private static long unsignedMultiplyHigh(long x, long y) {
+        return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+    }
+
+    private static boolean isDigit(char character) {
+        return character >= '0' && character <= '9';
+    }
+
+    private static boolean isBlank(char character) {
+        return character == ' ' || character == '\t' || character == '\n' || character == '\r' || character == '\f' || character == 0x0B;
+    }
+}
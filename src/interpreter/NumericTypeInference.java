@@ -0,0 +1,430 @@
+package interpreter;
+
+import parser.*;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This class infers which scalar variables only ever hold numbers. A variable qualifies when every
+ * assignment to it produces a number and it is never used as an array, passed to a function that
+ * could change it, or set by the interpreter to a String. Such a variable reads as an empty String
+ * until its first assignment and as a number from then on, so a flow analysis over the program
+ * finds the reads where it has certainly been assigned. The compilers evaluate those reads, and the
+ * expressions built from them, as primitive numbers, and treat everything else as dynamic values.
+ *
+ * @author Jake Camadine
+ */
+public class NumericTypeInference {
+    private static final Set<String> MUTATING_BUILTINS = Set.of("sub", "gsub", "getline", "split");
+    private static final Set<String> NUMERIC_SPECIAL_VARIABLES = Set.of("NF", "NR", "FNR");
+
+    private HashMap<String, FunctionDefinitionNode> functions;
+    private BitSet disqualifiedGlobals;
+    private IdentityHashMap<FunctionDefinitionNode, BitSet> disqualifiedLocals;
+    private Set<Node> numericReads;
+
+    private FunctionDefinitionNode function;
+    private BitSet assigned;
+
+    /**
+     * analyzes a program whose variables are already resolved
+     *
+     * @param program : the program
+     */
+    public NumericTypeInference(ProgramNode program) {
+        functions = new HashMap<>();
+        disqualifiedGlobals = new BitSet();
+        disqualifiedLocals = new IdentityHashMap<>();
+        numericReads = Collections.newSetFromMap(new IdentityHashMap<>());
+        for(FunctionDefinitionNode definition : program.getFunctionNodes()) {
+            functions.put(definition.getFunctionName(), definition);
+            disqualifiedLocals.put(definition, new BitSet());
+        }
+
+        function = null;
+        for(List<BlockNode> blocks : List.of(program.getBeginNodes(), program.getBlockNodes(), program.getEndNodes())) {
+            for(BlockNode block : blocks) {
+                block.getCondition().ifPresent((condition) -> NodeWalker.walk(condition, this::qualify));
+                block.getStatements().forEach((statement) -> NodeWalker.walk(statement, this::qualify));
+            }
+        }
+        for(FunctionDefinitionNode definition : program.getFunctionNodes()) {
+            function = definition;
+            definition.getStatements().forEach((statement) -> NodeWalker.walk(statement, this::qualify));
+        }
+
+        //the main blocks and END run after BEGIN has finished, unless next or exit cut it short
+        function = null;
+        assigned = new BitSet();
+        for(BlockNode block : program.getBeginNodes()) {
+            analyzeStatements(block.getStatements());
+        }
+        var afterBegin = mayLeaveEarly(program) ? new BitSet() : assigned;
+        for(List<BlockNode> blocks : List.of(program.getBlockNodes(), program.getEndNodes())) {
+            for(BlockNode block : blocks) {
+                assigned = (BitSet) afterBegin.clone();
+                block.getCondition().ifPresent(this::analyze);
+                analyzeStatements(block.getStatements());
+            }
+        }
+        for(FunctionDefinitionNode definition : program.getFunctionNodes()) {
+            function = definition;
+            assigned = new BitSet();
+            analyzeStatements(definition.getStatements());
+        }
+        function = null;
+        assigned = null;
+    }
+
+    /**
+     * @param node : an expression
+     * @return true if the expression certainly evaluates to a number
+     */
+    public boolean isNumeric(Node node) {
+        switch(node.getNodeType()) {
+            case CONSTANT:
+                return ((ConstantNode) node).isNumber();
+            case VARIABLE_REFERENCE:
+                return numericReads.contains(node);
+            case ASSIGNMENT:
+                return isNumeric(((AssignmentNode) node).getAssignment());
+            case TERNARY:
+                return isNumeric(((TernaryNode) node).getTrueCase()) && isNumeric(((TernaryNode) node).getFalseCase());
+            case OPERATION:
+                switch(((OperationNode) node).getOperationType()) {
+                    case FIELDREF:
+                    case CONCATENATE:
+                        return false;
+                    default:
+                        //arithmetic gives numbers, and conditions give 1 or 0
+                        return true;
+                }
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @param node : an expression that is assigned to a variable
+     * @return true if the expression produces a number no matter what the variables in it hold
+     */
+    private static boolean producesNumber(Node node) {
+        switch(node.getNodeType()) {
+            case CONSTANT:
+                return ((ConstantNode) node).isNumber();
+            case ASSIGNMENT:
+                return producesNumber(((AssignmentNode) node).getAssignment());
+            case TERNARY:
+                return producesNumber(((TernaryNode) node).getTrueCase()) && producesNumber(((TernaryNode) node).getFalseCase());
+            case OPERATION:
+                switch(((OperationNode) node).getOperationType()) {
+                    case FIELDREF:
+                    case CONCATENATE:
+                        return false;
+                    default:
+                        return true;
+                }
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isSpecial(VariableReferenceNode reference) {
+        return !reference.isLocal() && Interpreter.SPECIAL_VARIABLES.contains(reference.getVariableName());
+    }
+
+    private boolean isDisqualified(VariableReferenceNode reference) {
+        if(reference.isLocal()) {
+            return function == null || disqualifiedLocals.get(function).get(reference.getSlot());
+        }
+        if(isSpecial(reference) && !NUMERIC_SPECIAL_VARIABLES.contains(reference.getVariableName())) {
+            return true;
+        }
+        return disqualifiedGlobals.get(reference.getSlot());
+    }
+
+    private void disqualify(VariableReferenceNode reference) {
+        if(!reference.isLocal()) {
+            disqualifiedGlobals.set(reference.getSlot());
+        }
+        else if(function != null) {
+            disqualifiedLocals.get(function).set(reference.getSlot());
+        }
+    }
+
+    private void disqualifyVariable(Node node) {
+        if(node instanceof VariableReferenceNode) {
+            disqualify((VariableReferenceNode) node);
+        }
+    }
+
+    /**
+     * rules out the variables a node uses in a way that could store something other than a number
+     *
+     * @param node : a node of the program
+     */
+    private void qualify(Node node) {
+        switch(node.getNodeType()) {
+            case VARIABLE_REFERENCE:
+                if(((VariableReferenceNode) node).getIndexExpression().isPresent()) {
+                    disqualify((VariableReferenceNode) node);
+                }
+                break;
+            case ASSIGNMENT:
+                if(!producesNumber(((AssignmentNode) node).getAssignment())) {
+                    disqualifyVariable(((AssignmentNode) node).getTarget());
+                }
+                break;
+            case FUNCTION_CALL: {
+                var call = (FunctionCallNode) node;
+                var callee = functions.get(call.getFunctionName());
+                if(callee != null) {
+                    //parameters that receive an argument hold whatever the caller passes
+                    disqualifiedLocals.get(callee).set(0, call.getParameters().size());
+                }
+                if(callee != null || MUTATING_BUILTINS.contains(call.getFunctionName())) {
+                    call.getParameters().forEach(this::disqualifyVariable);
+                }
+                break;
+            }
+            case OPERATION:
+                if(((OperationNode) node).getOperationType() == OperationNode.OperationType.IN) {
+                    disqualifyVariable(((OperationNode) node).getRight().get());
+                }
+                break;
+            case DELETE:
+                disqualifyVariable(((DeleteNode) node).getReference());
+                break;
+            case FOR_IN:
+                disqualifyVariable(((ForInNode) node).getInStatement().getLeft());
+                disqualifyVariable(((ForInNode) node).getInStatement().getRight().get());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * @param program : the program
+     * @return true if BEGIN, or a function it may call, can run next or exit
+     */
+    private static boolean mayLeaveEarly(ProgramNode program) {
+        var found = new boolean[1];
+        NodeWalker.Visitor finder = (node) -> found[0] |= node instanceof FunctionCallNode && isNextOrExit((FunctionCallNode) node);
+        for(BlockNode block : program.getBeginNodes()) {
+            block.getStatements().forEach((statement) -> NodeWalker.walk(statement, finder));
+        }
+        for(FunctionDefinitionNode definition : program.getFunctionNodes()) {
+            definition.getStatements().forEach((statement) -> NodeWalker.walk(statement, finder));
+        }
+        return found[0];
+    }
+
+    private static boolean isNextOrExit(FunctionCallNode call) {
+        return call.getFunctionName().equals("next") || call.getFunctionName().equals("exit");
+    }
+
+    /**
+     * @param reference : a variable reference without an index
+     * @return the bit that stands for the variable in the set of assigned variables
+     */
+    private static int bit(VariableReferenceNode reference) {
+        return reference.getSlot() * 2 + (reference.isLocal() ? 1 : 0);
+    }
+
+    private boolean isAssigned(VariableReferenceNode reference) {
+        if(!reference.isLocal() && NUMERIC_SPECIAL_VARIABLES.contains(reference.getVariableName())) {
+            //the interpreter sets these to numbers before the program starts
+            return true;
+        }
+        return assigned.get(bit(reference));
+    }
+
+    /**
+     * follows a list of statements up to the first one that always leaves it, since the statements
+     * after that one do not run, or run without the assignments of the statements before it
+     */
+    private void analyzeStatements(List<StatementNode> statements) {
+        for(StatementNode statement : statements) {
+            analyzeStatement(statement);
+            switch(statement.getNodeType()) {
+                case BREAK:
+                case CONTINUE:
+                case RETURN:
+                    return;
+                case FUNCTION_CALL:
+                    if(isNextOrExit((FunctionCallNode) statement)) {
+                        return;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * follows a statement in the order it runs, so that the set of assigned variables holds every
+     * numeric variable that is certainly assigned once the statement has run
+     *
+     * @param statement : the statement
+     */
+    private void analyzeStatement(StatementNode statement) {
+        switch(statement.getNodeType()) {
+            case DO_WHILE: {
+                //continue reaches the condition without the rest of the body
+                var beforeBody = (BitSet) assigned.clone();
+                analyzeStatements(((DoWhileNode) statement).getLoopBlock().getStatements());
+                assigned = beforeBody;
+                analyze(((DoWhileNode) statement).getCondition());
+                break;
+            }
+            case WHILE: {
+                analyze(((WhileNode) statement).getCondition());
+                var afterCondition = (BitSet) assigned.clone();
+                analyzeStatements(((WhileNode) statement).getLoopBlock().getStatements());
+                assigned = afterCondition;
+                break;
+            }
+            case FOR: {
+                var loop = (ForNode) statement;
+                loop.getInitializer().ifPresent(this::analyze);
+                loop.getConditional().ifPresent(this::analyze);
+                var afterCondition = (BitSet) assigned.clone();
+                analyzeStatements(loop.getLoopBlock().getStatements());
+                //continue reaches the post-iteration operation without the rest of the body
+                assigned = (BitSet) afterCondition.clone();
+                loop.getPostIterationOperation().ifPresent(this::analyze);
+                assigned = afterCondition;
+                break;
+            }
+            case FOR_IN: {
+                var beforeLoop = (BitSet) assigned.clone();
+                analyzeStatements(((ForInNode) statement).getLoopBlock().getStatements());
+                assigned = beforeLoop;
+                break;
+            }
+            case IF:
+                analyzeIfStatements((IfNode) statement);
+                break;
+            case RETURN:
+                ((ReturnNode) statement).getParameter().ifPresent(this::analyze);
+                break;
+            case ASSIGNMENT:
+            case FUNCTION_CALL:
+                analyze(statement);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * a variable is assigned after an if chain only if every branch, and the path through none of
+     * them, assigns it
+     */
+    private void analyzeIfStatements(IfNode statement) {
+        BitSet afterChain = null;
+        while(true) {
+            statement.getCondition().ifPresent(this::analyze);
+            var afterCondition = (BitSet) assigned.clone();
+            analyzeStatements(statement.getBlockStatements().getStatements());
+            afterChain = intersect(afterChain, assigned);
+            assigned = afterCondition;
+            if(statement.getCondition().isEmpty()) {
+                assigned = afterChain;
+                return;
+            }
+            if(!statement.hasNext()) {
+                break;
+            }
+            statement = (IfNode) statement.getNext().get();
+        }
+        assigned = intersect(afterChain, assigned);
+    }
+
+    private static BitSet intersect(BitSet left, BitSet right) {
+        if(left == null) {
+            return (BitSet) right.clone();
+        }
+        left.and(right);
+        return left;
+    }
+
+    /**
+     * follows an expression in the order it is evaluated and records the reads of numeric
+     * variables that are certainly assigned
+     *
+     * @param node : the expression
+     */
+    private void analyze(Node node) {
+        switch(node.getNodeType()) {
+            case VARIABLE_REFERENCE: {
+                var reference = (VariableReferenceNode) node;
+                if(reference.getIndexExpression().isPresent()) {
+                    analyze(reference.getIndexExpression().get());
+                }
+                else if(!isDisqualified(reference) && isAssigned(reference)) {
+                    numericReads.add(reference);
+                }
+                break;
+            }
+            case ASSIGNMENT: {
+                var assignment = (AssignmentNode) node;
+                analyze(assignment.getAssignment());
+                if(assignment.getTarget() instanceof VariableReferenceNode) {
+                    var target = (VariableReferenceNode) assignment.getTarget();
+                    if(target.getIndexExpression().isPresent()) {
+                        analyze(target.getIndexExpression().get());
+                    }
+                    else if(!isDisqualified(target)) {
+                        assigned.set(bit(target));
+                    }
+                }
+                else {
+                    analyze(assignment.getTarget());
+                }
+                break;
+            }
+            case FUNCTION_CALL:
+                ((FunctionCallNode) node).getParameters().forEach(this::analyze);
+                break;
+            case OPERATION: {
+                var operation = (OperationNode) node;
+                analyze(operation.getLeft());
+                if(operation.getRight().isEmpty()) {
+                    break;
+                }
+                if(operation.getOperationType() == OperationNode.OperationType.AND
+                        || operation.getOperationType() == OperationNode.OperationType.OR) {
+                    //the right side may not run
+                    var afterLeft = (BitSet) assigned.clone();
+                    analyze(operation.getRight().get());
+                    assigned = afterLeft;
+                }
+                else {
+                    analyze(operation.getRight().get());
+                }
+                break;
+            }
+            case TERNARY: {
+                var ternary = (TernaryNode) node;
+                analyze(ternary.getBooleanExpression());
+                var afterCondition = (BitSet) assigned.clone();
+                analyze(ternary.getTrueCase());
+                var afterTrueCase = assigned;
+                assigned = afterCondition;
+                analyze(ternary.getFalseCase());
+                assigned.and(afterTrueCase);
+                break;
+            }
+            default:
+                break;
+        }
+    }
+}
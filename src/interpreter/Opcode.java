@@ -0,0 +1,148 @@
+package interpreter;
+
+/**
+ * This class lists the instructions of the VirtualMachine. Instructions are ints in a flat array,
+ * each followed by its operands. The machine has a stack of values and a stack of primitive
+ * numbers, which also holds the results of conditions as 1 or 0.
+ *
+ * @author Jake Camadine
+ */
+public final class Opcode {
+    //values
+    public static final int PUSH_STRING = 0;            //string index
+    public static final int PUSH_TRUE = 1;
+    public static final int PUSH_FALSE = 2;
+    public static final int LOAD_GLOBAL = 3;            //slot
+    public static final int LOAD_LOCAL = 4;             //slot
+    public static final int LOAD_NUMBER_OF_FIELDS = 5;  //slot
+    public static final int LOAD_GLOBAL_ELEMENT = 6;    //slot, string index of the name
+    public static final int LOAD_LOCAL_ELEMENT = 7;     //slot, string index of the name
+    public static final int LOAD_FIELD = 8;
+    public static final int LOAD_CONSTANT_FIELD = 9;    //field number
+    public static final int POP = 10;
+    public static final int ASSIGN = 11;
+    public static final int APPEND = 12;                //number of appended values
+    public static final int JUMP_IF_ARRAY = 13;         //target
+    public static final int PRE_INCREMENT = 14;
+    public static final int PRE_DECREMENT = 15;
+    public static final int POST_INCREMENT = 16;
+    public static final int POST_DECREMENT = 17;
+    public static final int CONCATENATE = 18;
+    public static final int COPY = 19;
+    public static final int TO_VALUE = 20;
+    public static final int TO_BOOLEAN_VALUE = 21;
+    //numbers
+    public static final int PUSH_NUMBER = 22;           //number index
+    public static final int TO_NUMBER = 23;
+    public static final int ADD = 24;
+    public static final int SUBTRACT = 25;
+    public static final int MULTIPLY = 26;
+    public static final int DIVIDE = 27;
+    public static final int MODULO = 28;
+    public static final int POWER = 29;
+    public static final int NEGATE = 30;
+    public static final int LOAD_GLOBAL_NUMBER = 31;    //slot
+    public static final int LOAD_LOCAL_NUMBER = 32;     //slot
+    public static final int ASSIGN_NUMBER = 33;
+    //conditions
+    public static final int EQUAL = 34;
+    public static final int NOT_EQUAL = 35;
+    public static final int LESS = 36;
+    public static final int LESS_OR_EQUAL = 37;
+    public static final int GREATER = 38;
+    public static final int GREATER_OR_EQUAL = 39;
+    public static final int NUMBER_EQUAL = 40;
+    public static final int NUMBER_NOT_EQUAL = 41;
+    public static final int NUMBER_LESS = 42;
+    public static final int NUMBER_LESS_OR_EQUAL = 43;
+    public static final int NUMBER_GREATER = 44;
+    public static final int NUMBER_GREATER_OR_EQUAL = 45;
+    public static final int MATCH = 46;                 //pattern constant
+    public static final int NOT_MATCH = 47;             //pattern constant
+    public static final int IN = 48;                    //string index of the array's name
+    public static final int TEST = 49;
+    public static final int NOT = 50;
+    //control
+    public static final int JUMP = 51;                  //target
+    public static final int JUMP_IF_FALSE = 52;         //target
+    public static final int JUMP_IF_TRUE = 53;          //target
+    public static final int FOR_IN_START = 54;
+    public static final int FOR_IN_NEXT = 55;           //target when the keys run out
+    public static final int FOR_IN_END = 56;
+    public static final int CALL_BUILTIN = 57;          //call site constant, number of arguments
+    public static final int CALL_FUNCTION = 58;         //call site constant, number of arguments
+    public static final int RETURN = 59;
+    public static final int RETURN_EMPTY = 60;
+    public static final int NEXT = 61;
+    public static final int EXIT = 62;
+    public static final int DELETE_GLOBAL = 63;         //slot
+    public static final int DELETE_LOCAL = 64;          //slot
+    public static final int DELETE_GLOBAL_ELEMENT = 65; //slot
+    public static final int DELETE_LOCAL_ELEMENT = 66;  //slot
+    public static final int FAIL = 67;                  //string index of the message
+
+    private static final String[] NAMES = {
+            "PUSH_STRING", "PUSH_TRUE", "PUSH_FALSE", "LOAD_GLOBAL", "LOAD_LOCAL", "LOAD_NUMBER_OF_FIELDS",
+            "LOAD_GLOBAL_ELEMENT", "LOAD_LOCAL_ELEMENT", "LOAD_FIELD", "LOAD_CONSTANT_FIELD", "POP", "ASSIGN",
+            "APPEND", "JUMP_IF_ARRAY", "PRE_INCREMENT", "PRE_DECREMENT", "POST_INCREMENT", "POST_DECREMENT",
+            "CONCATENATE", "COPY", "TO_VALUE", "TO_BOOLEAN_VALUE", "PUSH_NUMBER", "TO_NUMBER", "ADD",
+            "SUBTRACT", "MULTIPLY", "DIVIDE", "MODULO", "POWER", "NEGATE", "LOAD_GLOBAL_NUMBER",
+            "LOAD_LOCAL_NUMBER", "ASSIGN_NUMBER", "EQUAL", "NOT_EQUAL", "LESS", "LESS_OR_EQUAL", "GREATER",
+            "GREATER_OR_EQUAL", "NUMBER_EQUAL", "NUMBER_NOT_EQUAL", "NUMBER_LESS", "NUMBER_LESS_OR_EQUAL",
+            "NUMBER_GREATER", "NUMBER_GREATER_OR_EQUAL", "MATCH", "NOT_MATCH", "IN", "TEST", "NOT", "JUMP",
+            "JUMP_IF_FALSE", "JUMP_IF_TRUE", "FOR_IN_START", "FOR_IN_NEXT", "FOR_IN_END", "CALL_BUILTIN",
+            "CALL_FUNCTION", "RETURN", "RETURN_EMPTY", "NEXT", "EXIT", "DELETE_GLOBAL", "DELETE_LOCAL",
+            "DELETE_GLOBAL_ELEMENT", "DELETE_LOCAL_ELEMENT", "FAIL"
+    };
+
+    private Opcode() {
+
+    }
+
+    /**
+     * @param opcode : an instruction
+     * @return the instruction's name
+     */
+    public static String getName(int opcode) {
+        return NAMES[opcode];
+    }
+
+    /**
+     * @param opcode : an instruction
+     * @return the number of operands that follow the instruction
+     */
+    public static int getOperandCount(int opcode) {
+        switch(opcode) {
+            case LOAD_GLOBAL_ELEMENT:
+            case LOAD_LOCAL_ELEMENT:
+            case CALL_BUILTIN:
+            case CALL_FUNCTION:
+                return 2;
+            case PUSH_STRING:
+            case LOAD_GLOBAL:
+            case LOAD_LOCAL:
+            case LOAD_NUMBER_OF_FIELDS:
+            case LOAD_GLOBAL_NUMBER:
+            case LOAD_LOCAL_NUMBER:
+            case LOAD_CONSTANT_FIELD:
+            case APPEND:
+            case JUMP_IF_ARRAY:
+            case PUSH_NUMBER:
+            case MATCH:
+            case NOT_MATCH:
+            case IN:
+            case JUMP:
+            case JUMP_IF_FALSE:
+            case JUMP_IF_TRUE:
+            case FOR_IN_NEXT:
+            case DELETE_GLOBAL:
+            case DELETE_LOCAL:
+            case DELETE_GLOBAL_ELEMENT:
+            case DELETE_LOCAL_ELEMENT:
+            case FAIL:
+                return 1;
+            default:
+                return 0;
+        }
+    }
+}
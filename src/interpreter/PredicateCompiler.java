@@ -0,0 +1,316 @@
+package interpreter;
+
+import parser.*;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * This class compiles the conditions of a program's blocks. The operands of && and || are
+ * reordered so that cheap checks, such as NF and comparisons with constants, run before regular
+ * expression matches, and each condition becomes a predicate whose patterns and constants are
+ * built once instead of for every record.
+ *
+ * @author Jake Camadine
+ */
+public class PredicateCompiler {
+    private static final int MATCH_COST = 10;
+    private static final int NUMBER_OF_FIELDS_COST = 4;
+
+    /**
+     * tests a compiled block condition against the current record
+     */
+    public interface BlockPredicate {
+        boolean test();
+    }
+
+    /**
+     * produces the value of an operand of a compiled condition
+     */
+    private interface ValueSource {
+        InterpreterDataType get();
+    }
+
+    /**
+     * decides a comparison from the result of Interpreter.compare
+     */
+    private interface ComparisonTest {
+        boolean test(int comparison);
+    }
+
+    private Interpreter interpreter;
+
+    /**
+     * @param interpreter : the interpreter that evaluates the parts of conditions that are not compiled
+     */
+    public PredicateCompiler(Interpreter interpreter) {
+        this.interpreter = interpreter;
+    }
+
+    /**
+     * replaces the condition of every block with its reordered form
+     *
+     * @param program : the program whose blocks are reordered
+     */
+    public void reorderConditions(ProgramNode program) {
+        for(List<BlockNode> blocks : List.of(program.getBeginNodes(), program.getBlockNodes(), program.getEndNodes())) {
+            for(BlockNode block : blocks) {
+                if(block.getCondition().isPresent()) {
+                    block.setCondition(reorder(block.getCondition().get()));
+                }
+            }
+        }
+    }
+
+    /**
+     * @param program : the program whose block conditions are compiled
+     * @return the predicate of every block that has a condition
+     */
+    public IdentityHashMap<BlockNode, BlockPredicate> compileConditions(ProgramNode program) {
+        var predicates = new IdentityHashMap<BlockNode, BlockPredicate>();
+        for(List<BlockNode> blocks : List.of(program.getBeginNodes(), program.getBlockNodes(), program.getEndNodes())) {
+            for(BlockNode block : blocks) {
+                if(block.getCondition().isPresent()) {
+                    predicates.put(block, compile(block.getCondition().get()));
+                }
+            }
+        }
+        return predicates;
+    }
+
+    /**
+     * sorts the operands of chains of && and || from cheapest to most expensive. A chain is only
+     * reordered when none of its operands has a side effect, since otherwise short-circuiting
+     * decides which side effects happen. The sort is stable, so operands of equal cost keep their order.
+     *
+     * @param node : a condition
+     * @return the condition with its chains reordered
+     */
+    public Node reorder(Node node) {
+        if(!(node instanceof OperationNode)) {
+            return node;
+        }
+        var operation = (OperationNode) node;
+        switch(operation.getOperationType()) {
+            case AND:
+            case OR: {
+                var operands = new ArrayList<Node>();
+                collectOperands(operation, operation.getOperationType(), operands);
+                operands.replaceAll(this::reorder);
+                if(operands.stream().allMatch(PredicateCompiler::isPure)) {
+                    operands.sort(Comparator.comparingInt(this::cost));
+                }
+                var chain = operands.get(0);
+                for(int i = 1; i < operands.size(); i++) {
+                    chain = new OperationNode(chain, Optional.of(operands.get(i)), operation.getOperationType());
+                }
+                return chain;
+            }
+            case NOT:
+                return new OperationNode(reorder(operation.getLeft()), OperationNode.OperationType.NOT);
+            default:
+                return node;
+        }
+    }
+
+    /**
+     * @param node : a part of a chain of && or ||
+     * @param type : AND or OR
+     * @param operands : receives the operands of the chain from left to right
+     */
+    private static void collectOperands(Node node, OperationNode.OperationType type, List<Node> operands) {
+        if(node instanceof OperationNode && ((OperationNode) node).getOperationType() == type) {
+            collectOperands(((OperationNode) node).getLeft(), type, operands);
+            collectOperands(((OperationNode) node).getRight().get(), type, operands);
+        }
+        else {
+            operands.add(node);
+        }
+    }
+
+    /**
+     * decides whether evaluating an expression can neither change the program's state nor fail.
+     * Field references other than $0 are not pure, since referencing a field past the end of the
+     * record adds empty fields and so changes NF.
+     *
+     * @param node : an expression
+     * @return true if the expression may be evaluated in any order, or not at all
+     */
+    static boolean isPure(Node node) {
+        switch(node.getNodeType()) {
+            case CONSTANT:
+            case PATTERN:
+                return true;
+            case VARIABLE_REFERENCE:
+                return ((VariableReferenceNode) node).getIndexExpression().isEmpty();
+            case TERNARY: {
+                var ternary = (TernaryNode) node;
+                return isPure(ternary.getBooleanExpression()) && isPure(ternary.getTrueCase()) && isPure(ternary.getFalseCase());
+            }
+            case OPERATION:
+                break;
+            default:
+                return false;
+        }
+        var operation = (OperationNode) node;
+        switch(operation.getOperationType()) {
+            case EQUALTO:
+            case NOTEQUALTO:
+            case LESSTHAN:
+            case LESSOREQUAL:
+            case GREATERTHAN:
+            case GREATEROREQUAL:
+            case AND:
+            case OR:
+            case CONCATENATE:
+                return isPure(operation.getLeft()) && isPure(operation.getRight().get());
+            case NOT:
+                return isPure(operation.getLeft());
+            case MATCH:
+            case NOTMATCH:
+                return isPure(operation.getLeft()) && compilePattern(operation.getRight().get()) != null;
+            case FIELDREF:
+                return operation.getLeft() instanceof ConstantNode && operation.getLeft().toString().equals("0");
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @param node : a pure expression
+     * @return a rough estimate of the work evaluating the expression takes
+     */
+    private int cost(Node node) {
+        switch(node.getNodeType()) {
+            case CONSTANT:
+            case PATTERN:
+                return 0;
+            case VARIABLE_REFERENCE: {
+                var reference = (VariableReferenceNode) node;
+                //reading NF produces the fields of the record that have not been split yet
+                return !reference.isLocal() && reference.getVariableName().equals("NF") ? NUMBER_OF_FIELDS_COST : 1;
+            }
+            case TERNARY: {
+                var ternary = (TernaryNode) node;
+                return 1 + cost(ternary.getBooleanExpression()) + cost(ternary.getTrueCase()) + cost(ternary.getFalseCase());
+            }
+            case OPERATION:
+                break;
+            default:
+                return MATCH_COST;
+        }
+        var operation = (OperationNode) node;
+        switch(operation.getOperationType()) {
+            case MATCH:
+            case NOTMATCH:
+                return MATCH_COST + cost(operation.getLeft());
+            case FIELDREF:
+                return 1;
+            case CONCATENATE:
+                return 2 + cost(operation.getLeft()) + cost(operation.getRight().get());
+            case NOT:
+                return cost(operation.getLeft());
+            case AND:
+            case OR:
+                return cost(operation.getLeft()) + cost(operation.getRight().get());
+            default:
+                return 1 + cost(operation.getLeft()) + cost(operation.getRight().get());
+        }
+    }
+
+    /**
+     * @param node : the right side of a match
+     * @return the compiled pattern, or null if node is not a valid pattern
+     */
+    private static Pattern compilePattern(Node node) {
+        if(!(node instanceof PatternNode)) {
+            return null;
+        }
+        try {
+            return Pattern.compile(((PatternNode) node).getRegexPattern());
+        }
+        catch(PatternSyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * compiles a condition into a predicate. Logical operations, comparisons, and matches against
+     * a literal pattern are compiled, and anything else is left to the interpreter.
+     *
+     * @param node : a condition
+     * @return the predicate
+     */
+    public BlockPredicate compile(Node node) {
+        if(node instanceof OperationNode) {
+            var operation = (OperationNode) node;
+            switch(operation.getOperationType()) {
+                case AND: {
+                    var left = compile(operation.getLeft());
+                    var right = compile(operation.getRight().get());
+                    return () -> left.test() && right.test();
+                }
+                case OR: {
+                    var left = compile(operation.getLeft());
+                    var right = compile(operation.getRight().get());
+                    return () -> left.test() || right.test();
+                }
+                case NOT: {
+                    var operand = compile(operation.getLeft());
+                    return () -> !operand.test();
+                }
+                case MATCH:
+                case NOTMATCH: {
+                    var pattern = compilePattern(operation.getRight().get());
+                    if(pattern == null) {
+                        //the interpreter reports the invalid pattern when the condition runs
+                        break;
+                    }
+                    var left = compileOperand(operation.getLeft());
+                    if(operation.getOperationType() == OperationNode.OperationType.MATCH) {
+                        return () -> pattern.matcher(left.get().getData()).find();
+                    }
+                    return () -> !pattern.matcher(left.get().getData()).find();
+                }
+                case EQUALTO:
+                    return compileComparison(operation, (comparison) -> comparison == 0);
+                case NOTEQUALTO:
+                    return compileComparison(operation, (comparison) -> comparison != 0);
+                case LESSTHAN:
+                    return compileComparison(operation, (comparison) -> comparison < 0);
+                case LESSOREQUAL:
+                    return compileComparison(operation, (comparison) -> comparison <= 0);
+                case GREATERTHAN:
+                    return compileComparison(operation, (comparison) -> comparison > 0);
+                case GREATEROREQUAL:
+                    return compileComparison(operation, (comparison) -> comparison >= 0);
+                default:
+                    break;
+            }
+        }
+        return () -> interpreter.evaluateCondition(node);
+    }
+
+    private BlockPredicate compileComparison(OperationNode operation, ComparisonTest test) {
+        var left = compileOperand(operation.getLeft());
+        var right = compileOperand(operation.getRight().get());
+        return () -> test.test(interpreter.compare(left.get(), right.get()));
+    }
+
+    /**
+     * @param node : an operand of a condition
+     * @return a source of the operand's value, which is the value a constant was given when the program was loaded
+     */
+    private ValueSource compileOperand(Node node) {
+        if(node instanceof LiteralNode) {
+            var value = ((LiteralNode) node).getValue();
+            return () -> value;
+        }
+        return () -> interpreter.evaluate(node);
+    }
+}
@@ -0,0 +1,305 @@
+package interpreter;
+
+import parser.*;
+
+import java.util.LinkedList;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * This class simplifies a parsed program before it runs. Operations whose operands are all
+ * constants are folded into a single constant, if statements, ternaries, and block patterns
+ * whose conditions are constant keep only the branch that can run, calls to small functions are
+ * inlined, and every constant becomes a LiteralNode whose value is built once.
+ *
+ * @author Jake Camadine
+ */
+public class ProgramOptimizer {
+    private static final Set<String> MODIFYING_BUILTINS = Set.of("sub", "gsub", "getline");
+
+    private Interpreter interpreter;
+    private FunctionInliner inliner;
+    private FunctionDefinitionNode function;
+
+    /**
+     * @param interpreter : the interpreter that evaluates the folded operations, so that they
+     *                    give exactly the results they would give at run time
+     */
+    public ProgramOptimizer(Interpreter interpreter) {
+        this.interpreter = interpreter;
+    }
+
+    /**
+     * optimizes the program in place. This runs before variables are resolved, since it
+     * replaces nodes of the tree.
+     *
+     * @param program : the parsed program
+     */
+    public void optimize(ProgramNode program) {
+        inliner = new FunctionInliner(program);
+        function = null;
+        for(BlockNode block : program.getBeginNodes()) {
+            optimizeBlock(block);
+        }
+        var blocks = program.getBlockNodes().listIterator();
+        while(blocks.hasNext()) {
+            var block = blocks.next();
+            optimizeBlock(block);
+            if(block.getCondition().isPresent() && block.getCondition().get() instanceof LiteralNode) {
+                if(!isTrue(block.getCondition().get())) {
+                    blocks.remove();
+                }
+                else {
+                    block.setCondition(null);
+                }
+            }
+        }
+        for(BlockNode block : program.getEndNodes()) {
+            optimizeBlock(block);
+        }
+        for(FunctionDefinitionNode definition : program.getFunctionNodes()) {
+            function = definition;
+            optimizeStatements(definition.getStatements());
+        }
+        function = null;
+    }
+
+    private void optimizeBlock(BlockNode block) {
+        if(block.getCondition().isPresent()) {
+            block.setCondition(optimize(block.getCondition().get()));
+        }
+        optimizeStatements(block.getStatements());
+    }
+
+    /**
+     * @param statements : a list of statements, whose optimized forms replace them
+     */
+    private void optimizeStatements(LinkedList<StatementNode> statements) {
+        var iterator = statements.listIterator();
+        while(iterator.hasNext()) {
+            var statement = optimizeStatement(iterator.next());
+            if(statement == null) {
+                iterator.remove();
+            }
+            else {
+                iterator.set(statement);
+            }
+        }
+    }
+
+    /**
+     * @param statement : a statement
+     * @return the optimized statement, or null if the statement can never do anything
+     */
+    private StatementNode optimizeStatement(StatementNode statement) {
+        switch(statement.getNodeType()) {
+            case ASSIGNMENT:
+                return (StatementNode) optimize(statement);
+            case FUNCTION_CALL:
+                //a call whose value is discarded stays a call, since it has to remain a statement
+                ((FunctionCallNode) statement).getParameters().replaceAll(this::optimize);
+                return statement;
+            case DELETE: {
+                var reference = ((DeleteNode) statement).getReference();
+                var optimized = optimize(reference);
+                return optimized == reference ? statement : new DeleteNode(optimized);
+            }
+            case DO_WHILE: {
+                var loop = (DoWhileNode) statement;
+                optimizeBlock(loop.getLoopBlock());
+                var condition = optimize(loop.getCondition());
+                return condition == loop.getCondition() ? statement : new DoWhileNode(condition, loop.getLoopBlock());
+            }
+            case FOR: {
+                var loop = (ForNode) statement;
+                optimizeBlock(loop.getLoopBlock());
+                var initializer = loop.getInitializer().map(this::optimize);
+                var condition = loop.getConditional().map(this::optimize);
+                var postIteration = loop.getPostIterationOperation().map(this::optimize);
+                return new ForNode(initializer, condition, postIteration, loop.getLoopBlock());
+            }
+            case FOR_IN:
+                optimizeBlock(((ForInNode) statement).getLoopBlock());
+                return statement;
+            case IF:
+                return optimizeIfStatements((IfNode) statement);
+            case RETURN: {
+                var parameter = ((ReturnNode) statement).getParameter();
+                return parameter.isEmpty() ? statement : new ReturnNode(Optional.of(optimize(parameter.get())));
+            }
+            case WHILE: {
+                var loop = (WhileNode) statement;
+                optimizeBlock(loop.getLoopBlock());
+                var condition = optimize(loop.getCondition());
+                return condition == loop.getCondition() ? statement : new WhileNode(condition, loop.getLoopBlock());
+            }
+            default:
+                return statement;
+        }
+    }
+
+    /**
+     * drops the branches of an if chain whose conditions are constantly false, and the branches
+     * after one whose condition is constantly true, which then runs as the chain's else branch
+     *
+     * @param statement : the first if statement of the chain
+     * @return the optimized chain, or null if none of its branches can run
+     */
+    private StatementNode optimizeIfStatements(IfNode statement) {
+        var branches = new LinkedList<IfNode>();
+        while(true) {
+            optimizeBlock(statement.getBlockStatements());
+            var condition = statement.getCondition().map(this::optimize);
+            if(condition.isPresent() && condition.get() instanceof LiteralNode) {
+                if(isTrue(condition.get())) {
+                    branches.add(new IfNode(Optional.empty(), statement.getBlockStatements()));
+                    break;
+                }
+            }
+            else {
+                branches.add(new IfNode(condition, statement.getBlockStatements()));
+            }
+            if(!statement.hasNext()) {
+                break;
+            }
+            statement = (IfNode) statement.getNext().get();
+        }
+        if(branches.isEmpty()) {
+            return null;
+        }
+        for(int i = 0; i < branches.size() - 1; i++) {
+            branches.get(i).setNext(Optional.of(branches.get(i + 1)));
+        }
+        return branches.getFirst();
+    }
+
+    /**
+     * @param node : an expression
+     * @return the optimized expression, which is the same node if nothing in it changed
+     */
+    private Node optimize(Node node) {
+        switch(node.getNodeType()) {
+            case CONSTANT:
+                return node instanceof LiteralNode ? node : new LiteralNode((ConstantNode) node);
+            case ASSIGNMENT: {
+                var assignment = (AssignmentNode) node;
+                var target = optimize(assignment.getTarget());
+                var value = optimize(assignment.getAssignment());
+                if(target == assignment.getTarget() && value == assignment.getAssignment()) {
+                    return node;
+                }
+                return new AssignmentNode(target, value);
+            }
+            case FUNCTION_CALL: {
+                var call = optimizeArguments((FunctionCallNode) node);
+                var inlined = inliner.inline(call, function);
+                return inlined == null ? node : optimize(inlined);
+            }
+            case TERNARY: {
+                var ternary = (TernaryNode) node;
+                var condition = optimize(ternary.getBooleanExpression());
+                var trueCase = optimize(ternary.getTrueCase());
+                var falseCase = optimize(ternary.getFalseCase());
+                if(condition instanceof LiteralNode) {
+                    return isTrue(condition) ? trueCase : falseCase;
+                }
+                if(condition == ternary.getBooleanExpression() && trueCase == ternary.getTrueCase() && falseCase == ternary.getFalseCase()) {
+                    return node;
+                }
+                return new TernaryNode(condition, trueCase, falseCase);
+            }
+            case VARIABLE_REFERENCE: {
+                var reference = (VariableReferenceNode) node;
+                if(reference.getIndexExpression().isEmpty()) {
+                    return node;
+                }
+                var index = optimize(reference.getIndexExpression().get());
+                return index == reference.getIndexExpression().get() ? node : new VariableReferenceNode(reference.getVariableName(), index);
+            }
+            case OPERATION:
+                return optimizeOperation((OperationNode) node);
+            default:
+                return node;
+        }
+    }
+
+    /**
+     * optimizes the arguments of a call. A call passed to a builtin that modifies its argument is
+     * not inlined, since the inlined expression may read as one of the caller's variables, which
+     * the builtin would then modify instead of a copy of the returned value.
+     *
+     * @param call : the call
+     * @return the call
+     */
+    private FunctionCallNode optimizeArguments(FunctionCallNode call) {
+        var inlinesCalls = !MODIFYING_BUILTINS.contains(call.getFunctionName());
+        call.getParameters().replaceAll((argument) -> inlinesCalls || !(argument instanceof FunctionCallNode) ? optimize(argument) : optimizeArguments((FunctionCallNode) argument));
+        return call;
+    }
+
+    private Node optimizeOperation(OperationNode operation) {
+        var left = optimize(operation.getLeft());
+        var right = operation.getRight().map(this::optimize);
+        var type = operation.getOperationType();
+        //the right side of && and || is skipped when the left side decides the result
+        if(left instanceof LiteralNode && (type == OperationNode.OperationType.AND || type == OperationNode.OperationType.OR)) {
+            var leftIsTrue = isTrue(left);
+            if(leftIsTrue == (type == OperationNode.OperationType.OR)) {
+                return new LiteralNode(ImmutableInterpreterDataType.valueOf(leftIsTrue));
+            }
+        }
+        if(left == operation.getLeft() && right.equals(operation.getRight())) {
+            return isFoldable(operation) ? fold(operation) : operation;
+        }
+        var optimized = new OperationNode(left, right, type);
+        return isFoldable(optimized) ? fold(optimized) : optimized;
+    }
+
+    /**
+     * @param operation : an operation whose operands are already optimized
+     * @return true if the operation has no side effects and all of its operands are constants
+     */
+    private static boolean isFoldable(OperationNode operation) {
+        switch(operation.getOperationType()) {
+            case FIELDREF:
+            case IN:
+            case PREINCREMENT:
+            case POSTINCREMENT:
+            case PREDECREMENT:
+            case POSTDECREMENT:
+                return false;
+            case MATCH:
+            case NOTMATCH:
+                return operation.getLeft() instanceof LiteralNode && operation.getRight().get() instanceof PatternNode;
+            default:
+                return operation.getLeft() instanceof LiteralNode
+                        && (operation.getRight().isEmpty() || operation.getRight().get() instanceof LiteralNode);
+        }
+    }
+
+    /**
+     * evaluates a constant operation once. Operations that fail, such as a division by zero, are
+     * left for run time, and so are results that would not read back as the same value, such as
+     * numbers with more digits than their text keeps.
+     *
+     * @param operation : an operation with constant operands
+     * @return a constant with the operation's result, or the operation if it cannot be folded
+     */
+    private Node fold(OperationNode operation) {
+        InterpreterDataType result;
+        try {
+            result = interpreter.evaluate(operation);
+        }
+        catch(RuntimeException e) {
+            return operation;
+        }
+        if(result.isNumber() && NumberScanner.parse(result.getData()) != result.getNumber()) {
+            return operation;
+        }
+        return new LiteralNode(result);
+    }
+
+    private boolean isTrue(Node literal) {
+        return interpreter.isTrue(((LiteralNode) literal).getValue());
+    }
+}
@@ -1,28 +1,49 @@
 package interpreter;
 
 public class ReturnType {
-    public enum FlowControlStatement {BREAK, CONTINUE, RETURN, NONE};
+    public enum FlowControlStatement {BREAK, CONTINUE, RETURN, NEXT, EXIT, NONE};
 
-    private FlowControlStatement flowControlType;
+    //shared by every statement that has no return value, so that running a statement allocates nothing
+    public static final ReturnType NONE = new ReturnType(FlowControlStatement.NONE);
+    public static final ReturnType BREAK = new ReturnType(FlowControlStatement.BREAK);
+    public static final ReturnType CONTINUE = new ReturnType(FlowControlStatement.CONTINUE);
+    public static final ReturnType RETURN = new ReturnType(FlowControlStatement.RETURN);
+    public static final ReturnType NEXT = new ReturnType(FlowControlStatement.NEXT);
+    public static final ReturnType EXIT = new ReturnType(FlowControlStatement.EXIT);
 
-    private String returnValue;
+    //the value of a function that ends without returning one, which reads as uninitialized
+    private static final InterpreterDataType NO_VALUE = new ImmutableInterpreterDataType(new InterpreterDataType());
+
+    private final FlowControlStatement flowControlType;
+
+    private final InterpreterDataType returnValue;
 
     public ReturnType(FlowControlStatement flowControlType) {
-        this.flowControlType = flowControlType;
-        returnValue = "";
+        this(flowControlType, NO_VALUE);
     }
-    public ReturnType(FlowControlStatement flowControlType, String returnValue) {
-        this(flowControlType);
+    public ReturnType(FlowControlStatement flowControlType, InterpreterDataType returnValue) {
+        this.flowControlType = flowControlType;
         this.returnValue = returnValue;
     }
     public FlowControlStatement getFlowControlType() {
         return flowControlType;
     }
 
-    public String getReturnValue() {
+    /**
+     * @return the returned value, which the caller copies before the function's variables are released
+     */
+    public InterpreterDataType getReturnValue() {
         return returnValue;
     }
 
+    /**
+     * @return true if the statement ends the current record or the program, which
+     * leaves every enclosing loop, function, and block
+     */
+    public boolean isNextOrExit() {
+        return flowControlType == FlowControlStatement.NEXT || flowControlType == FlowControlStatement.EXIT;
+    }
+
     public String toString() {
         if(returnValue != null) {
             return "flow control type: " + flowControlType + " retVal: "  + returnValue;
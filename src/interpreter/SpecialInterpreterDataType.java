@@ -0,0 +1,51 @@
+package interpreter;
+
+/**
+ * This class models a special variable whose value the interpreter derives state from,
+ * such as FS and the compiled pattern that splits records. Every assignment runs a hook,
+ * so the derived state is rebuilt once per change instead of once per use.
+ *
+ * @author Jake Camadine
+ */
+public class SpecialInterpreterDataType extends InterpreterDataType {
+    private Runnable onChange;
+
+    /**
+     * @param data : the initial value
+     * @param onChange : runs after every change to the value
+     */
+    public SpecialInterpreterDataType(String data, Runnable onChange) {
+        super(data);
+        this.onChange = onChange;
+    }
+
+    @Override
+    public void setData(String data) {
+        super.setData(data);
+        onChange.run();
+    }
+
+    @Override
+    public void setInput(String data) {
+        super.setInput(data);
+        onChange.run();
+    }
+
+    @Override
+    public void setNumber(double numericData) {
+        super.setNumber(numericData);
+        onChange.run();
+    }
+
+    @Override
+    public void append(String text) {
+        super.append(text);
+        onChange.run();
+    }
+
+    @Override
+    public void assign(InterpreterDataType other) {
+        super.assign(other);
+        onChange.run();
+    }
+}
@@ -0,0 +1,76 @@
+package interpreter;
+
+/**
+ * This class deduplicates repetitive Strings, such as the values of low-cardinality fields
+ * and the keys of arrays, so that every occurrence shares one instance. The table is bounded:
+ * each String hashes to a single slot, and a miss replaces whatever the slot held before.
+ *
+ * @author Jake Camadine
+ */
+public class StringInterner {
+    private static final int MAX_INTERNED_LENGTH = 64;
+
+    private String[] table;
+    private int mask;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * @param capacity : the maximum number of Strings held, rounded up to a power of two
+     */
+    public StringInterner(int capacity) {
+        var size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        table = new String[size];
+        mask = size - 1;
+    }
+
+    /**
+     * @param value : a String that may have been seen before
+     * @return the shared instance equal to value, or value itself if there is none
+     */
+    public String intern(String value) {
+        if(value == null || value.length() > MAX_INTERNED_LENGTH) {
+            return value;
+        }
+        var hash = value.hashCode();
+        var index = (hash ^ (hash >>> 16)) & mask;
+        var existing = table[index];
+        if(existing != null && existing.equals(value)) {
+            hits++;
+            return existing;
+        }
+        misses++;
+        table[index] = value;
+        return value;
+    }
+
+    /**
+     * @return the number of lookups that found a shared instance
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups that did not find a shared instance
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the fraction of lookups that found a shared instance
+     */
+    public double getHitRate() {
+        if(hits + misses == 0) {
+            return 0;
+        }
+        return (double) hits / (hits + misses);
+    }
+
+    @Override
+    public String toString() {
+        return "interned lookups: " + (hits + misses) + " hits: " + hits + " misses: " + misses + " hit rate: " + getHitRate();
+    }
+}
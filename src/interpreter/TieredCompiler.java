@@ -0,0 +1,104 @@
+package interpreter;
+
+import parser.BlockNode;
+import parser.FunctionDefinitionNode;
+import parser.Node;
+import parser.ProgramNode;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * This class decides when the blocks and user functions that the tree-walking interpreter runs
+ * in ExecutionMode.TIERED are compiled. Each of them counts how often it runs, and once it has run
+ * as many times as the threshold it is compiled by a ClosureCompiler, whose executor runs it from
+ * then on. A run that is already in progress finishes in the tree, so the switch happens between
+ * two runs, where the interpreter and the executors share all of their state. Short runs never
+ * pay for compiling, while the rules that run for every record of a long input are compiled
+ * after the first few records.
+ *
+ * @author Jake Camadine
+ */
+public class TieredCompiler {
+    public static final int DEFAULT_THRESHOLD = 1000;
+
+    /**
+     * This class holds how often a block or function has run, and its executor once it is compiled
+     */
+    private static class Tier {
+        private int invocations;
+        private ClosureCompiler.StatementExecutor executor;
+    }
+
+    private Interpreter interpreter;
+    private ProgramNode program;
+    private ClosureCompiler compiler;
+    private int threshold;
+    private IdentityHashMap<Node, Tier> tiers;
+
+    /**
+     * @param interpreter : the interpreter that walks the tree until a block or function is compiled
+     * @param program : the program, with its variables already resolved
+     */
+    public TieredCompiler(Interpreter interpreter, ProgramNode program) {
+        this.interpreter = interpreter;
+        this.program = program;
+        threshold = DEFAULT_THRESHOLD;
+        tiers = new IdentityHashMap<>();
+        for(List<BlockNode> blocks : List.of(program.getBeginNodes(), program.getBlockNodes(), program.getEndNodes())) {
+            for(BlockNode block : blocks) {
+                tiers.put(block, new Tier());
+            }
+        }
+        for(FunctionDefinitionNode function : program.getFunctionNodes()) {
+            tiers.put(function, new Tier());
+        }
+    }
+
+    /**
+     * @param threshold : the number of runs after which a block or function is compiled, where
+     *                  0 compiles each of them before its first run
+     */
+    public void setThreshold(int threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * counts a run of a block
+     *
+     * @param block : the block about to run
+     * @return the executor of the block once it is compiled, or null if the block is still interpreted
+     */
+    public ClosureCompiler.StatementExecutor getCompiledBlock(BlockNode block) {
+        var tier = tiers.get(block);
+        if(tier.executor == null && ++tier.invocations > threshold) {
+            tier.executor = getCompiler().compileBlock(block);
+        }
+        return tier.executor;
+    }
+
+    /**
+     * counts a call of a user function
+     *
+     * @param function : the function about to run
+     * @return the executor of the function's body once it is compiled, or null if the function
+     * is still interpreted
+     */
+    public ClosureCompiler.StatementExecutor getCompiledFunction(FunctionDefinitionNode function) {
+        var tier = tiers.get(function);
+        if(tier.executor == null && ++tier.invocations > threshold) {
+            tier.executor = getCompiler().compileFunction(function);
+        }
+        return tier.executor;
+    }
+
+    /**
+     * @return the compiler, which is created for the first block or function that is compiled
+     */
+    private ClosureCompiler getCompiler() {
+        if(compiler == null) {
+            compiler = new ClosureCompiler(interpreter, program);
+        }
+        return compiler;
+    }
+}
@@ -0,0 +1,571 @@
+package interpreter;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * This class runs the BytecodeChunks of a compiled AWK program. Each chunk runs in a single
+ * dispatch loop over its instructions, with its values and numbers on stacks shared by every
+ * call. User functions run in the same loop: a call saves the caller's activation on an explicit
+ * call stack and a return resumes it, so recursion is limited by memory rather than by the
+ * Java stack. A call whose result is returned right away replaces its caller instead, so tail
+ * recursion runs in constant space.
+ *
+ * @author Jake Camadine
+ */
+public class VirtualMachine {
+    private static final int NORMAL = 0;
+    private static final int NEXT = 1;
+    private static final int EXIT = 2;
+
+    /**
+     * This class models the progress of a for-in loop through a snapshot of its array's keys
+     */
+    private static class ForInState {
+        private String[] keys;
+        private int next;
+        private InterpreterDataType variable;
+    }
+
+    /**
+     * This class models a call in progress, saved on the call stack while a function it called runs
+     */
+    private static class Activation {
+        private BytecodeChunk chunk;
+        private FramePool framePool;
+        private InterpreterDataType[] frame;
+        private ForInState[] forIns;
+        private int forInTop;
+        private int pc;
+        private int valueBase;
+        private int numberBase;
+        private int valueTop;
+        private int numberTop;
+    }
+
+    private Interpreter interpreter;
+    private InterpreterDataType[] globalVariables;
+
+    private BytecodeChunk beginChunk;
+    private BytecodeChunk mainChunk;
+    private BytecodeChunk endChunk;
+
+    private InterpreterDataType[] valueStack;
+    private double[] numberStack;
+    private InterpreterDataType returnValue;
+    private Activation[] callStack;
+    private int callDepth;
+
+    /**
+     * @param interpreter : the interpreter whose globals, fields, and builtins the program uses
+     * @param beginChunk : the compiled BEGIN blocks
+     * @param mainChunk : the compiled blocks that run for every record
+     * @param endChunk : the compiled END blocks
+     */
+    public VirtualMachine(Interpreter interpreter, BytecodeChunk beginChunk, BytecodeChunk mainChunk, BytecodeChunk endChunk) {
+        this.interpreter = interpreter;
+        this.beginChunk = beginChunk;
+        this.mainChunk = mainChunk;
+        this.endChunk = endChunk;
+        globalVariables = interpreter.getGlobalVariables();
+        valueStack = new InterpreterDataType[64];
+        numberStack = new double[64];
+        callStack = new Activation[16];
+    }
+
+    /**
+     * runs the BEGIN blocks, the other blocks once for every record, and then the END blocks.
+     * next moves on to the following record, and exit skips to the END blocks, or ends them.
+     */
+    public void run() {
+        var status = execute(beginChunk);
+        if(status != EXIT) {
+            interpreter.nextRecord();
+            do {
+                status = execute(mainChunk);
+            } while(status != EXIT && interpreter.nextRecord());
+        }
+        execute(endChunk);
+    }
+
+    private void ensureCapacity(int values, int numbers) {
+        if(values > valueStack.length) {
+            valueStack = Arrays.copyOf(valueStack, Math.max(values, valueStack.length * 2));
+        }
+        if(numbers > numberStack.length) {
+            numberStack = Arrays.copyOf(numberStack, Math.max(numbers, numberStack.length * 2));
+        }
+    }
+
+    /**
+     * @return the activation at the top of the call stack, which the stack reuses between calls
+     */
+    private Activation pushActivation() {
+        if(callDepth == callStack.length) {
+            callStack = Arrays.copyOf(callStack, callStack.length * 2);
+        }
+        if(callStack[callDepth] == null) {
+            callStack[callDepth] = new Activation();
+        }
+        return callStack[callDepth++];
+    }
+
+    /**
+     * runs a block chunk, and the functions it calls, until it runs out of instructions
+     *
+     * @param chunk : the chunk of the BEGIN, END, or general blocks
+     * @return NORMAL, or NEXT or EXIT if the chunk or a function it called ran next or exit
+     */
+    private int execute(BytecodeChunk chunk) {
+        ensureCapacity(chunk.getMaxValueDepth(), chunk.getMaxNumberDepth());
+        var code = chunk.getCode();
+        var strings = chunk.getStrings();
+        var numberConstants = chunk.getNumbers();
+        var constants = chunk.getConstants();
+        var values = valueStack;
+        var numbers = numberStack;
+        var forIns = chunk.getMaxForInDepth() > 0 ? new ForInState[chunk.getMaxForInDepth()] : null;
+        FramePool framePool = null;
+        InterpreterDataType[] frame = null;
+        int valueBase = 0;
+        int numberBase = 0;
+        int valueTop = 0;
+        int numberTop = 0;
+        int forInTop = 0;
+        int pc = 0;
+        callDepth = 0;
+
+        while(true) {
+            //running out of instructions returns from a function
+            var instruction = pc < code.length ? code[pc++] : Opcode.RETURN_EMPTY;
+            switch(instruction) {
+                case Opcode.PUSH_STRING:
+                    values[valueTop++] = new InterpreterDataType(strings[code[pc++]]);
+                    break;
+                case Opcode.PUSH_TRUE:
+                    values[valueTop++] = ImmutableInterpreterDataType.TRUE;
+                    break;
+                case Opcode.PUSH_FALSE:
+                    values[valueTop++] = ImmutableInterpreterDataType.FALSE;
+                    break;
+                case Opcode.LOAD_GLOBAL: {
+                    var slot = code[pc++];
+                    if(globalVariables[slot] == null) {
+                        globalVariables[slot] = new InterpreterDataType();
+                    }
+                    values[valueTop++] = globalVariables[slot];
+                    break;
+                }
+                case Opcode.LOAD_LOCAL: {
+                    var slot = code[pc++];
+                    if(frame[slot] == null) {
+                        frame[slot] = new InterpreterDataType();
+                    }
+                    values[valueTop++] = frame[slot];
+                    break;
+                }
+                case Opcode.LOAD_NUMBER_OF_FIELDS:
+                    interpreter.finishFields();
+                    values[valueTop++] = globalVariables[code[pc++]];
+                    break;
+                case Opcode.LOAD_GLOBAL_ELEMENT: {
+                    var slot = code[pc++];
+                    if(globalVariables[slot] == null) {
+                        globalVariables[slot] = new InterpreterArrayDataType();
+                    }
+                    values[valueTop - 1] = interpreter.getArrayElement(globalVariables[slot], values[valueTop - 1].getData(), strings[code[pc++]]);
+                    break;
+                }
+                case Opcode.LOAD_LOCAL_ELEMENT: {
+                    var slot = code[pc++];
+                    if(frame[slot] == null) {
+                        frame[slot] = new InterpreterArrayDataType();
+                    }
+                    values[valueTop - 1] = interpreter.getArrayElement(frame[slot], values[valueTop - 1].getData(), strings[code[pc++]]);
+                    break;
+                }
+                case Opcode.LOAD_FIELD: {
+                    var index = values[valueTop - 1];
+                    if(!index.isNumeric()) {
+                        throw new RuntimeException("invalid field reference: $" + index.getData());
+                    }
+                    values[valueTop - 1] = interpreter.getField((int) index.getNumber());
+                    break;
+                }
+                case Opcode.LOAD_CONSTANT_FIELD:
+                    values[valueTop++] = interpreter.getField(code[pc++]);
+                    break;
+                case Opcode.POP:
+                    valueTop--;
+                    break;
+                case Opcode.ASSIGN: {
+                    var target = values[--valueTop];
+                    target.assign(values[valueTop - 1]);
+                    values[valueTop - 1] = target;
+                    break;
+                }
+                case Opcode.APPEND: {
+                    var count = code[pc++];
+                    String text;
+                    if(count == 1) {
+                        text = values[valueTop - 1].getData();
+                    }
+                    else {
+                        //every part is read before the target changes, since a part may read the target
+                        var builder = new StringBuilder();
+                        for(int i = valueTop - count; i < valueTop; i++) {
+                            builder.append(values[i].getData());
+                        }
+                        text = builder.toString();
+                    }
+                    valueTop -= count;
+                    values[valueTop - 1].append(text);
+                    break;
+                }
+                case Opcode.JUMP_IF_ARRAY: {
+                    var target = code[pc++];
+                    if(values[valueTop - 1] instanceof InterpreterArrayDataType) {
+                        pc = target;
+                    }
+                    break;
+                }
+                case Opcode.PRE_INCREMENT: {
+                    var left = values[valueTop - 1];
+                    left.setNumber(interpreter.toNumber(left) + 1);
+                    break;
+                }
+                case Opcode.PRE_DECREMENT: {
+                    var left = values[valueTop - 1];
+                    left.setNumber(interpreter.toNumber(left) - 1);
+                    break;
+                }
+                case Opcode.POST_INCREMENT: {
+                    var left = values[valueTop - 1];
+                    var previous = interpreter.toNumber(left);
+                    left.setNumber(previous + 1);
+                    values[valueTop - 1] = new InterpreterDataType(previous);
+                    break;
+                }
+                case Opcode.POST_DECREMENT: {
+                    var left = values[valueTop - 1];
+                    var previous = interpreter.toNumber(left);
+                    left.setNumber(previous - 1);
+                    values[valueTop - 1] = new InterpreterDataType(previous);
+                    break;
+                }
+                case Opcode.CONCATENATE: {
+                    var right = values[--valueTop];
+                    values[valueTop - 1] = new InterpreterDataType(values[valueTop - 1].getData() + right.getData());
+                    break;
+                }
+                case Opcode.COPY:
+                    values[valueTop - 1] = new InterpreterDataType(values[valueTop - 1].getData());
+                    break;
+                case Opcode.TO_VALUE:
+                    values[valueTop++] = new InterpreterDataType(numbers[--numberTop]);
+                    break;
+                case Opcode.TO_BOOLEAN_VALUE:
+                    values[valueTop++] = ImmutableInterpreterDataType.valueOf(numbers[--numberTop] != 0);
+                    break;
+                case Opcode.PUSH_NUMBER:
+                    numbers[numberTop++] = numberConstants[code[pc++]];
+                    break;
+                case Opcode.TO_NUMBER:
+                    numbers[numberTop++] = interpreter.toNumber(values[--valueTop]);
+                    break;
+                case Opcode.ADD:
+                    numberTop--;
+                    numbers[numberTop - 1] += numbers[numberTop];
+                    break;
+                case Opcode.SUBTRACT:
+                    numberTop--;
+                    numbers[numberTop - 1] -= numbers[numberTop];
+                    break;
+                case Opcode.MULTIPLY:
+                    numberTop--;
+                    numbers[numberTop - 1] *= numbers[numberTop];
+                    break;
+                case Opcode.DIVIDE:
+                    numberTop--;
+                    if(numbers[numberTop] == 0) {
+                        throw new ArithmeticException("division by zero");
+                    }
+                    numbers[numberTop - 1] /= numbers[numberTop];
+                    break;
+                case Opcode.MODULO:
+                    numberTop--;
+                    if(numbers[numberTop] == 0) {
+                        throw new ArithmeticException("division by zero in %");
+                    }
+                    numbers[numberTop - 1] %= numbers[numberTop];
+                    break;
+                case Opcode.POWER:
+                    numberTop--;
+                    numbers[numberTop - 1] = Math.pow(numbers[numberTop - 1], numbers[numberTop]);
+                    break;
+                case Opcode.NEGATE:
+                    numbers[numberTop - 1] = -numbers[numberTop - 1];
+                    break;
+                case Opcode.LOAD_GLOBAL_NUMBER:
+                    numbers[numberTop++] = globalVariables[code[pc++]].getNumber();
+                    break;
+                case Opcode.LOAD_LOCAL_NUMBER:
+                    numbers[numberTop++] = frame[code[pc++]].getNumber();
+                    break;
+                case Opcode.ASSIGN_NUMBER:
+                    values[valueTop - 1].setNumber(numbers[--numberTop]);
+                    break;
+                case Opcode.EQUAL:
+                    valueTop -= 2;
+                    numbers[numberTop++] = interpreter.compare(values[valueTop], values[valueTop + 1]) == 0 ? 1 : 0;
+                    break;
+                case Opcode.NOT_EQUAL:
+                    valueTop -= 2;
+                    numbers[numberTop++] = interpreter.compare(values[valueTop], values[valueTop + 1]) != 0 ? 1 : 0;
+                    break;
+                case Opcode.LESS:
+                    valueTop -= 2;
+                    numbers[numberTop++] = interpreter.compare(values[valueTop], values[valueTop + 1]) < 0 ? 1 : 0;
+                    break;
+                case Opcode.LESS_OR_EQUAL:
+                    valueTop -= 2;
+                    numbers[numberTop++] = interpreter.compare(values[valueTop], values[valueTop + 1]) <= 0 ? 1 : 0;
+                    break;
+                case Opcode.GREATER:
+                    valueTop -= 2;
+                    numbers[numberTop++] = interpreter.compare(values[valueTop], values[valueTop + 1]) > 0 ? 1 : 0;
+                    break;
+                case Opcode.GREATER_OR_EQUAL:
+                    valueTop -= 2;
+                    numbers[numberTop++] = interpreter.compare(values[valueTop], values[valueTop + 1]) >= 0 ? 1 : 0;
+                    break;
+                case Opcode.NUMBER_EQUAL:
+                    numberTop--;
+                    numbers[numberTop - 1] = Interpreter.compareNumbers(numbers[numberTop - 1], numbers[numberTop]) == 0 ? 1 : 0;
+                    break;
+                case Opcode.NUMBER_NOT_EQUAL:
+                    numberTop--;
+                    numbers[numberTop - 1] = Interpreter.compareNumbers(numbers[numberTop - 1], numbers[numberTop]) != 0 ? 1 : 0;
+                    break;
+                case Opcode.NUMBER_LESS:
+                    numberTop--;
+                    numbers[numberTop - 1] = Interpreter.compareNumbers(numbers[numberTop - 1], numbers[numberTop]) < 0 ? 1 : 0;
+                    break;
+                case Opcode.NUMBER_LESS_OR_EQUAL:
+                    numberTop--;
+                    numbers[numberTop - 1] = Interpreter.compareNumbers(numbers[numberTop - 1], numbers[numberTop]) <= 0 ? 1 : 0;
+                    break;
+                case Opcode.NUMBER_GREATER:
+                    numberTop--;
+                    numbers[numberTop - 1] = Interpreter.compareNumbers(numbers[numberTop - 1], numbers[numberTop]) > 0 ? 1 : 0;
+                    break;
+                case Opcode.NUMBER_GREATER_OR_EQUAL:
+                    numberTop--;
+                    numbers[numberTop - 1] = Interpreter.compareNumbers(numbers[numberTop - 1], numbers[numberTop]) >= 0 ? 1 : 0;
+                    break;
+                case Opcode.MATCH:
+                    numbers[numberTop++] = ((Pattern) constants[code[pc++]]).matcher(values[--valueTop].getData()).find() ? 1 : 0;
+                    break;
+                case Opcode.NOT_MATCH:
+                    numbers[numberTop++] = ((Pattern) constants[code[pc++]]).matcher(values[--valueTop].getData()).find() ? 0 : 1;
+                    break;
+                case Opcode.IN: {
+                    var array = values[--valueTop];
+                    var key = values[--valueTop];
+                    var name = strings[code[pc++]];
+                    if(!(array instanceof InterpreterArrayDataType)) {
+                        throw new RuntimeException("illegal membership operation." + name + "is not an array");
+                    }
+                    numbers[numberTop++] = ((InterpreterArrayDataType) array).getArrayData().containsKey(key.getData()) ? 1 : 0;
+                    break;
+                }
+                case Opcode.TEST:
+                    numbers[numberTop++] = interpreter.isTrue(values[--valueTop]) ? 1 : 0;
+                    break;
+                case Opcode.NOT:
+                    numbers[numberTop - 1] = numbers[numberTop - 1] == 0 ? 1 : 0;
+                    break;
+                case Opcode.JUMP:
+                    pc = code[pc];
+                    break;
+                case Opcode.JUMP_IF_FALSE:
+                    pc = numbers[--numberTop] == 0 ? code[pc] : pc + 1;
+                    break;
+                case Opcode.JUMP_IF_TRUE:
+                    pc = numbers[--numberTop] != 0 ? code[pc] : pc + 1;
+                    break;
+                case Opcode.FOR_IN_START: {
+                    var variable = values[--valueTop];
+                    var array = values[--valueTop];
+                    if(!(array instanceof InterpreterArrayDataType)) {
+                        throw new RuntimeException("attempt to use scalar reference as array");
+                    }
+                    if(variable instanceof InterpreterArrayDataType) {
+                        throw new RuntimeException("attempt to use array as the variable of a for-in loop");
+                    }
+                    var state = new ForInState();
+                    state.keys = ((InterpreterArrayDataType) array).getArrayData().keySet().toArray(new String[0]);
+                    state.variable = variable;
+                    forIns[forInTop++] = state;
+                    break;
+                }
+                case Opcode.FOR_IN_NEXT: {
+                    var state = forIns[forInTop - 1];
+                    if(state.next < state.keys.length) {
+                        state.variable.setData(state.keys[state.next++]);
+                        pc++;
+                    }
+                    else {
+                        forIns[--forInTop] = null;
+                        pc = code[pc];
+                    }
+                    break;
+                }
+                case Opcode.FOR_IN_END:
+                    forIns[--forInTop] = null;
+                    break;
+                case Opcode.CALL_BUILTIN: {
+                    var function = (BuiltInFunctionDefinitionNode) constants[code[pc++]];
+                    var arguments = Arrays.copyOfRange(values, valueTop - code[pc], valueTop);
+                    valueTop -= code[pc++];
+                    values[valueTop++] = interpreter.callBuiltIn(function, arguments);
+                    break;
+                }
+                case Opcode.CALL_FUNCTION: {
+                    var call = (BytecodeChunk.FunctionCall) constants[code[pc++]];
+                    var argumentCount = code[pc++];
+                    var callee = call.getFramePool().acquire();
+                    for(int i = 0; i < argumentCount; i++) {
+                        var argument = values[valueTop - argumentCount + i];
+                        if(!(argument instanceof InterpreterArrayDataType)) {
+                            var scalarArgument = new InterpreterDataType();
+                            scalarArgument.assign(argument);
+                            argument = scalarArgument;
+                        }
+                        callee[i] = argument;
+                    }
+                    valueTop -= argumentCount;
+                    if(framePool != null && pc < code.length && code[pc] == Opcode.RETURN) {
+                        //the caller would only return the callee's value, so the callee takes its place
+                        framePool.release(frame);
+                        valueTop = valueBase;
+                        numberTop = numberBase;
+                    }
+                    else {
+                        var caller = pushActivation();
+                        caller.chunk = chunk;
+                        caller.framePool = framePool;
+                        caller.frame = frame;
+                        caller.forIns = forIns;
+                        caller.forInTop = forInTop;
+                        caller.pc = pc;
+                        caller.valueBase = valueBase;
+                        caller.numberBase = numberBase;
+                        caller.valueTop = valueTop;
+                        caller.numberTop = numberTop;
+                        valueBase = valueTop;
+                        numberBase = numberTop;
+                    }
+                    chunk = call.getBody();
+                    framePool = call.getFramePool();
+                    frame = callee;
+                    ensureCapacity(valueBase + chunk.getMaxValueDepth(), numberBase + chunk.getMaxNumberDepth());
+                    values = valueStack;
+                    numbers = numberStack;
+                    code = chunk.getCode();
+                    strings = chunk.getStrings();
+                    numberConstants = chunk.getNumbers();
+                    constants = chunk.getConstants();
+                    forIns = chunk.getMaxForInDepth() > 0 ? new ForInState[chunk.getMaxForInDepth()] : null;
+                    forInTop = 0;
+                    pc = 0;
+                    break;
+                }
+                case Opcode.RETURN:
+                case Opcode.RETURN_EMPTY: {
+                    returnValue = instruction == Opcode.RETURN ? new InterpreterDataType(values[--valueTop]) : new InterpreterDataType();
+                    if(callDepth == 0) {
+                        return NORMAL;
+                    }
+                    framePool.release(frame);
+                    var caller = callStack[--callDepth];
+                    chunk = caller.chunk;
+                    framePool = caller.framePool;
+                    frame = caller.frame;
+                    forIns = caller.forIns;
+                    forInTop = caller.forInTop;
+                    pc = caller.pc;
+                    valueBase = caller.valueBase;
+                    numberBase = caller.numberBase;
+                    valueTop = caller.valueTop;
+                    numberTop = caller.numberTop;
+                    caller.chunk = null;
+                    caller.frame = null;
+                    caller.forIns = null;
+                    code = chunk.getCode();
+                    strings = chunk.getStrings();
+                    numberConstants = chunk.getNumbers();
+                    constants = chunk.getConstants();
+                    values[valueTop++] = returnValue;
+                    break;
+                }
+                case Opcode.NEXT:
+                    unwind(framePool, frame);
+                    return NEXT;
+                case Opcode.EXIT:
+                    unwind(framePool, frame);
+                    return EXIT;
+                case Opcode.DELETE_GLOBAL:
+                case Opcode.DELETE_LOCAL: {
+                    var variables = code[pc - 1] == Opcode.DELETE_LOCAL ? frame : globalVariables;
+                    var slot = code[pc++];
+                    if(variables[slot] != null) {
+                        if(!(variables[slot] instanceof InterpreterArrayDataType)) {
+                            throw new RuntimeException("attempt to use scalar reference as an array");
+                        }
+                        variables[slot] = null;
+                    }
+                    break;
+                }
+                case Opcode.DELETE_GLOBAL_ELEMENT:
+                case Opcode.DELETE_LOCAL_ELEMENT: {
+                    var variables = code[pc - 1] == Opcode.DELETE_LOCAL_ELEMENT ? frame : globalVariables;
+                    var slot = code[pc++];
+                    var key = values[--valueTop];
+                    if(variables[slot] != null) {
+                        if(!(variables[slot] instanceof InterpreterArrayDataType)) {
+                            throw new RuntimeException("attempt to use scalar reference as an array");
+                        }
+                        ((InterpreterArrayDataType) variables[slot]).getArrayData().remove(key.getData());
+                    }
+                    break;
+                }
+                case Opcode.FAIL:
+                    throw new RuntimeException(strings[code[pc]]);
+                default:
+                    throw new RuntimeException("unknown instruction " + code[pc - 1] + " in " + chunk.getName());
+            }
+        }
+    }
+
+    /**
+     * releases the frames of every call in progress, when next or exit ends them all at once
+     *
+     * @param framePool : the pool of the running function's frame, or null if a block is running
+     * @param frame : the running function's frame
+     */
+    private void unwind(FramePool framePool, InterpreterDataType[] frame) {
+        if(framePool != null) {
+            framePool.release(frame);
+        }
+        while(callDepth > 0) {
+            var caller = callStack[--callDepth];
+            if(caller.framePool != null) {
+                caller.framePool.release(caller.frame);
+            }
+            caller.chunk = null;
+            caller.frame = null;
+            caller.forIns = null;
+        }
+    }
+}
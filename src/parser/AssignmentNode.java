@@ -11,6 +11,7 @@ public class AssignmentNode extends StatementNode{
     private Node assignment;
 
     public AssignmentNode(Node target, Node assignment) {
+        super(NodeType.ASSIGNMENT);
         this.target = target;
         this.assignment = assignment;
     }
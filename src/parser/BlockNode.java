@@ -14,6 +14,7 @@ public class BlockNode extends Node{
     private Optional<Node> condition;
 
     public BlockNode() {
+        super(NodeType.BLOCK);
         statements = new LinkedList<>();
         condition = Optional.empty();
     }
@@ -36,6 +37,13 @@ public class BlockNode extends Node{
         return condition;
     }
 
+    /**
+     * @param condition : the block's new condition, such as an optimized form of the old one
+     */
+    public void setCondition(Node condition) {
+        this.condition = Optional.ofNullable(condition);
+    }
+
     /**
      * @return the block in a String format based on AWK syntax
      */
@@ -8,7 +8,7 @@ package parser;
 public class BreakNode extends StatementNode{
 
     public BreakNode() {
-
+        super(NodeType.BREAK);
     }
 
     @Override
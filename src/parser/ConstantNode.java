@@ -9,9 +9,23 @@ package parser;
  */
 public class ConstantNode extends Node{
     private String constantVal;
+    private boolean isNumber;
 
-    public ConstantNode(String constantVal) {
+    /**
+     * @param constantVal : the text of the constant
+     * @param isNumber : true for a numerical constant, false for a String literal
+     */
+    public ConstantNode(String constantVal, boolean isNumber) {
+        super(NodeType.CONSTANT);
         this.constantVal = constantVal;
+        this.isNumber = isNumber;
+    }
+
+    /**
+     * @return true if the constant is a number rather than a String
+     */
+    public boolean isNumber() {
+        return isNumber;
     }
 
     @Override
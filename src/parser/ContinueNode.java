@@ -8,7 +8,7 @@ package parser;
  */
 public class ContinueNode extends StatementNode{
     public ContinueNode() {
-
+        super(NodeType.CONTINUE);
     }
 
     @Override
@@ -7,6 +7,7 @@ public class DeleteNode extends StatementNode{
     private Node reference;
 
     public DeleteNode(Node reference) {
+        super(NodeType.DELETE);
         this.reference = reference;
     }
 
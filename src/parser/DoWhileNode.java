@@ -11,6 +11,7 @@ public class DoWhileNode extends StatementNode{
     private BlockNode loopBlock;
 
     public DoWhileNode(Node condition, BlockNode loopBlock) {
+        super(NodeType.DO_WHILE);
         this.condition = condition;
         this.loopBlock = loopBlock;
     }
@@ -12,6 +12,7 @@ public class ForInNode extends StatementNode{
     private BlockNode loopBlock;
 
     public ForInNode(OperationNode in, BlockNode loopBlock) {
+        super(NodeType.FOR_IN);
         this.in = in;
         this.loopBlock = loopBlock;
     }
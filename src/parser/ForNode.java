@@ -16,6 +16,7 @@ public class ForNode extends StatementNode {
     private BlockNode loopBlock;
 
     public ForNode(Optional<Node> initializer, Optional<Node> conditional, Optional<Node> postIterationOperation, BlockNode loopBlock) {
+        super(NodeType.FOR);
         this.initializer = initializer;
         this.conditional = conditional;
         this.postIterationOperation = postIterationOperation;
@@ -1,5 +1,7 @@
 package parser;
 
+import lexer.Token;
+
 import java.util.LinkedList;
 import java.util.Optional;
 
@@ -14,11 +16,40 @@ public class FunctionCallNode extends StatementNode{
 
     private LinkedList<Node> parameters;
 
+    private FunctionDefinitionNode function;
+    private LinkedList<Token> signature;
+
     public FunctionCallNode(String functionName, LinkedList<Node> parameters) {
+        super(NodeType.FUNCTION_CALL);
         this.functionName = functionName;
         this.parameters = parameters;
     }
 
+    /**
+     * binds this call to the function it calls
+     *
+     * @param function : the user function or builtin named by the call
+     * @param signature : the parameter list the call's arguments are bound to
+     */
+    public void bind(FunctionDefinitionNode function, LinkedList<Token> signature) {
+        this.function = function;
+        this.signature = signature;
+    }
+
+    /**
+     * @return the function bound to this call, or null if the call has not been bound
+     */
+    public FunctionDefinitionNode getFunction() {
+        return function;
+    }
+
+    /**
+     * @return the parameter list the call's arguments are bound to, or null if the call has not been bound
+     */
+    public LinkedList<Token> getSignature() {
+        return signature;
+    }
+
     /**
      * @return the name of the function being called
      */
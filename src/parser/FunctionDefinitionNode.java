@@ -15,6 +15,7 @@ public class FunctionDefinitionNode extends Node{
     private LinkedList<Token> parameters;
 
     public FunctionDefinitionNode(String functionName, LinkedList<Token> parameters) {
+        super(NodeType.FUNCTION_DEFINITION);
         this.functionName = functionName;
         this.parameters = new LinkedList<>(parameters);
         this.statements = new LinkedList<>();
@@ -16,6 +16,7 @@ public class IfNode extends StatementNode{
     private Optional<StatementNode> next;
 
     public IfNode(Optional<Node> condition, BlockNode blockStatements) {
+        super(NodeType.IF);
         this.condition = condition;
         this.blockStatements = blockStatements;
         next = Optional.empty();
@@ -7,5 +7,27 @@ package parser;
  * @author Jake Camadine
  */
 public abstract class Node {
+
+    /**
+     * the concrete kinds of node, so that the interpreter can dispatch on a node with a
+     * single switch instead of a chain of instanceof checks
+     */
+    public enum NodeType { ASSIGNMENT, BLOCK, BREAK, CONSTANT, CONTINUE, DELETE, DO_WHILE, FOR_IN, FOR, FUNCTION_CALL,
+    FUNCTION_DEFINITION, IF, OPERATION, PATTERN, PROGRAM, RETURN, TERNARY, VARIABLE_REFERENCE, WHILE
+    }
+
+    private final NodeType nodeType;
+
+    protected Node(NodeType nodeType) {
+        this.nodeType = nodeType;
+    }
+
+    /**
+     * @return the kind of this node
+     */
+    public final NodeType getNodeType() {
+        return nodeType;
+    }
+
     public abstract String toString();
 }
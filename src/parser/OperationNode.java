@@ -16,12 +16,21 @@ public class OperationNode extends Node{
     SUBTRACT, MULTIPLY, DIVIDE, MODULO, CONCATENATE
     }
 
+    /**
+     * the way the interpreter evaluates an arithmetic operation or a comparison. An operation
+     * starts out specialized to NUMBER operands, and falls back to GENERIC for good the first
+     * time one of its operands is not a number.
+     */
+    public enum Specialization { NUMBER, GENERIC }
+
     private OperationType operationType;
+    private Specialization specialization = Specialization.NUMBER;
 
     private Node left;
     private Optional<Node> right;
 
     public OperationNode(Node left, OperationType type) {
+        super(NodeType.OPERATION);
         this.left = left;
         operationType = type;
         right = Optional.empty();
@@ -53,6 +62,20 @@ public class OperationNode extends Node{
         return right;
     }
 
+    /**
+     * @return the operand types the operation is specialized to
+     */
+    public Specialization getSpecialization() {
+        return specialization;
+    }
+
+    /**
+     * @param specialization : the operand types the operation is specialized to from now on
+     */
+    public void setSpecialization(Specialization specialization) {
+        this.specialization = specialization;
+    }
+
     @Override
     public String toString() {
         if(right.isPresent()) {
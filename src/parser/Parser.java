@@ -960,11 +960,11 @@ public class Parser {
         Optional<Token> tempToken = tokenHandler.matchAndRemove(Token.TokenType.STRINGLITERAL);
 
         if(tempToken.isPresent()) {
-            return Optional.of(new ConstantNode(tempToken.get().getTokenValue()));
+            return Optional.of(new ConstantNode(tempToken.get().getTokenValue(), false));
         }
         tempToken = tokenHandler.matchAndRemove(Token.TokenType.NUMBER);
         if(tempToken.isPresent()) {
-            return Optional.of(new ConstantNode(tempToken.get().getTokenValue()));
+            return Optional.of(new ConstantNode(tempToken.get().getTokenValue(), true));
         }
         tempToken = tokenHandler.matchAndRemove(Token.TokenType.REGEXP);
         if(tempToken.isPresent()) {
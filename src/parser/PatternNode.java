@@ -10,6 +10,7 @@ public class PatternNode extends Node{
     private String regexPattern;
 
     public PatternNode(String regexPattern) {
+        super(NodeType.PATTERN);
         this.regexPattern = regexPattern;
     }
 
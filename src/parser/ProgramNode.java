@@ -15,6 +15,7 @@ public class ProgramNode extends Node{
     private LinkedList<FunctionDefinitionNode> functionNodes;
 
     public ProgramNode() {
+        super(NodeType.PROGRAM);
         beginNodes = new LinkedList<BlockNode>();
         endNodes = new LinkedList<BlockNode>();
         blockNodes = new LinkedList<BlockNode>();
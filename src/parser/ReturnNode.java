@@ -12,9 +12,11 @@ public class ReturnNode extends StatementNode {
     private Optional<Node> parameter;
 
     public ReturnNode() {
+        super(NodeType.RETURN);
         parameter = Optional.empty();
     }
     public ReturnNode(Optional<Node> parameter) {
+        super(NodeType.RETURN);
         this.parameter = parameter;
     }
 
@@ -8,4 +8,7 @@ package parser;
  */
 public abstract class StatementNode extends Node{
 
+    protected StatementNode(NodeType nodeType) {
+        super(nodeType);
+    }
 }
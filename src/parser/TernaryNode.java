@@ -11,6 +11,7 @@ public class TernaryNode extends Node {
     private Node falseCase;
 
     public TernaryNode(Node booleanExpression, Node trueCase, Node falseCase) {
+        super(NodeType.TERNARY);
         this.booleanExpression = booleanExpression;
         this.trueCase = trueCase;
         this.falseCase = falseCase;
@@ -12,9 +12,14 @@ public class VariableReferenceNode extends Node{
     private String variableName;
     private Optional<Node> indexExpression;
 
+    private int slot;
+    private boolean isLocal;
+
     public VariableReferenceNode(String variableName) {
+        super(NodeType.VARIABLE_REFERENCE);
         this.variableName = variableName;
         indexExpression = Optional.empty();
+        slot = -1;
     }
     public VariableReferenceNode(String variableName, Node indexExpression) {
         this(variableName);
@@ -35,6 +40,31 @@ public class VariableReferenceNode extends Node{
         return indexExpression;
     }
 
+    /**
+     * binds this reference to the slot of its variable
+     *
+     * @param slot : the slot's index in the globals or in the function's frame
+     * @param isLocal : true if the variable is a parameter of the enclosing function
+     */
+    public void setSlot(int slot, boolean isLocal) {
+        this.slot = slot;
+        this.isLocal = isLocal;
+    }
+
+    /**
+     * @return the slot resolved for this reference, or -1 if it has not been resolved
+     */
+    public int getSlot() {
+        return slot;
+    }
+
+    /**
+     * @return true if the slot is in the enclosing function's frame rather than in the globals
+     */
+    public boolean isLocal() {
+        return isLocal;
+    }
+
 
     @Override
     public String toString() {
@@ -0,0 +1,150 @@
+package parser;
+
+import lexer.Token;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * This class resolves every variable reference in a parsed AWK program to a numbered slot.
+ * Globals are numbered across the whole program and the parameters of a function are
+ * numbered by their position in the function's parameter list.
+ *
+ * @author Jake Camadine
+ */
+public class VariableResolver {
+    private ProgramNode program;
+
+    private LinkedHashMap<String, Integer> globalSlots;
+    private HashMap<String, Integer> localSlots;
+
+    /**
+     * @param program : the root of the symbol tree
+     * @param predeclaredGlobals : globals that get the first slots whether the program references them or not
+     */
+    public VariableResolver(ProgramNode program, List<String> predeclaredGlobals) {
+        this.program = program;
+        globalSlots = new LinkedHashMap<>();
+        localSlots = new HashMap<>();
+        for(String name : predeclaredGlobals) {
+            globalSlots.putIfAbsent(name, globalSlots.size());
+        }
+    }
+
+    /**
+     * assigns a slot to every variable reference in the program
+     *
+     * @return a map from the name of each global to its slot
+     */
+    public LinkedHashMap<String, Integer> resolve() {
+        for(BlockNode block : program.getBeginNodes()) {
+            resolveBlock(block);
+        }
+        for(BlockNode block : program.getBlockNodes()) {
+            resolveBlock(block);
+        }
+        for(BlockNode block : program.getEndNodes()) {
+            resolveBlock(block);
+        }
+        for(FunctionDefinitionNode function : program.getFunctionNodes()) {
+            localSlots.clear();
+            for(Token parameter : function.getParameters()) {
+                localSlots.put(parameter.getTokenValue(), localSlots.size());
+            }
+            for(StatementNode statement : function.getStatements()) {
+                resolveNode(statement);
+            }
+            localSlots.clear();
+        }
+        return globalSlots;
+    }
+
+    /**
+     * resolves the condition and the statements of a block
+     *
+     * @param block : the block being resolved
+     */
+    private void resolveBlock(BlockNode block) {
+        resolveOptional(block.getCondition());
+        for(StatementNode statement : block.getStatements()) {
+            resolveNode(statement);
+        }
+    }
+
+    private void resolveOptional(Optional<? extends Node> node) {
+        if(node.isPresent()) {
+            resolveNode(node.get());
+        }
+    }
+
+    /**
+     * walks a subtree and resolves each variable reference in it
+     *
+     * @param node : the root of the subtree
+     */
+    private void resolveNode(Node node) {
+        if(node instanceof VariableReferenceNode) {
+            var reference = (VariableReferenceNode) node;
+            if(localSlots.containsKey(reference.getVariableName())) {
+                reference.setSlot(localSlots.get(reference.getVariableName()), true);
+            }
+            else {
+                globalSlots.putIfAbsent(reference.getVariableName(), globalSlots.size());
+                reference.setSlot(globalSlots.get(reference.getVariableName()), false);
+            }
+            resolveOptional(reference.getIndexExpression());
+        }
+        else if(node instanceof AssignmentNode) {
+            resolveNode(((AssignmentNode) node).getTarget());
+            resolveNode(((AssignmentNode) node).getAssignment());
+        }
+        else if(node instanceof OperationNode) {
+            resolveNode(((OperationNode) node).getLeft());
+            resolveOptional(((OperationNode) node).getRight());
+        }
+        else if(node instanceof TernaryNode) {
+            resolveNode(((TernaryNode) node).getBooleanExpression());
+            resolveNode(((TernaryNode) node).getTrueCase());
+            resolveNode(((TernaryNode) node).getFalseCase());
+        }
+        else if(node instanceof FunctionCallNode) {
+            for(Node parameter : ((FunctionCallNode) node).getParameters()) {
+                resolveNode(parameter);
+            }
+        }
+        else if(node instanceof DeleteNode) {
+            resolveNode(((DeleteNode) node).getReference());
+        }
+        else if(node instanceof DoWhileNode) {
+            resolveNode(((DoWhileNode) node).getCondition());
+            resolveBlock(((DoWhileNode) node).getLoopBlock());
+        }
+        else if(node instanceof WhileNode) {
+            resolveNode(((WhileNode) node).getCondition());
+            resolveBlock(((WhileNode) node).getLoopBlock());
+        }
+        else if(node instanceof ForNode) {
+            resolveOptional(((ForNode) node).getInitializer());
+            resolveOptional(((ForNode) node).getConditional());
+            resolveOptional(((ForNode) node).getPostIterationOperation());
+            resolveBlock(((ForNode) node).getLoopBlock());
+        }
+        else if(node instanceof ForInNode) {
+            resolveNode(((ForInNode) node).getInStatement());
+            resolveBlock(((ForInNode) node).getLoopBlock());
+        }
+        else if(node instanceof IfNode) {
+            resolveOptional(((IfNode) node).getCondition());
+            resolveBlock(((IfNode) node).getBlockStatements());
+            resolveOptional(((IfNode) node).getNext());
+        }
+        else if(node instanceof ReturnNode) {
+            resolveOptional(((ReturnNode) node).getParameter());
+        }
+        else if(node instanceof BlockNode) {
+            resolveBlock((BlockNode) node);
+        }
+    }
+}
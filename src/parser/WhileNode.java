@@ -13,6 +13,7 @@ public class WhileNode extends StatementNode{
     private BlockNode loopBlock;
 
     public WhileNode(Node condition, BlockNode loopBlock) {
+        super(NodeType.WHILE);
         this.condition = condition;
         this.loopBlock = loopBlock;
     }